@@ -24,6 +24,7 @@ import static org.apache.qpid.server.store.berkeleydb.BDBUtils.abortTransactionS
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -53,6 +54,7 @@ import org.apache.qpid.server.model.ConfiguredObject;
 import org.apache.qpid.server.store.Event;
 import org.apache.qpid.server.store.EventListener;
 import org.apache.qpid.server.store.EventManager;
+import org.apache.qpid.server.store.InMemoryMessageTracker;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
 import org.apache.qpid.server.store.MessageHandle;
 import org.apache.qpid.server.store.MessageStore;
@@ -63,6 +65,7 @@ import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
 import org.apache.qpid.server.store.berkeleydb.entry.PreparedTransaction;
 import org.apache.qpid.server.store.berkeleydb.entry.QueueEntryKey;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.MessageMetaDataBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.PreparedTransactionBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.QueueEntryBinding;
@@ -77,11 +80,17 @@ import org.apache.qpid.server.util.CachingUUIDFactory;
 public abstract class AbstractBDBMessageStore implements MessageStore
 {
 
+    /**
+     * Size of the records holding message content. Message content is stored as a sequence of chunks of this size,
+     * only the last of which may be shorter, so that the chunk holding a given offset can be located directly.
+     */
+    public static final int MESSAGE_CONTENT_CHUNK_SIZE = 64 * 1024;
+
     private static final int LOCK_RETRY_ATTEMPTS = 5;
 
     private static final String MESSAGE_META_DATA_DB_NAME = "MESSAGE_METADATA";
     private static final String MESSAGE_META_DATA_SEQ_DB_NAME = "MESSAGE_METADATA.SEQ";
-    private static final String MESSAGE_CONTENT_DB_NAME = "MESSAGE_CONTENT";
+    private static final String MESSAGE_CONTENT_DB_NAME = "MESSAGE_CONTENT_CHUNKS";
     private static final String DELIVERY_DB_NAME = "QUEUE_ENTRIES";
 
     //TODO: Add upgrader to remove BRIDGES and LINKS
@@ -109,6 +118,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     private final Random _lockConflictRandom = new Random();
     private final AtomicLong _inMemorySize = new AtomicLong();
     private final AtomicLong _bytesEvacuatedFromMemory = new AtomicLong();
+    private final InMemoryMessageTracker _inMemoryMessageTracker = new InMemoryMessageTracker();
     private final Set<StoredBDBMessage<?>> _messages = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Set<MessageDeleteListener> _messageDeleteListeners = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
@@ -144,6 +154,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                 message.clear(true);
             }
             _messages.clear();
+            _inMemoryMessageTracker.clear();
             _inMemorySize.set(0);
             _bytesEvacuatedFromMemory.set(0);
             doClose();
@@ -214,6 +225,10 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     {
         final StoredBDBMessage<T> message = new StoredBDBMessage<>(newMessageId, metaData, recovered);
         _messages.add(message);
+        if (recovered)
+        {
+            _inMemoryMessageTracker.touch(message);
+        }
         return message;
     }
 
@@ -250,6 +265,67 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         return _bytesEvacuatedFromMemory.get();
     }
 
+    @Override
+    public long flowToDisk(final long bytesToRelease)
+    {
+        return _inMemoryMessageTracker.flowToDisk(bytesToRelease);
+    }
+
+    @Override
+    public void flowToDisk(final Collection<? extends StoredMessage<?>> messages)
+    {
+        final List<StoredBDBMessage<?>> bdbMessages = new ArrayList<>(messages.size());
+        for (StoredMessage<?> message : messages)
+        {
+            if (message instanceof StoredBDBMessage)
+            {
+                bdbMessages.add((StoredBDBMessage<?>) message);
+            }
+            else
+            {
+                message.flowToDisk();
+            }
+        }
+
+        if (!bdbMessages.isEmpty())
+        {
+            checkMessageStoreOpen();
+
+            final List<StoredBDBMessage<?>> storedMessages = new ArrayList<>(bdbMessages.size());
+            Transaction txn = null;
+            try
+            {
+                txn = getEnvironmentFacade().beginTransaction(null);
+                for (StoredBDBMessage<?> message : bdbMessages)
+                {
+                    if (message.store(txn))
+                    {
+                        storedMessages.add(message);
+                    }
+                }
+                getEnvironmentFacade().commit(txn, false);
+                txn = null;
+            }
+            catch (RuntimeException e)
+            {
+                throw getEnvironmentFacade().handleDatabaseException("Failed to flow messages to disk", e);
+            }
+            finally
+            {
+                if (txn != null)
+                {
+                    abortTransactionSafely(txn, getEnvironmentFacade());
+                    storedMessages.forEach(StoredBDBMessage::storeAborted);
+                }
+            }
+
+            for (StoredBDBMessage<?> message : bdbMessages)
+            {
+                message.flowToDisk();
+            }
+        }
+    }
+
     @Override
     public boolean isPersistent()
     {
@@ -345,9 +421,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                     getLogger().debug("Deleted metadata for message {}", messageId);
 
                     //now remove the content data from the store if there is any.
-                    DatabaseEntry contentKeyEntry = new DatabaseEntry();
-                    LongBinding.longToEntry(messageId, contentKeyEntry);
-                    getMessageContentDb().delete(tx, contentKeyEntry);
+                    deleteContent(tx, messageId);
 
                     getLogger().debug("Deleted content for message {}", messageId);
 
@@ -418,31 +492,50 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     QpidByteBuffer getAllContent(long messageId) throws StoreException
     {
-        DatabaseEntry contentKeyEntry = new DatabaseEntry();
-        LongBinding.longToEntry(messageId, contentKeyEntry);
-        DatabaseEntry value = new DatabaseEntry();
+        return getContent(messageId, 0, Integer.MAX_VALUE);
+    }
 
-        getLogger().debug("Message Id: {} Getting content body", messageId);
+    /**
+     * Reads the given range of the content of a message, visiting only the chunks which overlap the range.
+     */
+    QpidByteBuffer getContent(long messageId, int offset, int length) throws StoreException
+    {
+        getLogger().debug("Message Id: {} Getting content body from offset {}", messageId, offset);
 
-        try
+        final List<DatabaseEntry> chunks = new ArrayList<>();
+        int remaining = length;
+        int chunkOffset = offset % MESSAGE_CONTENT_CHUNK_SIZE;
+        int size = 0;
+        try (Cursor cursor = getMessageContentDb().openCursor(null, null))
         {
-            OperationStatus status = getMessageContentDb().get(null, contentKeyEntry, value, LockMode.READ_UNCOMMITTED);
+            DatabaseEntry key = new DatabaseEntry();
+            MessageContentKeyBinding.objectToEntry(messageId, offset / MESSAGE_CONTENT_CHUNK_SIZE, key);
+            DatabaseEntry value = new DatabaseEntry();
 
-            if (status == OperationStatus.SUCCESS)
-            {
-                byte[] data = value.getData();
-                int offset = value.getOffset();
-                int length = value.getSize();
-                QpidByteBuffer buf = QpidByteBuffer.allocateDirect(length);
-                buf.put(data, offset, length);
-                buf.flip();
-                return buf;
-            }
-            else
+            OperationStatus status = cursor.getSearchKey(key, value, LockMode.READ_UNCOMMITTED);
+            if (status != OperationStatus.SUCCESS && offset == 0)
             {
                 throw new StoreException("Unable to find message with id " + messageId);
             }
 
+            while (status == OperationStatus.SUCCESS
+                   && remaining > 0
+                   && MessageContentKeyBinding.entryToMessageId(key) == messageId)
+            {
+                final int chunkLength = Math.min(value.getSize() - chunkOffset, remaining);
+                if (chunkLength > 0)
+                {
+                    value.setOffset(value.getOffset() + chunkOffset);
+                    value.setSize(chunkLength);
+                    chunks.add(value);
+                    size += chunkLength;
+                    remaining -= chunkLength;
+                }
+                chunkOffset = 0;
+
+                value = new DatabaseEntry();
+                status = cursor.getNext(key, value, LockMode.READ_UNCOMMITTED);
+            }
         }
         catch (RuntimeException e)
         {
@@ -451,6 +544,14 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                                                                  + " to database: "
                                                                  + e.getMessage(), e);
         }
+
+        QpidByteBuffer buf = QpidByteBuffer.allocateDirect(size);
+        for (DatabaseEntry chunk : chunks)
+        {
+            buf.put(chunk.getData(), chunk.getOffset(), chunk.getSize());
+        }
+        buf.flip();
+        return buf;
     }
 
     private void visitMessagesInternal(MessageHandler handler, EnvironmentFacade environmentFacade)
@@ -478,6 +579,52 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         }
     }
 
+    private void visitMessagesInternal(long[] messageIds, MessageHandler handler, EnvironmentFacade environmentFacade)
+    {
+        DatabaseEntry key = new DatabaseEntry();
+        DatabaseEntry value = new DatabaseEntry();
+        MessageMetaDataBinding valueBinding = MessageMetaDataBinding.getInstance();
+
+        if (messageIds.length == 0)
+        {
+            return;
+        }
+
+        try(Cursor cursor = getMessageMetaDataDb().openCursor(null, null))
+        {
+            // the ids are in ascending order: position on the lowest once and walk forward in key order
+            LongBinding.longToEntry(messageIds[0], key);
+            OperationStatus status = cursor.getSearchKeyRange(key, value, LockMode.READ_UNCOMMITTED);
+            int index = 0;
+            while (status == OperationStatus.SUCCESS && index < messageIds.length)
+            {
+                final long messageId = LongBinding.entryToLong(key);
+                while (index < messageIds.length && messageIds[index] < messageId)
+                {
+                    index++;
+                }
+                if (index < messageIds.length && messageIds[index] == messageId)
+                {
+                    StorableMessageMetaData metaData = valueBinding.entryToObject(value);
+                    StoredBDBMessage message = createStoredBDBMessage(messageId, metaData, true);
+                    if (!handler.handle(message))
+                    {
+                        break;
+                    }
+                    index++;
+                }
+                if (index < messageIds.length)
+                {
+                    status = cursor.getNext(key, value, LockMode.READ_UNCOMMITTED);
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            throw environmentFacade.handleDatabaseException("Cannot visit messages", e);
+        }
+    }
+
     private void sleepOrThrowOnLockConflict(int attempts, String throwMessage, LockConflictException cause)
     {
         if (attempts < LOCK_RETRY_ATTEMPTS)
@@ -527,33 +674,39 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     }
 
     /**
-     * Stores a chunk of message data.
+     * Stores the message data as a sequence of chunks of {@link #MESSAGE_CONTENT_CHUNK_SIZE} bytes.
      *
      * @param tx         The transaction for the operation.
      * @param messageId       The message to store the data for.
-     * @param contentBody     The content of the data chunk.
+     * @param contentBody     The content of the message.
      *
      * @throws org.apache.qpid.server.store.StoreException If the operation fails for any reason, or if the specified message does not exist.
      */
     private void addContent(final Transaction tx, long messageId, QpidByteBuffer contentBody) throws StoreException
     {
-        DatabaseEntry key = new DatabaseEntry();
-        LongBinding.longToEntry(messageId, key);
-        DatabaseEntry value = new DatabaseEntry();
-
-        byte[] data = new byte[contentBody.remaining()];
-        contentBody.copyTo(data);
-        value.setData(data);
-        try
+        try (QpidByteBuffer content = contentBody.duplicate())
         {
-            OperationStatus status = getMessageContentDb().put(tx, key, value);
-            if (status != OperationStatus.SUCCESS)
+            int chunkIndex = 0;
+            do
             {
-                throw new StoreException("Error adding content for message id " + messageId + ": " + status);
-            }
+                DatabaseEntry key = new DatabaseEntry();
+                MessageContentKeyBinding.objectToEntry(messageId, chunkIndex, key);
 
-            getLogger().debug("Storing content for message {} in transaction {}", messageId, tx);
+                byte[] data = new byte[Math.min(content.remaining(), MESSAGE_CONTENT_CHUNK_SIZE)];
+                content.get(data);
+                DatabaseEntry value = new DatabaseEntry(data);
+
+                OperationStatus status = getMessageContentDb().put(tx, key, value);
+                if (status != OperationStatus.SUCCESS)
+                {
+                    throw new StoreException("Error adding content for message id " + messageId + ": " + status);
+                }
+                chunkIndex++;
+            }
+            while (content.hasRemaining());
 
+            getLogger().debug("Storing content for message {} in {} chunk(s) in transaction {}",
+                              messageId, chunkIndex, tx);
         }
         catch (RuntimeException e)
         {
@@ -564,6 +717,24 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         }
     }
 
+    private void deleteContent(final Transaction tx, final long messageId)
+    {
+        try (Cursor cursor = getMessageContentDb().openCursor(tx, null))
+        {
+            DatabaseEntry key = new DatabaseEntry();
+            MessageContentKeyBinding.objectToEntry(messageId, 0, key);
+            DatabaseEntry value = new DatabaseEntry();
+            value.setPartial(0, 0, true);
+
+            OperationStatus status = cursor.getSearchKeyRange(key, value, LockMode.RMW);
+            while (status == OperationStatus.SUCCESS && MessageContentKeyBinding.entryToMessageId(key) == messageId)
+            {
+                cursor.delete();
+                status = cursor.getNext(key, value, LockMode.RMW);
+            }
+        }
+    }
+
     /**
      * Stores message meta-data.
      *
@@ -997,6 +1168,11 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             _isHardRef = false;
         }
 
+        public void setHard()
+        {
+            _isHardRef = true;
+        }
+
         public void reallocate()
         {
             if(_metaData != null)
@@ -1077,6 +1253,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                     metaData = (T) getMessageMetaData(_messageId);
                     _messageDataRef = new MessageDataRef<>(metaData, _messageDataRef.getData(), false);
                     _inMemorySize.addAndGet(getMetadataSize());
+                    _inMemoryMessageTracker.touch(this);
                 }
                 return metaData;
             }
@@ -1108,6 +1285,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         public StoredMessage<T> allContentAdded()
         {
             _inMemorySize.addAndGet(getContentSize());
+            _inMemoryMessageTracker.touch(this);
             return this;
         }
 
@@ -1138,7 +1316,21 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         @Override
         public synchronized QpidByteBuffer getContent(int offset, int length)
         {
+            if (_messageDataRef != null && _messageDataRef.getData() == null && stored()
+                && (offset > 0 || length < getContentSize()))
+            {
+                // read only the chunks covering the requested range rather than bringing all content into memory
+                checkMessageStoreOpen();
+                final int available = Math.max(0, getContentSize() - offset);
+                return length == 0 || available == 0
+                        ? QpidByteBuffer.emptyQpidByteBuffer()
+                        : AbstractBDBMessageStore.this.getContent(_messageId, offset, Math.min(length, available));
+            }
             QpidByteBuffer contentAsByteBuffer = getContentAsByteBuffer();
+            if (_messageDataRef != null)
+            {
+                _inMemoryMessageTracker.touch(this);
+            }
             if (length == Integer.MAX_VALUE)
             {
                 length = contentAsByteBuffer.remaining();
@@ -1158,9 +1350,12 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             return _metadataSize;
         }
 
-        synchronized void store(Transaction txn)
+        /**
+         * @return true if the message was written within the given transaction
+         */
+        synchronized boolean store(Transaction txn)
         {
-            if (!stored())
+            if (_messageDataRef != null && !stored())
             {
                 AbstractBDBMessageStore.this.storeMetaData(txn, _messageId, _messageDataRef.getMetaData());
                 AbstractBDBMessageStore.this.addContent(txn, _messageId,
@@ -1168,6 +1363,19 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                                                                 ? QpidByteBuffer.emptyQpidByteBuffer()
                                                                 : _messageDataRef.getData());
                 _messageDataRef.setSoft();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Reverts {@link #store(Transaction)} after the transaction it was written in has been aborted.
+         */
+        synchronized void storeAborted()
+        {
+            if (_messageDataRef != null)
+            {
+                _messageDataRef.setHard();
             }
         }
 
@@ -1224,6 +1432,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             }
             _messageDataRef = null;
             _inMemorySize.addAndGet(-bytesCleared);
+            _inMemoryMessageTracker.remove(this);
             if (!_messageDeleteListeners.isEmpty())
             {
                 for (final MessageDeleteListener messageDeleteListener : _messageDeleteListeners)
@@ -1279,6 +1488,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                 final long bytesCleared = _messageDataRef.clear(false);
                 _inMemorySize.addAndGet(-bytesCleared);
                 _bytesEvacuatedFromMemory.addAndGet(bytesCleared);
+                _inMemoryMessageTracker.remove(this);
             }
             return true;
         }
@@ -1547,6 +1757,13 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             return getMessageInternal(messageId, getEnvironmentFacade());
         }
 
+        @Override
+        public void visitMessages(final long[] messageIds, final MessageHandler handler) throws StoreException
+        {
+            checkMessageStoreOpen();
+            visitMessagesInternal(messageIds, handler, getEnvironmentFacade());
+        }
+
         @Override
         public void close()
         {
@@ -68,7 +68,7 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(BDBConfigurationStore.class);
 
-    public static final int VERSION = 9;
+    public static final int VERSION = 10;
     private static final String CONFIGURED_OBJECTS_DB_NAME = "CONFIGURED_OBJECTS";
     private static final String CONFIGURED_OBJECT_HIERARCHY_DB_NAME = "CONFIGURED_OBJECT_HIERARCHY";
 
@@ -0,0 +1,58 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb.tuple;
+
+import com.sleepycat.bind.tuple.TupleBinding;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.je.DatabaseEntry;
+
+/**
+ * Binding for the keys of the message content database, which holds the content of each message as a sequence of
+ * fixed-size chunks keyed by ( message-id: long, chunk-index: int ). Keys sort by message id and then by chunk
+ * index, so the chunks of a message can be visited in order with a range search from chunk zero.
+ */
+public class MessageContentKeyBinding
+{
+    private MessageContentKeyBinding()
+    {
+    }
+
+    public static void objectToEntry(final long messageId, final int chunkIndex, final DatabaseEntry entry)
+    {
+        final TupleOutput output = new TupleOutput(new byte[12]);
+        output.writeLong(messageId);
+        output.writeInt(chunkIndex);
+        TupleBinding.outputToEntry(output, entry);
+    }
+
+    public static long entryToMessageId(final DatabaseEntry entry)
+    {
+        return TupleBinding.entryToInput(entry).readLong();
+    }
+
+    public static int entryToChunkIndex(final DatabaseEntry entry)
+    {
+        final TupleInput input = TupleBinding.entryToInput(entry);
+        input.readLong();
+        return input.readInt();
+    }
+}
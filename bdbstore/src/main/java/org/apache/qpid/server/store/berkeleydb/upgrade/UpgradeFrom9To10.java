@@ -0,0 +1,133 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb.upgrade;
+
+import java.util.Arrays;
+
+import com.sleepycat.bind.tuple.LongBinding;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.store.StoreException;
+import org.apache.qpid.server.store.berkeleydb.AbstractBDBMessageStore;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
+
+/**
+ * Upgrades from a v9 database to a v10 database
+ *
+ * Change in this version:
+ *
+ * Message content is moved from the database MESSAGE_CONTENT to MESSAGE_CONTENT_CHUNKS. The structure of the database
+ * changes from ( message-id: long ) {@literal ->} ( byte[] data ) to ( message-id: long, chunk-index: int )
+ * {@literal ->} ( byte[] data ), each record holding at most
+ * {@link AbstractBDBMessageStore#MESSAGE_CONTENT_CHUNK_SIZE} bytes of the message content.
+ */
+@SuppressWarnings("unused")
+public class UpgradeFrom9To10 extends AbstractStoreUpgrade
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpgradeFrom9To10.class);
+
+    static final String OLD_CONTENT_DB_NAME = "MESSAGE_CONTENT";
+    static final String NEW_CONTENT_DB_NAME = "MESSAGE_CONTENT_CHUNKS";
+
+    @Override
+    public void performUpgrade(final Environment environment,
+                               final UpgradeInteractionHandler handler,
+                               final ConfiguredObject<?> parent)
+    {
+        reportStarting(environment, 9);
+
+        final Transaction transaction = environment.beginTransaction(null, null);
+        try
+        {
+            if (environment.getDatabaseNames().contains(OLD_CONTENT_DB_NAME))
+            {
+                LOGGER.info("Message Contents");
+                CursorOperation contentOperation = new CursorOperation()
+                {
+                    @Override
+                    public void processEntry(final Database oldContentDatabase,
+                                             final Database newContentDatabase,
+                                             final Transaction transaction,
+                                             final DatabaseEntry key,
+                                             final DatabaseEntry value)
+                    {
+                        upgradeContent(LongBinding.entryToLong(key), value, newContentDatabase, transaction);
+                    }
+                };
+                new DatabaseTemplate(environment, OLD_CONTENT_DB_NAME, NEW_CONTENT_DB_NAME, transaction)
+                        .run(contentOperation);
+                LOGGER.info(contentOperation.getRowCount() + " Message Content Entries");
+                environment.removeDatabase(transaction, OLD_CONTENT_DB_NAME);
+            }
+
+            transaction.commit();
+            reportFinished(environment, 10);
+        }
+        catch (RuntimeException e)
+        {
+            try
+            {
+                if (transaction.isValid())
+                {
+                    transaction.abort();
+                }
+            }
+            finally
+            {
+                throw e;
+            }
+        }
+    }
+
+    private void upgradeContent(final long messageId,
+                                final DatabaseEntry value,
+                                final Database newContentDatabase,
+                                final Transaction transaction)
+    {
+        final byte[] data = value.getData();
+        final int end = value.getOffset() + value.getSize();
+        int chunkIndex = 0;
+        int position = value.getOffset();
+        do
+        {
+            final int chunkEnd = Math.min(end, position + AbstractBDBMessageStore.MESSAGE_CONTENT_CHUNK_SIZE);
+            DatabaseEntry chunkKey = new DatabaseEntry();
+            MessageContentKeyBinding.objectToEntry(messageId, chunkIndex, chunkKey);
+            DatabaseEntry chunkValue = new DatabaseEntry(Arrays.copyOfRange(data, position, chunkEnd));
+
+            OperationStatus status = newContentDatabase.put(transaction, chunkKey, chunkValue);
+            if (status != OperationStatus.SUCCESS)
+            {
+                throw new StoreException("Cannot upgrade content of message " + messageId + ": " + status);
+            }
+            position = chunkEnd;
+            chunkIndex++;
+        }
+        while (position < end);
+    }
+}
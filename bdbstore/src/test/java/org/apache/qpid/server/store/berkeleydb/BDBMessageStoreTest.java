@@ -22,6 +22,8 @@ package org.apache.qpid.server.store.berkeleydb;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -30,6 +32,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
 
 import org.junit.Test;
@@ -141,11 +144,65 @@ public class BDBMessageStoreTest extends MessageStoreTestCase
         }
     }
 
+    @Test
+    public void testLargeMessageContentReadByRange() throws Exception
+    {
+        BDBMessageStore bdbStore = (BDBMessageStore) getStore();
+
+        final byte[] content = new byte[AbstractBDBMessageStore.MESSAGE_CONTENT_CHUNK_SIZE * 2 + 100];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) i;
+        }
+        StoredMessage<MessageMetaData> storedMessage = createAndStoreMessage_0_8(bdbStore, content);
+        long messageId = storedMessage.getMessageNumber();
+        storedMessage.flowToDisk();
+        assertFalse("Content should not be in memory", storedMessage.isInContentInMemory());
+
+        final int offset = AbstractBDBMessageStore.MESSAGE_CONTENT_CHUNK_SIZE - 10;
+        try (QpidByteBuffer range = storedMessage.getContent(offset, 20))
+        {
+            assertEquals("Unexpected range length", 20, range.remaining());
+            byte[] actual = new byte[20];
+            range.get(actual);
+            assertArrayEquals("Unexpected range content", Arrays.copyOfRange(content, offset, offset + 20), actual);
+        }
+        assertFalse("Reading a range should not bring content into memory", storedMessage.isInContentInMemory());
+
+        try (QpidByteBuffer tail = storedMessage.getContent(content.length - 50, Integer.MAX_VALUE))
+        {
+            assertEquals("Unexpected tail length", 50, tail.remaining());
+        }
+
+        try (QpidByteBuffer all = bdbStore.getAllContent(messageId))
+        {
+            byte[] actual = new byte[all.remaining()];
+            all.get(actual);
+            assertArrayEquals("Unexpected content", content, actual);
+        }
+
+        bdbStore.removeMessage(messageId, true);
+        try
+        {
+            bdbStore.getAllContent(messageId);
+            fail("Expected exception not thrown");
+        }
+        catch (StoreException se)
+        {
+            // PASS
+        }
+    }
+
     private StoredMessage<MessageMetaData> createAndStoreSingleChunkMessage_0_8(MessageStore store)
     {
-        QpidByteBuffer chunk1 = QpidByteBuffer.wrap(CONTENT_BYTES);
+        return createAndStoreMessage_0_8(store, CONTENT_BYTES);
+    }
+
+    private StoredMessage<MessageMetaData> createAndStoreMessage_0_8(MessageStore store, byte[] content)
+    {
+        QpidByteBuffer chunk1 = QpidByteBuffer.wrap(content);
 
-        int bodySize = CONTENT_BYTES.length;
+        int bodySize = content.length;
 
         //create and store the message using the MessageStore interface
         MessagePublishInfo pubInfoBody_0_8 = createPublishInfoBody_0_8();
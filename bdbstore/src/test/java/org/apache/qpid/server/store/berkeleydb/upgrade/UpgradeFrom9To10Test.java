@@ -0,0 +1,103 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb.upgrade;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.sleepycat.bind.tuple.LongBinding;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.Transaction;
+import org.junit.Test;
+
+import org.apache.qpid.server.store.berkeleydb.AbstractBDBMessageStore;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
+
+public class UpgradeFrom9To10Test extends AbstractUpgradeTestCase
+{
+    private static final String OLD_CONTENT_DB_NAME = "MESSAGE_CONTENT";
+    private static final String NEW_CONTENT_DB_NAME = "MESSAGE_CONTENT_CHUNKS";
+    private static final long LARGE_MESSAGE_ID = 1000000L;
+
+    @Override
+    protected String getStoreDirectoryName()
+    {
+        return "bdbstore-v8";
+    }
+
+    @Test
+    public void testPerformUpgrade() throws Exception
+    {
+        final long originalContentCount = getDatabaseCount(OLD_CONTENT_DB_NAME);
+        final byte[] largeContent = new byte[AbstractBDBMessageStore.MESSAGE_CONTENT_CHUNK_SIZE * 2 + 1];
+        for (int i = 0; i < largeContent.length; i++)
+        {
+            largeContent[i] = (byte) i;
+        }
+        new DatabaseTemplate(_environment, OLD_CONTENT_DB_NAME, null).run(new DatabaseRunnable()
+        {
+            @Override
+            public void run(final Database sourceDatabase, final Database targetDatabase, final Transaction transaction)
+            {
+                DatabaseEntry key = new DatabaseEntry();
+                LongBinding.longToEntry(LARGE_MESSAGE_ID, key);
+                sourceDatabase.put(null, key, new DatabaseEntry(largeContent));
+            }
+        });
+
+        UpgradeFrom9To10 upgrade = new UpgradeFrom9To10();
+        upgrade.performUpgrade(_environment, UpgradeInteractionHandler.DEFAULT_HANDLER, getVirtualHost());
+
+        assertFalse("Old content database should be removed",
+                    _environment.getDatabaseNames().contains(OLD_CONTENT_DB_NAME));
+        assertDatabaseRecordCount(NEW_CONTENT_DB_NAME, originalContentCount + 3);
+
+        final List<Integer> chunkIndexes = new ArrayList<>();
+        final ByteArrayOutputStream upgradedContent = new ByteArrayOutputStream();
+        CursorOperation contentCursor = new CursorOperation()
+        {
+            @Override
+            public void processEntry(Database sourceDatabase, Database targetDatabase, Transaction transaction,
+                                     DatabaseEntry key, DatabaseEntry value)
+            {
+                long messageId = MessageContentKeyBinding.entryToMessageId(key);
+                assertTrue("Unexpected chunk size", value.getSize() <= AbstractBDBMessageStore.MESSAGE_CONTENT_CHUNK_SIZE);
+                if (messageId == LARGE_MESSAGE_ID)
+                {
+                    chunkIndexes.add(MessageContentKeyBinding.entryToChunkIndex(key));
+                    upgradedContent.write(value.getData(), value.getOffset(), value.getSize());
+                }
+            }
+        };
+        new DatabaseTemplate(_environment, NEW_CONTENT_DB_NAME, null).run(contentCursor);
+
+        assertEquals("Unexpected chunks", Arrays.asList(0, 1, 2), chunkIndexes);
+        assertArrayEquals("Unexpected content", largeContent, upgradedContent.toByteArray());
+    }
+}
@@ -29,7 +29,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.sleepycat.bind.tuple.IntegerBinding;
-import com.sleepycat.bind.tuple.LongBinding;
 import com.sleepycat.je.Cursor;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseConfig;
@@ -43,6 +42,7 @@ import org.junit.Test;
 import org.apache.qpid.server.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.store.berkeleydb.BDBConfigurationStore;
 import org.apache.qpid.server.store.berkeleydb.tuple.ByteBufferBinding;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
 
 public class UpgraderTest extends AbstractUpgradeTestCase
 {
@@ -130,13 +130,13 @@ public class UpgraderTest extends AbstractUpgradeTestCase
             public void processEntry(Database sourceDatabase, Database targetDatabase, Transaction transaction, DatabaseEntry key,
                     DatabaseEntry value)
             {
-                long id = LongBinding.entryToLong(key);
+                long id = MessageContentKeyBinding.entryToMessageId(key);
                 assertTrue("Unexpected id", id > 0);
                 QpidByteBuffer content = contentBinding.entryToObject(value);
                 assertNotNull("Unexpected content", content);
                 assertTrue("Expected content", content.hasRemaining());
             }
         };
-        new DatabaseTemplate(_environment, "MESSAGE_CONTENT", null).run(contentCursorOperation);
+        new DatabaseTemplate(_environment, "MESSAGE_CONTENT_CHUNKS", null).run(contentCursorOperation);
     }
 }
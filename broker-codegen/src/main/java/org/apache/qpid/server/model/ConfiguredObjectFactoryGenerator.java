@@ -29,6 +29,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import javax.annotation.processing.AbstractProcessor;
@@ -180,6 +181,10 @@ public class ConfiguredObjectFactoryGenerator extends AbstractProcessor
 
             generateAccessCheckedMethods(childClassSimpleName, classElement, pw, new HashSet<TypeElement>(), new HashSet<String>());
 
+            final Map<String, ExecutableElement> statistics = new TreeMap<>();
+            findStatistics(classElement, new HashSet<TypeElement>(), statistics);
+            generateStatisticsWriter(pw, statistics);
+
             pw.println("}");
 
             pw.close();
@@ -242,6 +247,79 @@ public class ConfiguredObjectFactoryGenerator extends AbstractProcessor
         }
 
     }
+    private void findStatistics(final TypeElement typeElement,
+                                final Set<TypeElement> processedClasses,
+                                final Map<String, ExecutableElement> statistics)
+    {
+        if(processedClasses.add(typeElement))
+        {
+            Element superClassElement = processingEnv.getTypeUtils().asElement(typeElement.getSuperclass());
+            if(superClassElement instanceof TypeElement)
+            {
+                findStatistics((TypeElement) superClassElement, processedClasses, statistics);
+            }
+
+            for(TypeMirror ifMirror : typeElement.getInterfaces())
+            {
+                Element ifElement = processingEnv.getTypeUtils().asElement(ifMirror);
+                if(ifElement instanceof TypeElement)
+                {
+                    findStatistics((TypeElement) ifElement, processedClasses, statistics);
+                }
+            }
+
+            for(Element element : typeElement.getEnclosedElements())
+            {
+                if(element.getKind() == ElementKind.METHOD
+                   && getAnnotation(element, "org.apache.qpid.server.model.ManagedStatistic") != null)
+                {
+                    ExecutableElement methodElement = (ExecutableElement) element;
+                    statistics.put(getStatisticName(methodElement), methodElement);
+                }
+            }
+        }
+    }
+
+    /**
+     * Derives the statistic name from the name of its getter in the same way as the type registry does at runtime.
+     */
+    private String getStatisticName(final ExecutableElement methodElement)
+    {
+        final String methodName = methodElement.getSimpleName().toString();
+        final TypeMirror returnType = methodElement.getReturnType();
+        final boolean isBoolean = returnType.getKind() == TypeKind.BOOLEAN
+                                  || "java.lang.Boolean".equals(returnType.toString());
+        final String baseName;
+        if(isBoolean && methodName.startsWith("is"))
+        {
+            baseName = methodName.substring(2);
+        }
+        else
+        {
+            baseName = methodName.substring(3);
+        }
+        String name = baseName.length() == 1 ? baseName.toLowerCase() : baseName.substring(0,1).toLowerCase() + baseName.substring(1);
+        return name.replace('_', '.');
+    }
+
+    private void generateStatisticsWriter(final PrintWriter pw, final Map<String, ExecutableElement> statistics)
+    {
+        pw.println("    @Override");
+        pw.println("    protected boolean writeStatistics(final StatisticsWriter writer)");
+        pw.println("    {");
+        for(Map.Entry<String, ExecutableElement> statistic : statistics.entrySet())
+        {
+            pw.println("        if (writer.isRequired(\"" + statistic.getKey() + "\"))");
+            pw.println("        {");
+            pw.println("            writer.write(\"" + statistic.getKey() + "\", "
+                       + statistic.getValue().getSimpleName() + "());");
+            pw.println("        }");
+        }
+        pw.println("        return true;");
+        pw.println("    }");
+        pw.println();
+    }
+
     private void processDoOnConfigMethod(final PrintWriter pw, final String className, final ExecutableElement methodElement, final AnnotationMirror annotationMirror)
     {
         pw.println("    @Override");
@@ -20,24 +20,56 @@
  */
 package org.apache.qpid.server.bytebuffer;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Pool of direct buffers of a single size.
+ * <p>
+ * Each thread keeps a small magazine of buffers in front of the shared queue, so that a thread which repeatedly
+ * takes and returns buffers does not contend with other threads. A full magazine hands half of its buffers over
+ * to the shared queue, and {@link #releaseThreadLocalBuffers()} hands over all of them when a thread ends.
+ * <p>
+ * The maximum size applies to all pooled buffers, whether held in a magazine or in the shared queue. Magazines
+ * are registered weakly so that {@link #releaseAllBuffers()} can empty the magazines of every thread, and so that
+ * buffers in the magazine of a thread which ended without releasing it stop counting against the maximum.
+ */
 class BufferPool
 {
+    static final int MAGAZINE_CAPACITY = 16;
+
+    private final int _bufferSize;
     private final int _maxSize;
+    private final int _magazineCapacity;
     private final ConcurrentLinkedQueue<ByteBuffer> _pooledBuffers = new ConcurrentLinkedQueue<>();
     private final AtomicInteger _size = new AtomicInteger();
+    private final LongAdder _inUse = new LongAdder();
+    private final Set<MagazineReference> _magazineReferences = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<Magazine> _collectedMagazines = new ReferenceQueue<>();
+    private final ThreadLocal<Magazine> _magazines = ThreadLocal.withInitial(this::createMagazine);
 
-    BufferPool(final int maxSize)
+    BufferPool(final int bufferSize, final int maxSize)
     {
+        _bufferSize = bufferSize;
         _maxSize = maxSize;
+        _magazineCapacity = Math.max(0, Math.min(MAGAZINE_CAPACITY, maxSize));
     }
 
     ByteBuffer getBuffer()
     {
-        final ByteBuffer buffer = _pooledBuffers.poll();
+        ByteBuffer buffer = _magazines.get().poll();
+        if (buffer == null)
+        {
+            buffer = _pooledBuffers.poll();
+        }
         if (buffer != null)
         {
             _size.decrementAndGet();
@@ -47,14 +79,111 @@ class BufferPool
 
     void returnBuffer(ByteBuffer buf)
     {
+        if (!reserve())
+        {
+            return;
+        }
+
         buf.clear();
-        if (size() < _maxSize)
+        final Magazine magazine = _magazines.get();
+        if (!magazine.offer(buf))
         {
             _pooledBuffers.add(buf);
-            _size.incrementAndGet();
         }
     }
 
+    /**
+     * Hands the buffers held by the calling thread over to the shared queue.
+     */
+    void releaseThreadLocalBuffers()
+    {
+        final Magazine magazine = _magazines.get();
+        magazine.drainTo(_pooledBuffers);
+        _magazineReferences.remove(magazine._reference);
+        _magazines.remove();
+    }
+
+    /**
+     * Discards all pooled buffers, including those held in the magazines of other threads.
+     */
+    void releaseAllBuffers()
+    {
+        for (MagazineReference reference : _magazineReferences)
+        {
+            final Magazine magazine = reference.get();
+            if (magazine != null)
+            {
+                _size.addAndGet(-magazine.clear());
+            }
+        }
+        while (_pooledBuffers.poll() != null)
+        {
+            _size.decrementAndGet();
+        }
+        expungeCollectedMagazines();
+    }
+
+    private boolean reserve()
+    {
+        if (tryReserve())
+        {
+            return true;
+        }
+        return expungeCollectedMagazines() && tryReserve();
+    }
+
+    private boolean tryReserve()
+    {
+        int size;
+        do
+        {
+            size = _size.get();
+            if (size >= _maxSize)
+            {
+                return false;
+            }
+        }
+        while (!_size.compareAndSet(size, size + 1));
+        return true;
+    }
+
+    private boolean expungeCollectedMagazines()
+    {
+        boolean expunged = false;
+        Reference<? extends Magazine> reference;
+        while ((reference = _collectedMagazines.poll()) != null)
+        {
+            final MagazineReference magazineReference = (MagazineReference) reference;
+            _magazineReferences.remove(magazineReference);
+            _size.addAndGet(-magazineReference._count.getAndSet(0));
+            expunged = true;
+        }
+        return expunged;
+    }
+
+    private Magazine createMagazine()
+    {
+        final Magazine magazine = new Magazine();
+        magazine._reference = new MagazineReference(magazine, _collectedMagazines);
+        _magazineReferences.add(magazine._reference);
+        return magazine;
+    }
+
+    void bufferLoaned()
+    {
+        _inUse.increment();
+    }
+
+    void bufferReturned()
+    {
+        _inUse.decrement();
+    }
+
+    public int getBufferSize()
+    {
+        return _bufferSize;
+    }
+
     public int getMaxSize()
     {
         return _maxSize;
@@ -62,6 +191,80 @@ class BufferPool
 
     public int size()
     {
+        expungeCollectedMagazines();
         return _size.get();
     }
+
+    public int getNumberOfBuffersInUse()
+    {
+        return _inUse.intValue();
+    }
+
+    /**
+     * Buffers held by one thread. Only the owning thread adds and takes buffers, the lock is contended only when
+     * another thread empties the magazine.
+     */
+    private final class Magazine
+    {
+        private final ArrayDeque<ByteBuffer> _buffers = new ArrayDeque<>();
+        private final AtomicInteger _count = new AtomicInteger();
+        private MagazineReference _reference;
+
+        synchronized ByteBuffer poll()
+        {
+            final ByteBuffer buffer = _buffers.pollLast();
+            if (buffer != null)
+            {
+                _count.decrementAndGet();
+            }
+            return buffer;
+        }
+
+        synchronized boolean offer(final ByteBuffer buffer)
+        {
+            if (_buffers.size() >= _magazineCapacity)
+            {
+                final int retained = _magazineCapacity / 2;
+                while (_buffers.size() > retained)
+                {
+                    _pooledBuffers.add(_buffers.pollFirst());
+                    _count.decrementAndGet();
+                }
+            }
+            if (_buffers.size() < _magazineCapacity)
+            {
+                _buffers.addLast(buffer);
+                _count.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void drainTo(final ConcurrentLinkedQueue<ByteBuffer> target)
+        {
+            ByteBuffer buffer;
+            while ((buffer = _buffers.pollFirst()) != null)
+            {
+                target.add(buffer);
+                _count.decrementAndGet();
+            }
+        }
+
+        synchronized int clear()
+        {
+            _buffers.clear();
+            return _count.getAndSet(0);
+        }
+    }
+
+    private static final class MagazineReference extends WeakReference<Magazine>
+    {
+        private final AtomicInteger _count;
+
+        private MagazineReference(final Magazine magazine, final ReferenceQueue<Magazine> queue)
+        {
+            super(magazine, queue);
+            _count = magazine._count;
+        }
+    }
 }
@@ -21,9 +21,8 @@
 package org.apache.qpid.server.bytebuffer;
 
 import java.nio.ByteBuffer;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 class PooledByteBufferRef implements ByteBufferRef
 {
@@ -31,9 +30,10 @@ class PooledByteBufferRef implements ByteBufferRef
             AtomicIntegerFieldUpdater.newUpdater(PooledByteBufferRef.class, "_refCount");
     private static final AtomicIntegerFieldUpdater<PooledByteBufferRef> CLAIMED_UPDATER =
             AtomicIntegerFieldUpdater.newUpdater(PooledByteBufferRef.class, "_claimed");
-    private static final AtomicInteger ACTIVE_BUFFERS = new AtomicInteger();
-    private static final AtomicLong DISPOSAL_COUNTER = new AtomicLong();
+    private static final LongAdder DISPOSAL_COUNTER = new LongAdder();
+    private static final LongAdder CLAIMED_SIZE = new LongAdder();
     private final ByteBuffer _buffer;
+    private final BufferPool _pool;
 
     @SuppressWarnings("unused")
     private volatile int _refCount;
@@ -41,14 +41,15 @@ class PooledByteBufferRef implements ByteBufferRef
     @SuppressWarnings("unused")
     private volatile int _claimed;
 
-    PooledByteBufferRef(final ByteBuffer buffer)
+    PooledByteBufferRef(final ByteBuffer buffer, final BufferPool pool)
     {
         if (buffer == null)
         {
             throw new NullPointerException();
         }
         _buffer = buffer;
-        ACTIVE_BUFFERS.incrementAndGet();
+        _pool = pool;
+        _pool.bufferLoaned();
     }
 
     @Override
@@ -56,7 +57,7 @@ class PooledByteBufferRef implements ByteBufferRef
     {
         if(REF_COUNT_UPDATER.get(this) >= 0)
         {
-            CLAIMED_UPDATER.addAndGet(this, capacity);
+            updateClaimedSize(CLAIMED_UPDATER.addAndGet(this, capacity), capacity);
             REF_COUNT_UPDATER.incrementAndGet(this);
         }
     }
@@ -64,12 +65,12 @@ class PooledByteBufferRef implements ByteBufferRef
     @Override
     public void decrementRef(final int capacity)
     {
-        CLAIMED_UPDATER.addAndGet(this, -capacity);
-        DISPOSAL_COUNTER.incrementAndGet();
+        updateClaimedSize(CLAIMED_UPDATER.addAndGet(this, -capacity), -capacity);
+        DISPOSAL_COUNTER.increment();
         if(REF_COUNT_UPDATER.get(this) > 0 && REF_COUNT_UPDATER.decrementAndGet(this) == 0)
         {
-            QpidByteBuffer.returnToPool(_buffer);
-            ACTIVE_BUFFERS.decrementAndGet();
+            _pool.bufferReturned();
+            QpidByteBuffer.returnToPool(_buffer, _pool);
         }
     }
 
@@ -85,13 +86,27 @@ class PooledByteBufferRef implements ByteBufferRef
         return minimumSparsityFraction > (double) CLAIMED_UPDATER.get(this) / (double) _buffer.capacity();
     }
 
-    static int getActiveBufferCount()
+    /**
+     * Overlapping views may claim more than the capacity of the buffer, so only claims up to the capacity are
+     * accounted towards the claimed size of all pooled buffers.
+     */
+    private void updateClaimedSize(final int claimed, final int delta)
     {
-        return ACTIVE_BUFFERS.get();
+        final int capacity = _buffer.capacity();
+        final int change = Math.min(Math.max(claimed, 0), capacity) - Math.min(Math.max(claimed - delta, 0), capacity);
+        if (change != 0)
+        {
+            CLAIMED_SIZE.add(change);
+        }
+    }
+
+    static long getClaimedSize()
+    {
+        return CLAIMED_SIZE.sum();
     }
 
     static long getDisposalCounter()
     {
-        return DISPOSAL_COUNTER.get();
+        return DISPOSAL_COUNTER.sum();
     }
 }
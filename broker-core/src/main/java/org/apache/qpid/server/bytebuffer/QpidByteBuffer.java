@@ -112,9 +112,9 @@ public interface QpidByteBuffer extends AutoCloseable
         QpidByteBufferFactory.deinitialisePool();
     }
 
-    static void returnToPool(ByteBuffer buffer)
+    static void returnToPool(ByteBuffer buffer, BufferPool pool)
     {
-        QpidByteBufferFactory.returnToPool(buffer);
+        QpidByteBufferFactory.returnToPool(buffer, pool);
     }
 
     static int getPooledBufferSize()
@@ -127,6 +127,20 @@ public interface QpidByteBuffer extends AutoCloseable
         return QpidByteBufferFactory.getAllocatedDirectMemorySize();
     }
 
+    static long getFragmentedDirectMemorySize()
+    {
+        return QpidByteBufferFactory.getFragmentedDirectMemorySize();
+    }
+
+    /**
+     * @return the number of bytes the calling thread has copied out of sparse buffers by
+     * {@link #reallocateIfNecessary(QpidByteBuffer)}
+     */
+    static long getReallocatedBytesOfCurrentThread()
+    {
+        return QpidByteBufferFactory.getReallocatedBytesOfCurrentThread();
+    }
+
     static int getNumberOfBuffersInUse()
     {
         return QpidByteBufferFactory.getNumberOfBuffersInUse();
@@ -137,6 +151,31 @@ public interface QpidByteBuffer extends AutoCloseable
         return QpidByteBufferFactory.getNumberOfBuffersInPool();
     }
 
+    static int getNumberOfSmallBuffersInUse()
+    {
+        return QpidByteBufferFactory.getNumberOfSmallBuffersInUse();
+    }
+
+    static int getNumberOfSmallBuffersInPool()
+    {
+        return QpidByteBufferFactory.getNumberOfSmallBuffersInPool();
+    }
+
+    static List<Integer> getPooledBufferSizeClasses()
+    {
+        return QpidByteBufferFactory.getPooledBufferSizeClasses();
+    }
+
+    static int getNumberOfBuffersInUse(int sizeClass)
+    {
+        return QpidByteBufferFactory.getNumberOfBuffersInUse(sizeClass);
+    }
+
+    static int getNumberOfBuffersInPool(int sizeClass)
+    {
+        return QpidByteBufferFactory.getNumberOfBuffersInPool(sizeClass);
+    }
+
     static long getPooledBufferDisposalCounter()
     {
         return QpidByteBufferFactory.getPooledBufferDisposalCounter();
@@ -39,14 +39,34 @@ import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLException;
 
+/**
+ * Creates {@link QpidByteBuffer}s, pooling direct buffers once {@link #initialisePool(int, int, double)} is called.
+ * <p>
+ * Direct buffers are pooled in size classes: the pooled buffer size and successive halvings of it down to
+ * {@link #MINIMUM_SIZE_CLASS}. An allocation is served by a buffer of the smallest class that fits it. As that
+ * buffer is always more than half claimed, the allocation is not considered sparse for sparsity fractions up to
+ * one half. Allocations smaller than the smallest class are carved out of a thread local buffer of the smallest
+ * class, and allocations larger than the pooled buffer size are made up of fragments of the pooled buffer size.
+ * <p>
+ * The maximum pool size is shared between the size classes: half of it is given to the pooled buffer size, and the
+ * memory of the other half is split evenly across the smaller classes, so that pooled memory never exceeds
+ * {@code maxPoolSize * bufferSize}.
+ */
 final class QpidByteBufferFactory
 {
+    static final int MINIMUM_SIZE_CLASS = 4096;
+
     private static final ByteBuffer[] EMPTY_BYTE_BUFFER_ARRAY = new ByteBuffer[0];
     private static final QpidByteBuffer EMPTY_QPID_BYTE_BUFFER = QpidByteBuffer.wrap(new byte[0]);
     private static final ThreadLocal<SingleQpidByteBuffer> _cachedBuffer = new ThreadLocal<>();
+    /** bytes copied by {@link #reallocateIfNecessary(QpidByteBuffer)} on each thread */
+    private static final ThreadLocal<long[]> _reallocatedBytes = ThreadLocal.withInitial(() -> new long[1]);
     private volatile static boolean _isPoolInitialized;
     private volatile static BufferPool _bufferPool;
+    /** pools ordered by ascending buffer size, the last being {@link #_bufferPool} */
+    private volatile static BufferPool[] _sizeClassPools;
     private volatile static int _pooledBufferSize;
+    private volatile static int _maxPoolSize;
     private volatile static double _sparsityFraction;
     private volatile static ByteBuffer _zeroed;
 
@@ -294,7 +314,7 @@ final class QpidByteBufferFactory
     static void initialisePool(int bufferSize, int maxPoolSize, double sparsityFraction)
     {
         if (_isPoolInitialized && (bufferSize != _pooledBufferSize
-                                                       || maxPoolSize != _bufferPool.getMaxSize()
+                                                       || maxPoolSize != _maxPoolSize
                                                        || sparsityFraction != _sparsityFraction))
         {
             final String errorMessage = String.format(
@@ -302,7 +322,7 @@ final class QpidByteBufferFactory
                     +
                     "Re-initialisation with different bufferSize=%d and maxPoolSize=%d is not allowed.",
                     _pooledBufferSize,
-                    _bufferPool.getMaxSize(),
+                    _maxPoolSize,
                     _sparsityFraction,
                     bufferSize,
                     maxPoolSize);
@@ -313,8 +333,25 @@ final class QpidByteBufferFactory
             throw new IllegalArgumentException("Negative or zero bufferSize illegal : " + bufferSize);
         }
 
-        _bufferPool = new BufferPool(maxPoolSize);
+        final List<Integer> smallerSizeClasses = new ArrayList<>();
+        for (int sizeClass = bufferSize / 2; sizeClass >= MINIMUM_SIZE_CLASS; sizeClass /= 2)
+        {
+            smallerSizeClasses.add(0, sizeClass);
+        }
+
+        final List<BufferPool> sizeClassPools = new ArrayList<>();
+        final int smallerSizeClassesShare = smallerSizeClasses.isEmpty() ? 0 : maxPoolSize / 2;
+        for (int sizeClass : smallerSizeClasses)
+        {
+            final long bytesPerSizeClass = (long) smallerSizeClassesShare * bufferSize / smallerSizeClasses.size();
+            sizeClassPools.add(new BufferPool(sizeClass, (int) (bytesPerSizeClass / sizeClass)));
+        }
+        _bufferPool = new BufferPool(bufferSize, maxPoolSize - smallerSizeClassesShare);
+        sizeClassPools.add(_bufferPool);
+
+        _sizeClassPools = sizeClassPools.toArray(new BufferPool[sizeClassPools.size()]);
         _pooledBufferSize = bufferSize;
+        _maxPoolSize = maxPoolSize;
         _zeroed = ByteBuffer.allocateDirect(_pooledBufferSize);
         _sparsityFraction = sparsityFraction;
         _isPoolInitialized = true;
@@ -327,14 +364,15 @@ final class QpidByteBufferFactory
     {
         if (_isPoolInitialized)
         {
-            SingleQpidByteBuffer singleQpidByteBuffer = _cachedBuffer.get();
-            if (singleQpidByteBuffer != null)
+            releaseThreadLocalBuffers();
+            for (BufferPool pool : getSizeClassPools())
             {
-                singleQpidByteBuffer.dispose();
-                _cachedBuffer.remove();
+                pool.releaseAllBuffers();
             }
             _bufferPool = null;
+            _sizeClassPools = null;
             _pooledBufferSize = -1;
+            _maxPoolSize = 0;
             _isPoolInitialized = false;
             _sparsityFraction = 1.0;
             _zeroed = null;
@@ -342,7 +380,7 @@ final class QpidByteBufferFactory
     }
 
 
-    static void returnToPool(final ByteBuffer buffer)
+    static void returnToPool(final ByteBuffer buffer, final BufferPool pool)
     {
         buffer.clear();
         if (_isPoolInitialized)
@@ -350,7 +388,7 @@ final class QpidByteBufferFactory
             final ByteBuffer duplicate = _zeroed.duplicate();
             duplicate.limit(buffer.capacity());
             buffer.put(duplicate);
-            _bufferPool.returnBuffer(buffer);
+            pool.returnBuffer(buffer);
         }
     }
 
@@ -366,17 +404,118 @@ final class QpidByteBufferFactory
 
     static long getAllocatedDirectMemorySize()
     {
-        return (long)_pooledBufferSize * getNumberOfBuffersInUse();
+        long size = 0L;
+        for (BufferPool pool : getSizeClassPools())
+        {
+            size += (long) pool.getBufferSize() * pool.getNumberOfBuffersInUse();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the size of the allocated pooled direct memory that is not claimed by any live buffer.
+     */
+    static long getFragmentedDirectMemorySize()
+    {
+        return Math.max(0L, getAllocatedDirectMemorySize() - PooledByteBufferRef.getClaimedSize());
     }
 
     static int getNumberOfBuffersInUse()
     {
-        return PooledByteBufferRef.getActiveBufferCount();
+        int count = 0;
+        for (BufferPool pool : getSizeClassPools())
+        {
+            count += pool.getNumberOfBuffersInUse();
+        }
+        return count;
     }
 
     static int getNumberOfBuffersInPool()
     {
-        return _bufferPool.size();
+        int count = 0;
+        for (BufferPool pool : getSizeClassPools())
+        {
+            count += pool.size();
+        }
+        return count;
+    }
+
+    static int getNumberOfSmallBuffersInUse()
+    {
+        return getNumberOfBuffersInUse() - getNumberOfBuffersInUse(_pooledBufferSize);
+    }
+
+    static int getNumberOfSmallBuffersInPool()
+    {
+        return getNumberOfBuffersInPool() - getNumberOfBuffersInPool(_pooledBufferSize);
+    }
+
+    static List<Integer> getPooledBufferSizeClasses()
+    {
+        final List<Integer> sizeClasses = new ArrayList<>();
+        for (BufferPool pool : getSizeClassPools())
+        {
+            sizeClasses.add(pool.getBufferSize());
+        }
+        return sizeClasses;
+    }
+
+    static int getNumberOfBuffersInUse(int sizeClass)
+    {
+        final BufferPool pool = getSizeClassPool(sizeClass);
+        return pool == null ? 0 : pool.getNumberOfBuffersInUse();
+    }
+
+    static int getNumberOfBuffersInPool(int sizeClass)
+    {
+        final BufferPool pool = getSizeClassPool(sizeClass);
+        return pool == null ? 0 : pool.size();
+    }
+
+    private static BufferPool[] getSizeClassPools()
+    {
+        final BufferPool[] sizeClassPools = _sizeClassPools;
+        return sizeClassPools == null ? new BufferPool[0] : sizeClassPools;
+    }
+
+    private static BufferPool getSizeClassPool(int sizeClass)
+    {
+        for (BufferPool pool : getSizeClassPools())
+        {
+            if (pool.getBufferSize() == sizeClass)
+            {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index of the pool of the smallest size class that can hold the given size, or the index of the
+     * largest pool if the size exceeds all size classes.
+     */
+    private static int indexOfSizeClass(final BufferPool[] sizeClassPools, final int size)
+    {
+        int index = 0;
+        while (index < sizeClassPools.length - 1 && sizeClassPools[index].getBufferSize() < size)
+        {
+            index++;
+        }
+        return index;
+    }
+
+    private static void releaseThreadLocalBuffers()
+    {
+        final SingleQpidByteBuffer cachedThreadLocalBuffer = _cachedBuffer.get();
+        if (cachedThreadLocalBuffer != null)
+        {
+            cachedThreadLocalBuffer.dispose();
+            _cachedBuffer.remove();
+        }
+        for (BufferPool pool : getSizeClassPools())
+        {
+            pool.releaseThreadLocalBuffers();
+        }
     }
 
     static long getPooledBufferDisposalCounter()
@@ -392,6 +531,7 @@ final class QpidByteBufferFactory
             newBuf.put(data);
             newBuf.flip();
             data.dispose();
+            _reallocatedBytes.get()[0] += newBuf.remaining();
             return newBuf;
         }
         else
@@ -400,6 +540,11 @@ final class QpidByteBufferFactory
         }
     }
 
+    static long getReallocatedBytesOfCurrentThread()
+    {
+        return _reallocatedBytes.get()[0];
+    }
+
     static QpidByteBuffer concatenate(List<QpidByteBuffer> buffers)
     {
         final List<SingleQpidByteBuffer> fragments = new ArrayList<>(buffers.size());
@@ -465,12 +610,7 @@ final class QpidByteBufferFactory
             }
             finally
             {
-                final SingleQpidByteBuffer cachedThreadLocalBuffer = _cachedBuffer.get();
-                if (cachedThreadLocalBuffer != null)
-                {
-                    cachedThreadLocalBuffer.dispose();
-                    _cachedBuffer.remove();
-                }
+                releaseThreadLocalBuffers();
             }
         });
     }
@@ -485,16 +625,26 @@ final class QpidByteBufferFactory
         }
 
         final ByteBufferRef ref;
-        if (_isPoolInitialized && _pooledBufferSize >= size)
+        final BufferPool[] sizeClassPools = _sizeClassPools;
+        if (_isPoolInitialized && sizeClassPools != null && _pooledBufferSize >= size)
         {
-            if (_pooledBufferSize == size)
+            final BufferPool smallestPool = sizeClassPools[0];
+            if (size >= smallestPool.getBufferSize())
             {
-                ByteBuffer buf = _bufferPool.getBuffer();
+                final BufferPool pool = sizeClassPools[indexOfSizeClass(sizeClassPools, size)];
+                ByteBuffer buf = pool.getBuffer();
                 if (buf == null)
                 {
-                    buf = ByteBuffer.allocateDirect(size);
+                    buf = ByteBuffer.allocateDirect(pool.getBufferSize());
+                }
+                ref = new PooledByteBufferRef(buf, pool);
+                if (size < pool.getBufferSize())
+                {
+                    final SingleQpidByteBuffer whole = new SingleQpidByteBuffer(ref);
+                    final SingleQpidByteBuffer rVal = whole.view(0, size);
+                    whole.dispose();
+                    return rVal;
                 }
-                ref = new PooledByteBufferRef(buf);
             }
             else
             {
@@ -505,7 +655,7 @@ final class QpidByteBufferFactory
                     {
                         buf.dispose();
                     }
-                    buf = allocateDirectSingle(_pooledBufferSize);
+                    buf = allocateDirectSingle(smallestPool.getBufferSize());
                     _cachedBuffer.set(buf);
                 }
                 SingleQpidByteBuffer rVal = buf.view(0, size);
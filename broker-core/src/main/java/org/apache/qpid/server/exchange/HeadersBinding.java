@@ -128,7 +128,40 @@ class HeadersBinding
 
     public boolean matches(Filterable message)
     {
-        return matches(message.getMessageHeader()) && (_filter == null || _filter.allAllow(message));
+        return matches(message.getMessageHeader()) && matchesFilter(message);
+    }
+
+    boolean hasFilter()
+    {
+        return _filter != null;
+    }
+
+    boolean matchesFilter(Filterable message)
+    {
+        return _filter == null || _filter.allAllow(message);
+    }
+
+    boolean isMatchAny()
+    {
+        return matchAny;
+    }
+
+    Set<String> getRequiredHeaders()
+    {
+        return Collections.unmodifiableSet(required);
+    }
+
+    Map<String, Object> getMatchedHeaderValues()
+    {
+        return Collections.unmodifiableMap(matches);
+    }
+
+    /**
+     * @return the number of header names this binding constrains, either on presence or on value
+     */
+    int getTermCount()
+    {
+        return required.size() + matches.size();
     }
 
     private boolean and(AMQMessageHeader headers)
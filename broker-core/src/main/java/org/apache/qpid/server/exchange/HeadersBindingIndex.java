@@ -0,0 +1,251 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+
+/**
+ * Index over the {@link HeadersBinding}s of a headers exchange.
+ * <p>
+ * Each binding is registered against the header names it refers to: names bound with no value are held in a
+ * presence posting list, names bound with a value are held in a hash of value to bindings. Matching a message
+ * only inspects the header names known to the index, so its cost depends on the number of distinct bound header
+ * names and on the number of bindings that actually share a term with the message, rather than on the total
+ * number of bindings.
+ * <p>
+ * A binding with {@code x-match=any} matches as soon as one of its terms is hit. A binding with
+ * {@code x-match=all} matches once all of its terms have been hit; as each message header name is visited at most
+ * once, counting the hits is sufficient. Bindings without any header terms match every message.
+ * <p>
+ * Modifications are serialised on the index whereas matching is lock free. A binding that is being added or
+ * removed concurrently with a match may or may not be considered by that match.
+ */
+final class HeadersBindingIndex
+{
+    private final ConcurrentMap<AbstractExchange.BindingIdentifier, HeadersBinding> _bindings =
+            new ConcurrentHashMap<>();
+    private final Set<HeadersBinding> _unconditionalBindings = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final ConcurrentMap<String, HeaderPostings> _postings = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the binding to the index, replacing any binding with the same identifier.
+     */
+    synchronized void add(final HeadersBinding binding)
+    {
+        final HeadersBinding previous = _bindings.put(binding.getBinding(), binding);
+        if (previous != null)
+        {
+            deindex(previous);
+        }
+
+        if (binding.getTermCount() == 0)
+        {
+            _unconditionalBindings.add(binding);
+        }
+        else
+        {
+            for (String name : binding.getRequiredHeaders())
+            {
+                _postings.computeIfAbsent(name, n -> new HeaderPostings()).addPresence(binding);
+            }
+            for (Map.Entry<String, Object> entry : binding.getMatchedHeaderValues().entrySet())
+            {
+                _postings.computeIfAbsent(entry.getKey(), n -> new HeaderPostings()).addValue(entry.getValue(), binding);
+            }
+        }
+    }
+
+    synchronized void remove(final AbstractExchange.BindingIdentifier bindingIdentifier)
+    {
+        final HeadersBinding binding = _bindings.remove(bindingIdentifier);
+        if (binding != null)
+        {
+            deindex(binding);
+        }
+    }
+
+    int size()
+    {
+        return _bindings.size();
+    }
+
+    Collection<HeadersBinding> getBindings()
+    {
+        return Collections.unmodifiableCollection(_bindings.values());
+    }
+
+    /**
+     * Returns the bindings whose header criteria are satisfied by the given headers. Any filter associated with a
+     * returned binding is not evaluated.
+     */
+    List<HeadersBinding> match(final AMQMessageHeader headers)
+    {
+        final List<HeadersBinding> matched = new ArrayList<>(_unconditionalBindings);
+        if (headers == null || _postings.isEmpty())
+        {
+            return matched;
+        }
+
+        Map<HeadersBinding, int[]> hitCounts = null;
+        for (Map.Entry<String, HeaderPostings> entry : _postings.entrySet())
+        {
+            final String name = entry.getKey();
+            if (headers.containsHeader(name))
+            {
+                final HeaderPostings postings = entry.getValue();
+                hitCounts = hit(postings.getPresence(), matched, hitCounts);
+
+                final Object value = headers.getHeader(name);
+                if (value != null)
+                {
+                    final Set<HeadersBinding> valueBindings = postings.getValueBindings(value);
+                    if (valueBindings != null)
+                    {
+                        hitCounts = hit(valueBindings, matched, hitCounts);
+                    }
+                }
+            }
+        }
+        return matched;
+    }
+
+    private Map<HeadersBinding, int[]> hit(final Set<HeadersBinding> bindings,
+                                           final List<HeadersBinding> matched,
+                                           Map<HeadersBinding, int[]> hitCounts)
+    {
+        for (HeadersBinding binding : bindings)
+        {
+            final int termCount = binding.getTermCount();
+            if (termCount == 1)
+            {
+                matched.add(binding);
+            }
+            else
+            {
+                if (hitCounts == null)
+                {
+                    hitCounts = new HashMap<>();
+                }
+                final int[] count = hitCounts.computeIfAbsent(binding, b -> new int[1]);
+                count[0]++;
+                if (binding.isMatchAny() ? count[0] == 1 : count[0] == termCount)
+                {
+                    matched.add(binding);
+                }
+            }
+        }
+        return hitCounts;
+    }
+
+    private void deindex(final HeadersBinding binding)
+    {
+        if (binding.getTermCount() == 0)
+        {
+            _unconditionalBindings.remove(binding);
+        }
+        else
+        {
+            for (String name : binding.getRequiredHeaders())
+            {
+                final HeaderPostings postings = _postings.get(name);
+                if (postings != null && postings.removePresence(binding))
+                {
+                    _postings.remove(name);
+                }
+            }
+            for (Map.Entry<String, Object> entry : binding.getMatchedHeaderValues().entrySet())
+            {
+                final HeaderPostings postings = _postings.get(entry.getKey());
+                if (postings != null && postings.removeValue(entry.getValue(), binding))
+                {
+                    _postings.remove(entry.getKey());
+                }
+            }
+        }
+    }
+
+    private static final class HeaderPostings
+    {
+        private final Set<HeadersBinding> _presence = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        private final ConcurrentMap<Object, Set<HeadersBinding>> _values = new ConcurrentHashMap<>();
+
+        Set<HeadersBinding> getPresence()
+        {
+            return _presence;
+        }
+
+        Set<HeadersBinding> getValueBindings(final Object value)
+        {
+            return _values.get(value);
+        }
+
+        void addPresence(final HeadersBinding binding)
+        {
+            _presence.add(binding);
+        }
+
+        void addValue(final Object value, final HeadersBinding binding)
+        {
+            _values.computeIfAbsent(value, v -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(binding);
+        }
+
+        /**
+         * @return true if no bindings remain
+         */
+        boolean removePresence(final HeadersBinding binding)
+        {
+            _presence.remove(binding);
+            return isEmpty();
+        }
+
+        /**
+         * @return true if no bindings remain
+         */
+        boolean removeValue(final Object value, final HeadersBinding binding)
+        {
+            final Set<HeadersBinding> bindings = _values.get(value);
+            if (bindings != null)
+            {
+                bindings.remove(binding);
+                if (bindings.isEmpty())
+                {
+                    _values.remove(value);
+                }
+            }
+            return isEmpty();
+        }
+
+        private boolean isEmpty()
+        {
+            return _presence.isEmpty() && _values.isEmpty();
+        }
+    }
+}
@@ -20,10 +20,7 @@
  */
 package org.apache.qpid.server.exchange;
 
-import java.util.Collections;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,7 +67,7 @@ public class HeadersExchangeImpl extends AbstractExchange<HeadersExchangeImpl> i
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HeadersExchangeImpl.class);
 
-    private final Set<HeadersBinding> _bindingHeaderMatchers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final HeadersBindingIndex _bindingHeaderMatchers = new HeadersBindingIndex();
 
     @ManagedObjectFactoryConstructor
     public HeadersExchangeImpl(final Map<String, Object> attributes, final QueueManagingVirtualHost<?> vhost)
@@ -86,9 +83,15 @@ public class HeadersExchangeImpl extends AbstractExchange<HeadersExchangeImpl> i
     {
         LOGGER.debug("Exchange {}: routing message with headers {}", getName(), payload.getMessageHeader());
 
-        for (HeadersBinding hb : _bindingHeaderMatchers)
+        Filterable filterable = null;
+        for (HeadersBinding hb : _bindingHeaderMatchers.match(payload.getMessageHeader()))
         {
-            if (hb.matches(Filterable.Factory.newInstance(payload,instanceProperties)))
+            if (hb.hasFilter() && filterable == null)
+            {
+                filterable = Filterable.Factory.newInstance(payload, instanceProperties);
+            }
+
+            if (hb.matchesFilter(filterable))
             {
                 MessageDestination destination = hb.getBinding().getDestination();
 
@@ -121,14 +124,7 @@ public class HeadersExchangeImpl extends AbstractExchange<HeadersExchangeImpl> i
     @Override
     protected void onUnbind(final BindingIdentifier binding)
     {
-        try
-        {
-            _bindingHeaderMatchers.remove(new HeadersBinding(binding, Collections.emptyMap()));
-        }
-        catch (AMQInvalidArgumentException e)
-        {
-            // ignore
-        }
+        _bindingHeaderMatchers.remove(binding);
     }
 
 }
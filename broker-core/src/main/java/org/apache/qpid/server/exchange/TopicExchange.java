@@ -22,10 +22,42 @@ package org.apache.qpid.server.exchange;
 
 import org.apache.qpid.server.exchange.ExchangeDefaults;
 import org.apache.qpid.server.model.Exchange;
+import org.apache.qpid.server.model.ManagedContextDefault;
 import org.apache.qpid.server.model.ManagedObject;
+import org.apache.qpid.server.model.ManagedStatistic;
+import org.apache.qpid.server.model.StatisticType;
+import org.apache.qpid.server.model.StatisticUnit;
 
 @ManagedObject( category = false, type = ExchangeDefaults.TOPIC_EXCHANGE_CLASS,
         amqpName = "org.apache.qpid.TopicExchange" )
 public interface TopicExchange<X extends TopicExchange<X>> extends Exchange<X>
 {
+    String TOPIC_EXCHANGE_ROUTING_CACHE_SIZE = "exchange.topic.routingCacheSize";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = TOPIC_EXCHANGE_ROUTING_CACHE_SIZE,
+            description = "Maximum number of routing keys for which a topic exchange caches the matched destinations."
+                          + " A value of zero disables the cache.")
+    int DEFAULT_TOPIC_EXCHANGE_ROUTING_CACHE_SIZE = 1000;
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Routing Cache Hits",
+                      description = "Number of messages routed using destinations cached for their routing key.")
+    long getRoutingCacheHits();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Routing Cache Misses",
+                      description = "Number of messages for which the destinations matching their routing key had to"
+                                    + " be computed.")
+    long getRoutingCacheMisses();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Matcher States",
+                      description = "Current number of states in the topic matching state machine, including states"
+                                    + " left behind by unbinds that have not yet been compacted.")
+    int getTopicMatcherStateCount();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.BYTES, label = "Matcher Footprint",
+                      description = "Estimated heap used by the topic matching state machine and its word dictionary.")
+    long getTopicMatcherFootprint();
 }
@@ -20,14 +20,19 @@
  */
 package org.apache.qpid.server.exchange;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,12 +62,30 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
 
     private final Map<BindingIdentifier, Map<String,Object>> _bindings = new HashMap<>();
 
+    private final AtomicLong _routingCacheHits = new AtomicLong();
+    private final AtomicLong _routingCacheMisses = new AtomicLong();
+
+    /** incremented after every change to the bindings, invalidating all cached routes */
+    private volatile long _bindingGeneration;
+    private volatile Cache<String, CachedRoute> _routingCache;
+
     @ManagedObjectFactoryConstructor
     public TopicExchangeImpl(final Map<String,Object> attributes, final QueueManagingVirtualHost<?> vhost)
     {
         super(attributes, vhost);
     }
 
+    @Override
+    protected void onOpen()
+    {
+        final int routingCacheSize = getContextValue(Integer.class, TOPIC_EXCHANGE_ROUTING_CACHE_SIZE);
+        if (routingCacheSize > 0)
+        {
+            _routingCache = CacheBuilder.newBuilder().maximumSize(routingCacheSize).build();
+        }
+        super.onOpen();
+    }
+
     @Override
     protected synchronized void onBindingUpdated(final BindingIdentifier binding, final Map<String, Object> newArguments)
             throws AMQInvalidArgumentException
@@ -76,8 +99,15 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
 
         if (_bindings.containsKey(binding))
         {
-            TopicExchangeResult result = _topicExchangeResults.get(routingKey);
-            updateTopicExchangeResult(result, binding, newArguments);
+            try
+            {
+                TopicExchangeResult result = _topicExchangeResults.get(routingKey);
+                updateTopicExchangeResult(result, binding, newArguments);
+            }
+            finally
+            {
+                _bindingGeneration++;
+            }
         }
     }
 
@@ -88,7 +118,21 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
 
         LOGGER.debug("Registering messageDestination {} with routing key {}", messageDestination.getName(), bindingKey);
 
-        String routingKey = TopicNormalizer.normalize(bindingKey);
+        try
+        {
+            addBinding(binding, arguments);
+        }
+        finally
+        {
+            _bindingGeneration++;
+        }
+    }
+
+    private void addBinding(final BindingIdentifier binding, final Map<String, Object> arguments)
+            throws AMQInvalidArgumentException
+    {
+        final MessageDestination messageDestination = binding.getDestination();
+        String routingKey = TopicNormalizer.normalize(binding.getBindingKey());
         TopicExchangeResult result = _topicExchangeResults.get(routingKey);
 
         if(_bindings.containsKey(binding))
@@ -137,7 +181,7 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
         final String routingKey = routingAddress == null ? "" : routingAddress;
 
         final Map<MessageDestination, Set<String>> matchedDestinations =
-                getMatchedDestinations(Filterable.Factory.newInstance(payload, instanceProperties), routingKey);
+                getMatchedDestinations(payload, instanceProperties, routingKey);
 
         if (!matchedDestinations.isEmpty())
         {
@@ -151,6 +195,18 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
 
 
     private synchronized boolean unbind(final BindingIdentifier binding)
+    {
+        try
+        {
+            return removeBinding(binding);
+        }
+        finally
+        {
+            _bindingGeneration++;
+        }
+    }
+
+    private boolean removeBinding(final BindingIdentifier binding)
     {
         if(_bindings.containsKey(binding))
         {
@@ -181,7 +237,11 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
                 result.removeUnfilteredDestination(binding.getDestination());
             }
 
-            // shall we delete the result from _topicExchangeResults if result is empty?
+            if (result.isEmpty())
+            {
+                _topicExchangeResults.remove(bindingKey);
+                _parser.removeBinding(bindingKey, result);
+            }
             return true;
         }
         else
@@ -190,23 +250,80 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
         }
     }
 
-    private Map<MessageDestination, Set<String>> getMatchedDestinations(final Filterable message,
+    private Map<MessageDestination, Set<String>> getMatchedDestinations(final ServerMessage<?> payload,
+                                                                        final InstanceProperties instanceProperties,
                                                                         final String routingKey)
     {
+        final CachedRoute route = getRoute(routingKey);
+        if (route.getFilteredResults().isEmpty())
+        {
+            return route.getUnfilteredDestinations();
+        }
+
+        final Map<MessageDestination, Set<String>> matchedDestinations = new HashMap<>();
+        for (Map.Entry<MessageDestination, Set<String>> entry : route.getUnfilteredDestinations().entrySet())
+        {
+            final Set<String> keys = entry.getValue();
+            matchedDestinations.put(entry.getKey(), keys.size() == 1 ? keys : new HashSet<>(keys));
+        }
+
+        final Filterable message = Filterable.Factory.newInstance(payload, instanceProperties);
+        for (TopicExchangeResult result : route.getFilteredResults())
+        {
+            result.processFilteredDestinations(message, matchedDestinations, routingKey);
+        }
+        return matchedDestinations;
+    }
+
+    private CachedRoute getRoute(final String routingKey)
+    {
+        final Cache<String, CachedRoute> routingCache = _routingCache;
+        if (routingCache != null)
+        {
+            final CachedRoute route = routingCache.getIfPresent(routingKey);
+            if (route != null && route.getGeneration() == _bindingGeneration)
+            {
+                _routingCacheHits.incrementAndGet();
+                return route;
+            }
+            _routingCacheMisses.incrementAndGet();
+        }
+
+        // the generation must be read before the bindings so that a concurrent change invalidates the new route
+        final long generation = _bindingGeneration;
         final Collection<TopicMatcherResult> results = _parser.parse(routingKey);
-        if (!results.isEmpty())
+        final CachedRoute route;
+        if (results.isEmpty())
         {
-            final Map<MessageDestination, Set<String>> matchedDestinations = new HashMap<>();
+            route = new CachedRoute(generation, Collections.emptyMap(), Collections.emptyList());
+        }
+        else
+        {
+            final Map<MessageDestination, Set<String>> unfilteredDestinations = new HashMap<>();
+            final List<TopicExchangeResult> filteredResults = new ArrayList<>();
             for (TopicMatcherResult result : results)
             {
                 if (result instanceof TopicExchangeResult)
                 {
-                    ((TopicExchangeResult) result).processMessage(message, matchedDestinations, routingKey);
+                    final TopicExchangeResult topicExchangeResult = (TopicExchangeResult) result;
+                    topicExchangeResult.collectUnfilteredDestinations(unfilteredDestinations, routingKey);
+                    if (topicExchangeResult.hasFilteredDestinations())
+                    {
+                        filteredResults.add(topicExchangeResult);
+                    }
                 }
             }
-            return matchedDestinations;
+            unfilteredDestinations.replaceAll((destination, keys) -> Collections.unmodifiableSet(keys));
+            route = new CachedRoute(generation,
+                                    Collections.unmodifiableMap(unfilteredDestinations),
+                                    filteredResults);
+        }
+
+        if (routingCache != null)
+        {
+            routingCache.put(routingKey, route);
         }
-        return Collections.emptyMap();
+        return route;
     }
 
     @Override
@@ -222,6 +339,30 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
         unbind(binding);
     }
 
+    @Override
+    public long getRoutingCacheHits()
+    {
+        return _routingCacheHits.get();
+    }
+
+    @Override
+    public long getRoutingCacheMisses()
+    {
+        return _routingCacheMisses.get();
+    }
+
+    @Override
+    public int getTopicMatcherStateCount()
+    {
+        return _parser.getStateCount();
+    }
+
+    @Override
+    public long getTopicMatcherFootprint()
+    {
+        return _parser.getEstimatedFootprint();
+    }
+
     private void updateTopicExchangeResult(final TopicExchangeResult result, final BindingIdentifier binding,
                                            final Map<String, Object> newArguments)
             throws AMQInvalidArgumentException
@@ -251,4 +392,34 @@ class TopicExchangeImpl extends AbstractExchange<TopicExchangeImpl> implements T
         result.addBinding(binding, newArguments);
     }
 
+    private static final class CachedRoute
+    {
+        private final long _generation;
+        private final Map<MessageDestination, Set<String>> _unfilteredDestinations;
+        private final Collection<TopicExchangeResult> _filteredResults;
+
+        private CachedRoute(final long generation,
+                            final Map<MessageDestination, Set<String>> unfilteredDestinations,
+                            final Collection<TopicExchangeResult> filteredResults)
+        {
+            _generation = generation;
+            _unfilteredDestinations = unfilteredDestinations;
+            _filteredResults = filteredResults;
+        }
+
+        private long getGeneration()
+        {
+            return _generation;
+        }
+
+        private Map<MessageDestination, Set<String>> getUnfilteredDestinations()
+        {
+            return _unfilteredDestinations;
+        }
+
+        private Collection<TopicExchangeResult> getFilteredResults()
+        {
+            return _filteredResults;
+        }
+    }
 }
@@ -76,6 +76,11 @@ public final class TopicExchangeResult implements TopicMatcherResult
         _replacementKeys.remove(binding.getDestination());
     }
 
+    public boolean isEmpty()
+    {
+        return _unfilteredDestinations.isEmpty() && _filteredDestinations.isEmpty();
+    }
+
     public void addFilteredDestination(MessageDestination destination, FilterManager filter)
     {
         Map<FilterManager, Integer> filters =
@@ -168,6 +173,21 @@ public final class TopicExchangeResult implements TopicMatcherResult
     public void processMessage(final Filterable msg,
                                final Map<MessageDestination, Set<String>> result,
                                final String routingKey)
+    {
+        collectUnfilteredDestinations(result, routingKey);
+        processFilteredDestinations(msg, result, routingKey);
+    }
+
+    public boolean hasFilteredDestinations()
+    {
+        return !_filteredDestinations.isEmpty();
+    }
+
+    /**
+     * Adds the destinations bound without a filter, which match any message routed with the given key.
+     */
+    public void collectUnfilteredDestinations(final Map<MessageDestination, Set<String>> result,
+                                              final String routingKey)
     {
         if (!_unfilteredDestinations.isEmpty())
         {
@@ -176,7 +196,16 @@ public final class TopicExchangeResult implements TopicMatcherResult
                 addMatch(unfilteredDestination, result, routingKey);
             }
         }
+    }
 
+    /**
+     * Adds the destinations bound with a filter which accepts the message, skipping those destinations that are
+     * also bound without a filter.
+     */
+    public void processFilteredDestinations(final Filterable msg,
+                                            final Map<MessageDestination, Set<String>> result,
+                                            final String routingKey)
+    {
         if (!_filteredDestinations.isEmpty())
         {
             for (Map.Entry<MessageDestination, Map<FilterManager, Integer>> entry : _filteredDestinations.entrySet())
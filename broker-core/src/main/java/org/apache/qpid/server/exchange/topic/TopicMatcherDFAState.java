@@ -309,4 +309,9 @@ public class TopicMatcherDFAState
     {
         return _id;
     }
+
+    Collection<TopicMatcherDFAState> getNextStates()
+    {
+        return _nextStateMap.values();
+    }
 }
@@ -20,22 +20,98 @@
  */
 package org.apache.qpid.server.exchange.topic;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Matches routing keys against topic binding keys using a deterministic state machine.
+ * <p>
+ * Adding a binding merges the state machine for that binding into the current one. Removing a binding only
+ * takes it out of the registry of live bindings: the state machine keeps accepting the removed result until it is
+ * compacted, at which point it is rebuilt from the live bindings together with a fresh word dictionary. Compaction
+ * happens once the number of removals since the previous compaction reaches the number of live bindings, so that
+ * its cost is amortised over the removals. Callers are expected to tolerate stale results in the meantime.
+ */
 public class TopicParser
 {
     private static final String TOPIC_DELIMITER = "\\.";
 
-    private final TopicWordDictionary _dictionary = new TopicWordDictionary();
-    private final AtomicReference<TopicMatcherDFAState> _stateMachine = new AtomicReference<>();
+    private static final int STATE_FOOTPRINT_ESTIMATE = 96;
+    private static final int TRANSITION_FOOTPRINT_ESTIMATE = 40;
+    private static final int WORD_FOOTPRINT_ESTIMATE = 96;
+
+    private final AtomicReference<Matcher> _matcher = new AtomicReference<>(new Matcher(new TopicWordDictionary(), null));
+    private final Map<String, Set<TopicMatcherResult>> _bindings = new HashMap<>();
+    private int _bindingCount;
+    private int _removalsSinceCompaction;
+
+    private static final class Matcher
+    {
+        private final TopicWordDictionary _dictionary;
+        private final TopicMatcherDFAState _stateMachine;
+        private volatile MatcherStatistics _statistics;
+
+        private Matcher(final TopicWordDictionary dictionary, final TopicMatcherDFAState stateMachine)
+        {
+            _dictionary = dictionary;
+            _stateMachine = stateMachine;
+        }
+
+        private MatcherStatistics getStatistics()
+        {
+            MatcherStatistics statistics = _statistics;
+            if (statistics == null)
+            {
+                statistics = new MatcherStatistics(_stateMachine);
+                _statistics = statistics;
+            }
+            return statistics;
+        }
+    }
+
+    private static final class MatcherStatistics
+    {
+        private final int _stateCount;
+        private final int _transitionCount;
+
+        private MatcherStatistics(final TopicMatcherDFAState stateMachine)
+        {
+            int stateCount = 0;
+            int transitionCount = 0;
+            if (stateMachine != null)
+            {
+                final Set<TopicMatcherDFAState> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+                final Deque<TopicMatcherDFAState> pending = new ArrayDeque<>();
+                visited.add(stateMachine);
+                pending.add(stateMachine);
+                while (!pending.isEmpty())
+                {
+                    final TopicMatcherDFAState state = pending.poll();
+                    stateCount++;
+                    for (TopicMatcherDFAState next : state.getNextStates())
+                    {
+                        transitionCount++;
+                        if (visited.add(next))
+                        {
+                            pending.add(next);
+                        }
+                    }
+                }
+            }
+            _stateCount = stateCount;
+            _transitionCount = transitionCount;
+        }
+    }
 
     private static class Position
     {
@@ -95,46 +171,127 @@ public class TopicParser
     }
 
 
-    public void addBinding(String bindingKey, TopicMatcherResult result)
+    public synchronized void addBinding(String bindingKey, TopicMatcherResult result)
     {
+        if (_bindings.computeIfAbsent(bindingKey, key -> new HashSet<>()).add(result))
+        {
+            _bindingCount++;
+        }
+
+        final Matcher matcher = _matcher.get();
+        final TopicMatcherDFAState bindingStateMachine =
+                createStateMachine(matcher._dictionary, bindingKey, result);
+        final TopicMatcherDFAState newStateMachine = matcher._stateMachine == null
+                ? bindingStateMachine
+                : matcher._stateMachine.mergeStateMachines(bindingStateMachine);
+        _matcher.set(new Matcher(matcher._dictionary, newStateMachine));
+    }
+
+    /**
+     * Removes the binding from the set of live bindings. The removed result may continue to be returned by
+     * {@link #parse(String)} until the state machine is next compacted.
+     *
+     * @return true if the binding was registered
+     */
+    public synchronized boolean removeBinding(String bindingKey, TopicMatcherResult result)
+    {
+        final Set<TopicMatcherResult> results = _bindings.get(bindingKey);
+        if (results == null || !results.remove(result))
+        {
+            return false;
+        }
+        if (results.isEmpty())
+        {
+            _bindings.remove(bindingKey);
+        }
+        _bindingCount--;
+        _removalsSinceCompaction++;
 
-        TopicMatcherDFAState startingStateMachine;
-        TopicMatcherDFAState newStateMachine;
+        if (_removalsSinceCompaction >= _bindingCount)
+        {
+            compact();
+        }
+        return true;
+    }
 
-        do
+    /**
+     * Rebuilds the state machine and the word dictionary from the live bindings, discarding the states and the
+     * words only reachable from removed bindings.
+     */
+    public synchronized void compact()
+    {
+        final TopicWordDictionary dictionary = new TopicWordDictionary();
+        final List<TopicMatcherDFAState> stateMachines = new ArrayList<>(_bindingCount);
+        for (Map.Entry<String, Set<TopicMatcherResult>> entry : _bindings.entrySet())
         {
-            startingStateMachine = _stateMachine.get();
-            if(startingStateMachine == null)
+            for (TopicMatcherResult result : entry.getValue())
             {
-                newStateMachine = createStateMachine(bindingKey, result);
+                stateMachines.add(createStateMachine(dictionary, entry.getKey(), result));
             }
-            else
+        }
+
+        // merge pairwise so that each binding takes part in a logarithmic number of merges
+        while (stateMachines.size() > 1)
+        {
+            final List<TopicMatcherDFAState> merged = new ArrayList<>((stateMachines.size() + 1) / 2);
+            for (int i = 0; i < stateMachines.size(); i += 2)
             {
-                newStateMachine = startingStateMachine.mergeStateMachines(createStateMachine(bindingKey, result));
+                merged.add(i + 1 < stateMachines.size()
+                                   ? stateMachines.get(i).mergeStateMachines(stateMachines.get(i + 1))
+                                   : stateMachines.get(i));
             }
-
+            stateMachines.clear();
+            stateMachines.addAll(merged);
         }
-        while(!_stateMachine.compareAndSet(startingStateMachine,newStateMachine));
 
+        _matcher.set(new Matcher(dictionary, stateMachines.isEmpty() ? null : stateMachines.get(0)));
+        _removalsSinceCompaction = 0;
     }
 
     public Collection<TopicMatcherResult> parse(String routingKey)
     {
-        TopicMatcherDFAState stateMachine = _stateMachine.get();
-        if(stateMachine == null)
+        final Matcher matcher = _matcher.get();
+        if(matcher._stateMachine == null)
         {
             return Collections.emptySet();
         }
         else
         {
-            return stateMachine.parse(_dictionary,routingKey);
+            return matcher._stateMachine.parse(matcher._dictionary, routingKey);
         }
     }
 
+    public synchronized int getBindingCount()
+    {
+        return _bindingCount;
+    }
+
+    /**
+     * @return the number of states reachable in the current state machine, including states only reachable from
+     * removed bindings which have not yet been compacted
+     */
+    public int getStateCount()
+    {
+        return _matcher.get().getStatistics()._stateCount;
+    }
+
+    /**
+     * @return an estimate, in bytes, of the heap held by the current state machine and its word dictionary
+     */
+    public long getEstimatedFootprint()
+    {
+        final Matcher matcher = _matcher.get();
+        final MatcherStatistics statistics = matcher.getStatistics();
+        return (long) statistics._stateCount * STATE_FOOTPRINT_ESTIMATE
+               + (long) statistics._transitionCount * TRANSITION_FOOTPRINT_ESTIMATE
+               + (long) matcher._dictionary.size() * WORD_FOOTPRINT_ESTIMATE;
+    }
 
-    private TopicMatcherDFAState createStateMachine(String bindingKey, TopicMatcherResult result)
+    private TopicMatcherDFAState createStateMachine(TopicWordDictionary dictionary,
+                                                    String bindingKey,
+                                                    TopicMatcherResult result)
     {
-        List<TopicWord> wordList = createTopicWordList(bindingKey);
+        List<TopicWord> wordList = createTopicWordList(dictionary, bindingKey);
         int wildCards = 0;
         for(TopicWord word : wordList)
         {
@@ -419,7 +576,7 @@ public class TopicParser
 
     }
 
-    private List<TopicWord> createTopicWordList(final String bindingKey)
+    private List<TopicWord> createTopicWordList(final TopicWordDictionary dictionary, final String bindingKey)
     {
         String[] tokens = bindingKey.split(TOPIC_DELIMITER);
         TopicWord previousWord = null;
@@ -428,7 +585,7 @@ public class TopicParser
 
         for(String token : tokens)
         {
-            TopicWord nextWord = _dictionary.getOrCreateWord(token);
+            TopicWord nextWord = dictionary.getOrCreateWord(token);
             if(previousWord == TopicWord.WILDCARD_WORD)
             {
 
@@ -45,6 +45,11 @@ public class TopicWordDictionary
     }
 
 
+    public int size()
+    {
+        return _dictionary.size();
+    }
+
     public TopicWord getWord(String name)
     {
         TopicWord word = _dictionary.get(name);
@@ -222,6 +222,11 @@ public abstract class ComparisonExpression<T> extends BinaryExpression<T> implem
         return UnaryExpression.createNOT(createEqual(left, right));
     }
 
+    public static boolean isEqual(Expression<?> expression)
+    {
+        return expression instanceof EqualExpression;
+    }
+
     public static <E> BooleanExpression<E> createEqual(Expression<E> left, Expression<E> right)
     {
         checkEqualOperand(left);
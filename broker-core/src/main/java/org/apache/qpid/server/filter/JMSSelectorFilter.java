@@ -34,15 +34,51 @@ public class JMSSelectorFilter implements MessageFilter
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(JMSSelectorFilter.class);
 
+    /**
+     * System property enabling the rewriting of selectors by the {@link SelectorCompiler}.
+     */
+    public static final String COMPILE_SELECTORS = "qpid.jms.compileSelectors";
+    private static final boolean IS_COMPILE_SELECTORS = Boolean.getBoolean(COMPILE_SELECTORS);
+
     private String _selector;
     private BooleanExpression _matcher;
+    private String _equalityPropertyName;
+    private String _equalityValue;
 
     public JMSSelectorFilter(String selector) throws ParseException, TokenMgrError, SelectorParsingException
+    {
+        this(selector, IS_COMPILE_SELECTORS);
+    }
+
+    JMSSelectorFilter(String selector, boolean compile) throws ParseException, TokenMgrError, SelectorParsingException
     {
         _selector = selector;
         SelectorParser<FilterableMessage> selectorParser = new SelectorParser<>();
         selectorParser.setPropertyExpressionFactory(JMSMessagePropertyExpression.FACTORY);
         _matcher = selectorParser.parse(selector);
+
+        if (ComparisonExpression.isEqual(_matcher))
+        {
+            BinaryExpression<?> equality = (BinaryExpression<?>) _matcher;
+            setEqualityTerms(equality.getLeft(), equality.getRight());
+            setEqualityTerms(equality.getRight(), equality.getLeft());
+        }
+
+        if (compile)
+        {
+            _matcher = SelectorCompiler.compile(_matcher);
+        }
+    }
+
+    private void setEqualityTerms(final Expression<?> property, final Expression<?> value)
+    {
+        if (property instanceof JMSMessagePropertyExpression
+            && value instanceof ConstantExpression
+            && ((ConstantExpression<?>) value).getValue() instanceof String)
+        {
+            _equalityPropertyName = ((JMSMessagePropertyExpression) property).getName();
+            _equalityValue = (String) ((ConstantExpression<?>) value).getValue();
+        }
     }
 
     @Override
@@ -74,6 +110,23 @@ public class JMSSelectorFilter implements MessageFilter
         return _selector;
     }
 
+    /**
+     * Returns the name of the message property if the selector does nothing but test that property for equality
+     * with a string literal, such as {@code colour = 'red'}, otherwise null.
+     */
+    public String getEqualityPropertyName()
+    {
+        return _equalityPropertyName;
+    }
+
+    /**
+     * Returns the string literal the property named by {@link #getEqualityPropertyName()} is compared with.
+     */
+    public String getEqualityValue()
+    {
+        return _equalityValue;
+    }
+
     @Override
     public boolean equals(final Object o)
     {
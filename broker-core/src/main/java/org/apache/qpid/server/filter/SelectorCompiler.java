@@ -0,0 +1,267 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ *
+ */
+package org.apache.qpid.server.filter;
+
+/**
+ * Rewrites a parsed selector into an equivalent expression that is cheaper to evaluate.
+ * <p>
+ * Comparisons of a message property with a numeric literal are replaced by nodes holding the literal as a primitive.
+ * Where the property value is an integral number and the literal is integral, or both are doubles, the comparison is
+ * made on primitives without the conversions the generic comparison allocates; any other value is handed to the
+ * original comparison. A conjunction of two such comparisons of the same property, as produced for
+ * {@code BETWEEN}, reads the property once. The logical operators of the original selector are kept so that the
+ * handling of unknown (null) results is unchanged. Expressions which cannot be improved are left as they are.
+ */
+public final class SelectorCompiler
+{
+    private SelectorCompiler()
+    {
+    }
+
+    public static <E> BooleanExpression<E> compile(final BooleanExpression<E> expression)
+    {
+        if (expression instanceof LogicExpression)
+        {
+            final LogicExpression<E> logic = (LogicExpression<E>) expression;
+            final BooleanExpression<E> left = compile((BooleanExpression<E>) logic.getLeft());
+            final BooleanExpression<E> right = compile((BooleanExpression<E>) logic.getRight());
+            if ("AND".equals(logic.getExpressionSymbol()))
+            {
+                if (left instanceof NumericComparison
+                    && right instanceof NumericComparison
+                    && ((NumericComparison<E>) left).hasSameProperty((NumericComparison<E>) right))
+                {
+                    return new NumericConjunction<>((NumericComparison<E>) left, (NumericComparison<E>) right);
+                }
+                return left == logic.getLeft() && right == logic.getRight()
+                        ? expression
+                        : LogicExpression.createAND(left, right);
+            }
+            else
+            {
+                return left == logic.getLeft() && right == logic.getRight()
+                        ? expression
+                        : LogicExpression.createOR(left, right);
+            }
+        }
+        else if (expression instanceof UnaryExpression.BooleanUnaryExpression
+                 && "NOT".equals(((UnaryExpression<E>) expression).getExpressionSymbol()))
+        {
+            final BooleanExpression<E> operand = (BooleanExpression<E>) ((UnaryExpression<E>) expression).getRight();
+            final BooleanExpression<E> compiled = compile(operand);
+            return compiled == operand ? expression : UnaryExpression.createNOT(compiled);
+        }
+        else if (expression instanceof ComparisonExpression)
+        {
+            final ComparisonExpression<E> comparison = (ComparisonExpression<E>) expression;
+            if (comparison.getLeft() instanceof PropertyExpression
+                && comparison.getRight() instanceof ConstantExpression)
+            {
+                final Object value = ((ConstantExpression<E>) comparison.getRight()).getValue();
+                final Operator operator = Operator.fromSymbol(comparison.getExpressionSymbol());
+                if (operator != null && (isIntegral(value) || value instanceof Double))
+                {
+                    return new NumericComparison<>(comparison, operator, (Number) value);
+                }
+            }
+        }
+        return expression;
+    }
+
+    private static boolean isIntegral(final Object value)
+    {
+        if (value == null)
+        {
+            return false;
+        }
+        final Class<?> clazz = value.getClass();
+        return clazz == Integer.class || clazz == Long.class || clazz == Short.class || clazz == Byte.class;
+    }
+
+    private enum Operator
+    {
+        EQUAL("=")
+        {
+            @Override
+            boolean test(final int comparison)
+            {
+                return comparison == 0;
+            }
+        },
+        GREATER_THAN(">")
+        {
+            @Override
+            boolean test(final int comparison)
+            {
+                return comparison > 0;
+            }
+        },
+        GREATER_THAN_OR_EQUAL(">=")
+        {
+            @Override
+            boolean test(final int comparison)
+            {
+                return comparison >= 0;
+            }
+        },
+        LESS_THAN("<")
+        {
+            @Override
+            boolean test(final int comparison)
+            {
+                return comparison < 0;
+            }
+        },
+        LESS_THAN_OR_EQUAL("<=")
+        {
+            @Override
+            boolean test(final int comparison)
+            {
+                return comparison <= 0;
+            }
+        };
+
+        private final String _symbol;
+
+        Operator(final String symbol)
+        {
+            _symbol = symbol;
+        }
+
+        abstract boolean test(int comparison);
+
+        static Operator fromSymbol(final String symbol)
+        {
+            for (Operator operator : values())
+            {
+                if (operator._symbol.equals(symbol))
+                {
+                    return operator;
+                }
+            }
+            return null;
+        }
+    }
+
+    static final class NumericComparison<E> implements BooleanExpression<E>
+    {
+        private final ComparisonExpression<E> _comparison;
+        private final Expression<E> _property;
+        private final Operator _operator;
+        private final boolean _integral;
+        private final long _longValue;
+        private final double _doubleValue;
+
+        private NumericComparison(final ComparisonExpression<E> comparison, final Operator operator, final Number value)
+        {
+            _comparison = comparison;
+            _property = comparison.getLeft();
+            _operator = operator;
+            _integral = isIntegral(value);
+            _longValue = value.longValue();
+            _doubleValue = value.doubleValue();
+        }
+
+        private boolean hasSameProperty(final NumericComparison<E> other)
+        {
+            return _property.equals(other._property);
+        }
+
+        @Override
+        public Object evaluate(final E message)
+        {
+            return evaluate(_property.evaluate(message), message);
+        }
+
+        private Object evaluate(final Object value, final E message)
+        {
+            if (value == null)
+            {
+                // equality with a non-null literal is false, the other comparisons are unknown
+                return _operator == Operator.EQUAL ? Boolean.FALSE : null;
+            }
+            else if (_integral && isIntegral(value))
+            {
+                return _operator.test(Long.compare(((Number) value).longValue(), _longValue)) ? Boolean.TRUE : Boolean.FALSE;
+            }
+            else if (!_integral && value.getClass() == Double.class)
+            {
+                return _operator.test(Double.compare((Double) value, _doubleValue)) ? Boolean.TRUE : Boolean.FALSE;
+            }
+            else
+            {
+                return _comparison.evaluate(message);
+            }
+        }
+
+        @Override
+        public boolean matches(final E message)
+        {
+            return evaluate(message) == Boolean.TRUE;
+        }
+
+        @Override
+        public String toString()
+        {
+            return _comparison.toString();
+        }
+    }
+
+    private static final class NumericConjunction<E> implements BooleanExpression<E>
+    {
+        private final NumericComparison<E> _left;
+        private final NumericComparison<E> _right;
+
+        private NumericConjunction(final NumericComparison<E> left, final NumericComparison<E> right)
+        {
+            _left = left;
+            _right = right;
+        }
+
+        @Override
+        public Object evaluate(final E message)
+        {
+            final Object value = _left._property.evaluate(message);
+            final Boolean left = (Boolean) _left.evaluate(value, message);
+            if (left == null)
+            {
+                return null;
+            }
+            if (!left)
+            {
+                return Boolean.FALSE;
+            }
+            return _right.evaluate(value, message);
+        }
+
+        @Override
+        public boolean matches(final E message)
+        {
+            return evaluate(message) == Boolean.TRUE;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "(" + _left + " AND " + _right + ")";
+        }
+    }
+}
@@ -32,6 +32,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.qpid.server.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.model.NamedAddressSpace;
+import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
@@ -54,6 +56,13 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
 
     private volatile ServerMessage.ValidationStatus _validationStatus = ServerMessage.ValidationStatus.UNKNOWN;
 
+    private static final AtomicReferenceFieldUpdater<AbstractServerMessageImpl, ConvertedMessageCache>
+            _convertedMessageCacheUpdater = AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class,
+                                                                                   ConvertedMessageCache.class,
+                                                                                   "_convertedMessageCache");
+    @SuppressWarnings("unused")
+    private volatile ConvertedMessageCache _convertedMessageCache;
+
     private static final AtomicReferenceFieldUpdater<AbstractServerMessageImpl, ServerMessage.ValidationStatus>
             _validationStatusUpdater = AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class,
                                                                               ServerMessage.ValidationStatus.class,
@@ -125,6 +134,7 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
                 if (updated)
                 {
                     _handle.remove();
+                    disposeConvertedMessages();
                 }
             }
             else
@@ -136,6 +146,73 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
         while (!updated);
     }
 
+    /**
+     * Returns this message converted by the given converter for the given address space. Whilst the content of this
+     * message is held in memory, the conversion is only performed on first use and is then shared with other
+     * callers. Callers must hold a reference to this message whilst using the converted message, must not dispose of
+     * it themselves, and must pass it to {@link #releaseConvertedMessage(ServerMessage)} once it has been sent.
+     */
+    public <N extends ServerMessage> N getConvertedMessage(final MessageConverter<? super X, N> converter,
+                                                           final NamedAddressSpace addressSpace)
+    {
+        ConvertedMessageCache cache = _convertedMessageCache;
+        if (cache == null)
+        {
+            _convertedMessageCacheUpdater.compareAndSet(this, null, new ConvertedMessageCache(this));
+            cache = _convertedMessageCache;
+            if (_refCountUpdater.get(this) < 0)
+            {
+                // the message was deleted concurrently and may have missed the newly created cache
+                cache.dispose();
+            }
+        }
+        return cache.getConvertedMessage((X) this, converter, addressSpace, _handle.isInContentInMemory());
+    }
+
+    /**
+     * Releases a converted message obtained from {@link #getConvertedMessage(MessageConverter, NamedAddressSpace)}.
+     * Conversions which are no longer shared, because this message has been flowed to disk, are disposed of on their
+     * last release.
+     */
+    public void releaseConvertedMessage(final ServerMessage<?> convertedMessage)
+    {
+        final ConvertedMessageCache cache = _convertedMessageCache;
+        if (cache != null)
+        {
+            cache.release(convertedMessage, _handle.isInContentInMemory());
+        }
+    }
+
+    /**
+     * Returns the size of the conversions of this message currently shared between consumers.
+     */
+    public long getConvertedMessagesSize()
+    {
+        final ConvertedMessageCache cache = _convertedMessageCache;
+        return cache == null ? 0L : cache.getSize();
+    }
+
+    /**
+     * Stops sharing the conversions of this message, typically because the message is being flowed to disk.
+     */
+    public void evictConvertedMessages()
+    {
+        final ConvertedMessageCache cache = _convertedMessageCache;
+        if (cache != null)
+        {
+            cache.evict();
+        }
+    }
+
+    private void disposeConvertedMessages()
+    {
+        final ConvertedMessageCache cache = _convertedMessageCache;
+        if (cache != null)
+        {
+            cache.dispose();
+        }
+    }
+
     public String debugIdentity()
     {
         return "(HC:" + System.identityHashCode(this) + " ID:" + getMessageNumber() + " Ref:" + getReferenceCount() + ")";
@@ -0,0 +1,214 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.message;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.qpid.server.model.NamedAddressSpace;
+import org.apache.qpid.server.plugin.MessageConverter;
+
+/**
+ * Holds the conversions of a message into the formats of other protocols, so that a message delivered to many
+ * consumers of another protocol is converted only once per format.
+ * <p>
+ * Each use of a conversion must be released once the converted message has been sent. Conversions are only shared
+ * whilst the content of the original message is held in memory: once the original has been flowed to disk they are
+ * evicted, and each is disposed of as soon as its last use is released. Conversions held by the cache, and the hits
+ * and misses of each lookup, are reported to address spaces implementing {@link ConvertedMessageSizeAccount}.
+ */
+public final class ConvertedMessageCache
+{
+    private final AbstractServerMessageImpl<?, ?> _message;
+    private final List<Conversion<?>> _cached = new ArrayList<>(1);
+    /** conversions no longer shared but still in use */
+    private final List<Conversion<?>> _evicted = new ArrayList<>(0);
+    private boolean _disposed;
+    private int _hits;
+    private int _misses;
+
+    ConvertedMessageCache(final AbstractServerMessageImpl<?, ?> message)
+    {
+        _message = message;
+    }
+
+    synchronized int getHitCount()
+    {
+        return _hits;
+    }
+
+    synchronized int getMissCount()
+    {
+        return _misses;
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <M extends ServerMessage, N extends ServerMessage> N getConvertedMessage(final M message,
+                                                                                        final MessageConverter<? super M, N> converter,
+                                                                                        final NamedAddressSpace addressSpace,
+                                                                                        final boolean shareable)
+    {
+        if (_disposed)
+        {
+            throw new MessageDeletedException(message.getMessageNumber());
+        }
+
+        if (shareable)
+        {
+            for (Conversion<?> conversion : _cached)
+            {
+                if (conversion._converter == converter && conversion._addressSpace == addressSpace)
+                {
+                    _hits++;
+                    if (addressSpace instanceof ConvertedMessageSizeAccount)
+                    {
+                        ((ConvertedMessageSizeAccount) addressSpace).convertedMessageCacheHit();
+                    }
+                    conversion._users++;
+                    return (N) conversion._convertedMessage;
+                }
+            }
+        }
+        else
+        {
+            evict();
+        }
+
+        _misses++;
+        if (addressSpace instanceof ConvertedMessageSizeAccount)
+        {
+            ((ConvertedMessageSizeAccount) addressSpace).convertedMessageCacheMiss();
+        }
+        final Conversion<N> conversion = new Conversion<>(converter, addressSpace, converter.convert(message, addressSpace));
+        conversion._users++;
+        if (shareable)
+        {
+            _cached.add(conversion);
+            account(conversion, conversion._size);
+        }
+        else
+        {
+            _evicted.add(conversion);
+        }
+        return conversion._convertedMessage;
+    }
+
+    synchronized void release(final ServerMessage<?> convertedMessage, final boolean shareable)
+    {
+        if (!shareable)
+        {
+            evict();
+        }
+
+        for (Conversion<?> conversion : _cached)
+        {
+            if (conversion._convertedMessage == convertedMessage)
+            {
+                conversion._users--;
+                return;
+            }
+        }
+
+        final Iterator<Conversion<?>> iterator = _evicted.iterator();
+        while (iterator.hasNext())
+        {
+            final Conversion<?> conversion = iterator.next();
+            if (conversion._convertedMessage == convertedMessage)
+            {
+                if (--conversion._users == 0)
+                {
+                    iterator.remove();
+                    conversion.dispose();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops sharing the cached conversions, disposing of those not currently in use.
+     */
+    synchronized void evict()
+    {
+        for (Conversion<?> conversion : _cached)
+        {
+            account(conversion, -conversion._size);
+            if (conversion._users == 0)
+            {
+                conversion.dispose();
+            }
+            else
+            {
+                _evicted.add(conversion);
+            }
+        }
+        _cached.clear();
+    }
+
+    synchronized long getSize()
+    {
+        long size = 0;
+        for (Conversion<?> conversion : _cached)
+        {
+            size += conversion._size;
+        }
+        return size;
+    }
+
+    synchronized void dispose()
+    {
+        _disposed = true;
+        evict();
+    }
+
+    private void account(final Conversion<?> conversion, final long delta)
+    {
+        if (conversion._addressSpace instanceof ConvertedMessageSizeAccount && delta != 0)
+        {
+            ((ConvertedMessageSizeAccount) conversion._addressSpace).convertedMessageSizeChanged(_message, delta);
+        }
+    }
+
+    private static final class Conversion<N extends ServerMessage>
+    {
+        private final MessageConverter<?, N> _converter;
+        private final NamedAddressSpace _addressSpace;
+        private final N _convertedMessage;
+        private final long _size;
+        private int _users;
+
+        private Conversion(final MessageConverter<?, N> converter,
+                           final NamedAddressSpace addressSpace,
+                           final N convertedMessage)
+        {
+            _converter = converter;
+            _addressSpace = addressSpace;
+            _convertedMessage = convertedMessage;
+            _size = convertedMessage.getSizeIncludingHeader();
+        }
+
+        private void dispose()
+        {
+            _converter.dispose(_convertedMessage);
+        }
+    }
+}
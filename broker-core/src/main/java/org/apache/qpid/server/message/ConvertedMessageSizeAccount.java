@@ -0,0 +1,36 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.message;
+
+/**
+ * Implemented by address spaces which count the conversions shared by the {@link ConvertedMessageCache} of their
+ * messages towards the size of the messages they hold in memory. The message whose conversions changed is passed so
+ * that the account can evict them when it needs to release memory. The hits and misses of lookups in the cache on
+ * behalf of the address space are reported too.
+ */
+public interface ConvertedMessageSizeAccount
+{
+    void convertedMessageSizeChanged(AbstractServerMessageImpl<?, ?> message, long delta);
+
+    void convertedMessageCacheHit();
+
+    void convertedMessageCacheMiss();
+}
@@ -3427,11 +3427,30 @@ public abstract class AbstractConfiguredObject<X extends ConfiguredObject<X>> im
     public Map<String, Object> getStatistics(List<String> statistics)
     {
         Collection<ConfiguredObjectStatistic<?, ?>> stats = getTypeRegistry().getStatistics(getClass());
-        Map<String,Object> map = new HashMap<>();
-        boolean allStats = statistics == null || statistics.isEmpty();
+        final Map<String,Object> map = new HashMap<>(Math.max(16, stats.size() * 4 / 3 + 1));
+        final boolean allStats = statistics == null || statistics.isEmpty();
+        final boolean written = writeStatistics(new StatisticsWriter()
+        {
+            @Override
+            public boolean isRequired(final String name)
+            {
+                return allStats || statistics.contains(name);
+            }
+
+            @Override
+            public void write(final String name, final Object value)
+            {
+                if (value != null)
+                {
+                    map.put(name, value);
+                }
+            }
+        });
+
         for(ConfiguredObjectStatistic stat : stats)
         {
-            if(allStats || statistics.contains(stat.getName()))
+            if((!written || !(stat instanceof ConfiguredObjectMethodStatistic))
+               && (allStats || statistics.contains(stat.getName())))
             {
                 Object value = stat.getValue(this);
                 if(value != null)
@@ -3443,6 +3462,59 @@ public abstract class AbstractConfiguredObject<X extends ConfiguredObject<X>> im
         return map;
     }
 
+    /**
+     * Reads the statistics named in {@code positions} into {@code values} at the mapped positions, without building
+     * a map. Positions of statistics this object does not have are left unchanged.
+     */
+    public void readStatistics(final Map<String, Integer> positions, final Object[] values)
+    {
+        final boolean written = writeStatistics(new StatisticsWriter()
+        {
+            @Override
+            public boolean isRequired(final String name)
+            {
+                return positions.containsKey(name);
+            }
+
+            @Override
+            public void write(final String name, final Object value)
+            {
+                values[positions.get(name)] = value;
+            }
+        });
+
+        for (ConfiguredObjectStatistic stat : getTypeRegistry().getStatistics(getClass()))
+        {
+            if (!written || !(stat instanceof ConfiguredObjectMethodStatistic))
+            {
+                final Integer position = positions.get(stat.getName());
+                if (position != null)
+                {
+                    values[position] = stat.getValue(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Passes the values of the statistics declared by the {@link ManagedStatistic} annotated methods of this object
+     * to the given writer, calling the methods directly rather than reflectively. The implementation is generated
+     * for each managed object type; injected statistics are not written.
+     *
+     * @return false if this object does not support writing its statistics directly
+     */
+    protected boolean writeStatistics(final StatisticsWriter writer)
+    {
+        return false;
+    }
+
+    protected interface StatisticsWriter
+    {
+        boolean isRequired(String name);
+
+        void write(String name, Object value);
+    }
+
     @Override
     public String setContextVariable(final String name, final String value)
     {
@@ -81,6 +81,7 @@ public abstract class AbstractSystemConfig<X extends SystemConfig<X>>
     private final EventLogger _eventLogger;
 
     private volatile DurableConfigurationStore _configurationStore;
+    private volatile long _configurationRecoveryTime;
     private Runnable _onContainerResolveTask;
     private Runnable _onContainerCloseTask;
 
@@ -340,6 +341,7 @@ public abstract class AbstractSystemConfig<X extends SystemConfig<X>>
 
     private Container<?> initiateStoreAndRecovery() throws IOException
     {
+        final long startTime = System.currentTimeMillis();
         ConfiguredObjectRecord[] initialRecords = convertToConfigurationRecords(getInitialConfigurationLocation());
         final DurableConfigurationStore store = getConfigurationStore();
         store.init(AbstractSystemConfig.this);
@@ -382,9 +384,16 @@ public abstract class AbstractSystemConfig<X extends SystemConfig<X>>
         }
 
         final Class categoryClass = containerType.getCategoryClass();
+        _configurationRecoveryTime = System.currentTimeMillis() - startTime;
         return (Container<?>) getContainer(categoryClass);
     }
 
+    @Override
+    public long getConfigurationRecoveryTime()
+    {
+        return _configurationRecoveryTime;
+    }
+
 
     @StateTransition(currentState = State.UNINITIALIZED, desiredState = State.QUIESCED)
     protected ListenableFuture<Void> startQuiesced()
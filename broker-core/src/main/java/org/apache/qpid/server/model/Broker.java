@@ -91,6 +91,13 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
     @ManagedContextDefault(name = COMPACT_MEMORY_INTERVAL)
     long DEFAULT_COMPACT_MEMORY_INTERVAL = 1000L;
 
+    String COMPACT_MEMORY_BUDGET = "qpid.compact_memory_budget";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = COMPACT_MEMORY_BUDGET,
+            description = "Maximum number of bytes each virtual host copies out of sparse direct memory buffers"
+                          + " per run of the memory compactor. Set to -1 for no limit.")
+    long DEFAULT_COMPACT_MEMORY_BUDGET = 64L * 1024L * 1024L;
+
     @ManagedContextDefault(name = CHANNEL_FLOW_CONTROL_ENFORCEMENT_TIMEOUT)
     long DEFAULT_CHANNEL_FLOW_CONTROL_ENFORCEMENT_TIMEOUT = 5000l;
 
@@ -296,6 +303,38 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
             description = "Number of unused direct memory buffers currently in the pool.")
     long getNumberOfBuffersInPool();
 
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
+            units = StatisticUnit.COUNT,
+            label = "Number of Small Buffers In-Use",
+            description = "Number of direct memory buffers of the size classes below the network buffer size"
+                          + " currently in-use.")
+    long getNumberOfSmallBuffersInUse();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
+            units = StatisticUnit.COUNT,
+            label = "Number of Pooled Small Buffers",
+            description = "Number of unused direct memory buffers of the size classes below the network buffer size"
+                          + " currently in the pool.")
+    long getNumberOfSmallBuffersInPool();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
+            units = StatisticUnit.BYTES,
+            label = "Fragmented Direct Memory",
+            description = "Size of the pooled direct memory which is allocated but not in use by any buffer.")
+    long getFragmentedDirectMemorySize();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE,
+            units = StatisticUnit.BYTES,
+            label = "Reallocated Direct Memory",
+            description = "Total number of bytes the memory compactor has copied out of sparse direct memory buffers"
+                          + " into new buffers. The pooled memory of the sparse buffers is only freed once nothing"
+                          + " else refers to it.")
+    long getReallocatedDirectMemorySize();
+
     @SuppressWarnings("unused")
     @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
             units = StatisticUnit.BYTES,
@@ -303,6 +342,22 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
             description = "Maximum size of messages published into the Broker since start-up.")
     long getInboundMessageSizeHighWatermark();
 
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
+            units = StatisticUnit.TIME_DURATION,
+            label = "Configuration Recovery Time",
+            description = "Time in milliseconds taken at startup to open the broker configuration store and recover"
+                          + " the objects recorded in it.")
+    long getConfigurationRecoveryTime();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
+            units = StatisticUnit.TIME_DURATION,
+            label = "Activation Time",
+            description = "Time in milliseconds taken at startup from opening the Broker to it becoming active,"
+                          + " including the activation of its virtual host nodes.")
+    long getActivationTime();
+
     @ManagedOperation(nonModifying = true,
             description = "Restart the broker within the same JVM",
             changesConfiguredObjectState = false,
@@ -143,6 +143,9 @@ public class BrokerImpl extends AbstractContainer<BrokerImpl> implements Broker<
     private long _flowToDiskThreshold;
     private double _sparsityFraction;
     private long _lastDisposalCounter;
+    private final AtomicLong _reallocatedDirectMemorySize = new AtomicLong();
+    private volatile long _openTime;
+    private volatile long _activationTime;
     private ScheduledFuture<?> _assignTargetSizeSchedulingFuture;
     private volatile ScheduledFuture<?> _statisticsReportingFuture;
     private long _housekeepingCheckPeriod;
@@ -437,6 +440,7 @@ public class BrokerImpl extends AbstractContainer<BrokerImpl> implements Broker<
             _eventLogger.message(BrokerMessages.MANAGEMENT_MODE(SystemConfig.MANAGEMENT_MODE_USER_NAME,
                                                                 _parent.getManagementModePassword()));
         }
+        _activationTime = System.currentTimeMillis() - _openTime;
         setState(State.ACTIVE);
     }
 
@@ -610,6 +614,7 @@ public class BrokerImpl extends AbstractContainer<BrokerImpl> implements Broker<
     protected void onOpen()
     {
         super.onOpen();
+        _openTime = System.currentTimeMillis();
 
         PreferencesRoot preferencesRoot = (SystemConfig) getParent();
         _preferenceStore = preferencesRoot.createPreferenceStore();
@@ -902,6 +907,42 @@ public class BrokerImpl extends AbstractContainer<BrokerImpl> implements Broker<
         return QpidByteBuffer.getNumberOfBuffersInPool();
     }
 
+    @Override
+    public long getFragmentedDirectMemorySize()
+    {
+        return QpidByteBuffer.getFragmentedDirectMemorySize();
+    }
+
+    @Override
+    public long getReallocatedDirectMemorySize()
+    {
+        return _reallocatedDirectMemorySize.get();
+    }
+
+    @Override
+    public long getConfigurationRecoveryTime()
+    {
+        return _parent.getConfigurationRecoveryTime();
+    }
+
+    @Override
+    public long getActivationTime()
+    {
+        return _activationTime;
+    }
+
+    @Override
+    public long getNumberOfSmallBuffersInUse()
+    {
+        return QpidByteBuffer.getNumberOfSmallBuffersInUse();
+    }
+
+    @Override
+    public long getNumberOfSmallBuffersInPool()
+    {
+        return QpidByteBuffer.getNumberOfSmallBuffersInPool();
+    }
+
     @Override
     public long getInboundMessageSizeHighWatermark()
     {
@@ -1162,28 +1203,34 @@ public class BrokerImpl extends AbstractContainer<BrokerImpl> implements Broker<
 
     private ListenableFuture<Void> compactMemoryInternal()
     {
-        LOGGER.debug("Compacting direct memory buffers: numberOfActivePooledBuffers: {}",
-                     QpidByteBuffer.getNumberOfBuffersInUse());
+        LOGGER.debug("Compacting direct memory buffers: numberOfActivePooledBuffers: {}, fragmentedDirectMemorySize: {}",
+                     QpidByteBuffer.getNumberOfBuffersInUse(), QpidByteBuffer.getFragmentedDirectMemorySize());
 
         final Collection<VirtualHostNode<?>> vhns = getVirtualHostNodes();
-        List<ListenableFuture<Void>> futures = new ArrayList<>(vhns.size());
+        List<ListenableFuture<Long>> futures = new ArrayList<>(vhns.size());
         for (VirtualHostNode<?> vhn : vhns)
         {
             VirtualHost<?> vh = vhn.getVirtualHost();
             if (vh instanceof QueueManagingVirtualHost)
             {
-                ListenableFuture<Void> future = ((QueueManagingVirtualHost) vh).reallocateMessages();
+                ListenableFuture<Long> future = ((QueueManagingVirtualHost) vh).reallocateMessages();
                 futures.add(future);
             }
         }
 
         SettableFuture<Void> resultFuture = SettableFuture.create();
-        final ListenableFuture<List<Void>> combinedFuture = Futures.allAsList(futures);
-        addFutureCallback(combinedFuture, new FutureCallback<List<Void>>()
+        final ListenableFuture<List<Long>> combinedFuture = Futures.allAsList(futures);
+        addFutureCallback(combinedFuture, new FutureCallback<List<Long>>()
         {
             @Override
-            public void onSuccess(final List<Void> result)
+            public void onSuccess(final List<Long> result)
             {
+                long reallocated = 0L;
+                for (Long copiedBytes : result)
+                {
+                    reallocated += copiedBytes;
+                }
+                _reallocatedDirectMemorySize.addAndGet(reallocated);
                 if (LOGGER.isDebugEnabled())
                 {
                    LOGGER.debug("After compact direct memory buffers: numberOfActivePooledBuffers: {}",
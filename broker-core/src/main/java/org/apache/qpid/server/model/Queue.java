@@ -95,6 +95,32 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
     @ManagedContextDefault( name = QUEUE_SCAVANGE_COUNT)
     int DEFAULT_QUEUE_SCAVANGE_COUNT = 100;
 
+    String QUEUE_MESSAGE_ID_INDEX_ENABLED = "queue.messageIdIndexEnabled";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = QUEUE_MESSAGE_ID_INDEX_ENABLED,
+            description = "If true, the queue maintains an index from message id to queue entry so that management "
+                          + "operations addressing messages by id do not need to walk the queue. The index costs "
+                          + "memory proportional to the queue depth and takes effect when the queue is opened.")
+    boolean DEFAULT_QUEUE_MESSAGE_ID_INDEX_ENABLED = false;
+
+
+    String QUEUE_RECOVERY_METADATA_IN_MEMORY_DEPTH = "queue.recoveryMetadataInMemoryDepth";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = QUEUE_RECOVERY_METADATA_IN_MEMORY_DEPTH,
+            description = "Number of entries recovered from the store onto a queue whose message meta-data is kept in "
+                          + "memory. Messages of entries beyond this depth retain only the fields the entry needs for "
+                          + "ordering and expiry, and their meta-data is read back from the store when it is next "
+                          + "required. A negative value keeps the meta-data of all recovered entries in memory.")
+    long DEFAULT_QUEUE_RECOVERY_METADATA_IN_MEMORY_DEPTH = -1L;
+
+    String QUEUE_SELECTOR_INDEX_ENABLED = "queue.selectorIndexEnabled";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = QUEUE_SELECTOR_INDEX_ENABLED,
+            description = "If true, the filters of the consumers of the queue are evaluated once per entry and the "
+                          + "outcome is shared by the consumers, rather than each consumer evaluating its own filter. "
+                          + "Consumers with selectors testing the same property for equality with a string literal "
+                          + "are matched by a single lookup. Takes effect when the queue is opened.")
+    boolean DEFAULT_QUEUE_SELECTOR_INDEX_ENABLED = false;
 
     String MIME_TYPE_TO_FILE_EXTENSION = "qpid.mimeTypeToFileExtension";
     @SuppressWarnings("unused")
@@ -593,7 +619,13 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
      */
     void checkMessageStatus();
 
-    void reallocateMessages();
+    /**
+     * Copies messages held in sparse direct memory buffers into dense ones until the given number of bytes has been
+     * copied. A negative budget is unlimited.
+     *
+     * @return the number of bytes copied
+     */
+    long reallocateMessages(long budget);
 
     Set<NotificationCheck> getNotificationChecks();
 
@@ -42,6 +42,12 @@ public interface VirtualHostNode<X extends VirtualHostNode<X>> extends Configure
     @ManagedContextDefault(name = VIRTUALHOST_BLUEPRINT_CONTEXT_VAR)
     String DEFAULT_INITIAL_CONFIGURATION = "{}";
 
+    String PARALLEL_ACTIVATION = "virtualhostnode.parallelActivation";
+    @ManagedContextDefault(name = PARALLEL_ACTIVATION,
+            description = "If true, the configuration store of a virtual host node is opened and recovered on the"
+                          + " node's own configuration thread, allowing nodes to be activated in parallel.")
+    boolean DEFAULT_PARALLEL_ACTIVATION = true;
+
     @ManagedAttribute( defaultValue = "false")
     boolean isDefaultVirtualHostNode();
 
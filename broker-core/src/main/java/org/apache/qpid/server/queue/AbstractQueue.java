@@ -50,6 +50,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
@@ -133,6 +134,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         extends AbstractConfiguredObject<X>
         implements Queue<X>,
                    MessageGroupManager.ConsumerResetHelper,
+                   MessageIdIndexedQueue,
                    TransactionMonitor
 {
 
@@ -151,6 +153,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     private static final String UTF8 = StandardCharsets.UTF_8.name();
     private static final Operation PUBLISH_ACTION = Operation.PERFORM_ACTION("publish");
+    private static final int EXPIRY_INDEX_PURGE_SLACK = 1024;
 
     private final QueueManagingVirtualHost<?> _virtualHost;
     private final DeletedChildListener _deletedChildListener = new DeletedChildListener();
@@ -271,9 +274,14 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     private final AtomicInteger _recovering = new AtomicInteger(RECOVERING);
     private final AtomicInteger _enqueuingWhileRecovering = new AtomicInteger(0);
+    private final AtomicLong _recoveredEntryCount = new AtomicLong();
+    private volatile long _recoveryMetadataInMemoryDepth = DEFAULT_QUEUE_RECOVERY_METADATA_IN_MEMORY_DEPTH;
     private final ConcurrentLinkedQueue<EnqueueRequest> _postRecoveryQueue = new ConcurrentLinkedQueue<>();
     private final ConcurrentMap<String, Callable<MessageFilter>> _defaultFiltersMap = new ConcurrentHashMap<>();
     private final List<HoldMethod> _holdMethods = new CopyOnWriteArrayList<>();
+    private final QueueEntryExpiryIndex _expiryIndex = new QueueEntryExpiryIndex();
+    private volatile QueueEntryIdIndex _messageIdIndex;
+    private volatile QueueEntrySelectorIndex _selectorIndex;
     private final Set<DestinationReferrer> _referrers = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Set<LocalTransaction> _transactions = ConcurrentHashMap.newKeySet();
     private final LocalTransaction.LocalTransactionListener _localTransactionListener = _transactions::remove;
@@ -510,7 +518,16 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
 
         _mimeTypeToFileExtension = getContextValue(Map.class, MAP_OF_STRING_STRING, MIME_TYPE_TO_FILE_EXTENSION);
+        if (getContextValue(Boolean.class, QUEUE_MESSAGE_ID_INDEX_ENABLED))
+        {
+            _messageIdIndex = new QueueEntryIdIndex();
+        }
+        if (getContextValue(Boolean.class, QUEUE_SELECTOR_INDEX_ENABLED))
+        {
+            _selectorIndex = new QueueEntrySelectorIndex();
+        }
         _messageConversionExceptionHandlingPolicy = getContextValue(MessageConversionExceptionHandlingPolicy.class, MESSAGE_CONVERSION_EXCEPTION_HANDLING_POLICY);
+        _recoveryMetadataInMemoryDepth = getContextValue(Long.class, QUEUE_RECOVERY_METADATA_IN_MEMORY_DEPTH);
 
         _flowToDiskThreshold = getAncestor(Broker.class).getFlowToDiskThreshold();
 
@@ -1038,6 +1055,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
             queueContext = new QueueContext(getEntries().getTail());
         }
         consumer.setQueueContext(queueContext);
+        final QueueEntrySelectorIndex selectorIndex = _selectorIndex;
+        if (selectorIndex != null && filters != null && filters.hasFilters())
+        {
+            consumer.setSelectorRegistration(selectorIndex.register(filters));
+        }
         if (_maximumLiveConsumers > 0 && !incrementNumberOfLiveConsumersIfApplicable())
         {
             consumer.setNonLive(true);
@@ -1095,6 +1117,13 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
             consumer.setQueueContext(null);
 
+            final QueueEntrySelectorIndex.Registration selectorRegistration = consumer.getSelectorRegistration();
+            if (selectorRegistration != null)
+            {
+                consumer.setSelectorRegistration(null);
+                _selectorIndex.unregister(selectorRegistration);
+            }
+
             if(_exclusive == ExclusivityPolicy.LINK)
             {
                 _exclusiveOwner = null;
@@ -1316,6 +1345,15 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     public final void recover(ServerMessage message, final MessageEnqueueRecord enqueueRecord)
     {
         doEnqueue(message, null, enqueueRecord);
+
+        // the entry has captured what it needs for ordering and expiry, so beyond the configured depth the
+        // message meta-data is left in the store until a consumer or management operation requires it
+        final long recoveryMetadataInMemoryDepth = _recoveryMetadataInMemoryDepth;
+        if (recoveryMetadataInMemoryDepth >= 0
+            && _recoveredEntryCount.incrementAndGet() > recoveryMetadataInMemoryDepth)
+        {
+            message.getStoredMessage().flowToDisk();
+        }
     }
 
 
@@ -1354,6 +1392,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     protected QueueEntry doEnqueue(final ServerMessage message, final Action<? super MessageInstance> action, MessageEnqueueRecord enqueueRecord)
     {
         final QueueEntry entry = getEntries().add(message, enqueueRecord);
+        final QueueEntryIdIndex messageIdIndex = _messageIdIndex;
+        if (messageIdIndex != null)
+        {
+            messageIdIndex.add(entry);
+        }
         updateExpiration(entry);
 
         try
@@ -1389,6 +1432,18 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         if (expiration > 0)
         {
             entry.setExpiration(expiration);
+            _expiryIndex.add(entry, expiration);
+        }
+    }
+
+    private void recalculateExpiration(final QueueEntry entry)
+    {
+        long expiration = calculateExpiration(entry.getMessage());
+        if (expiration > 0 && expiration != entry.getExpiration())
+        {
+            // the record of the previous expiration is dropped by the index once it no longer matches the entry
+            entry.setExpiration(expiration);
+            _expiryIndex.add(entry, expiration);
         }
     }
 
@@ -1729,6 +1784,12 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public QueueEntry getMessageOnTheQueue(final long messageId)
     {
+        final QueueEntryIdIndex messageIdIndex = _messageIdIndex;
+        if (messageIdIndex != null)
+        {
+            return messageIdIndex.get(messageId);
+        }
+
         List<QueueEntry> entries = getMessagesOnTheQueue(new QueueEntryFilter()
         {
             private boolean _complete;
@@ -1784,25 +1845,59 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
         while(queueListIterator.advance())
         {
-            QueueEntry node = queueListIterator.getNode();
-            MessageReference reference = node.newMessageReference();
-            if(reference != null)
+            if (visitEntry(queueListIterator.getNode(), visitor))
             {
-                try
-                {
-                    if (!node.isDeleted() && reference.getMessage().checkValid() && visitor.visit(node))
-                    {
-                        break;
-                    }
-                }
-                finally
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void visit(final Collection<Long> messageIds, final QueueEntryVisitor visitor)
+    {
+        final QueueEntryIdIndex messageIdIndex = _messageIdIndex;
+        if (messageIdIndex == null)
+        {
+            final Set<Long> remainingIds = new HashSet<>(messageIds);
+            if (!remainingIds.isEmpty())
+            {
+                visit(entry -> {
+                    final ServerMessage message = entry.getMessage();
+                    return message != null
+                           && remainingIds.remove(message.getMessageNumber())
+                           && (visitor.visit(entry) || remainingIds.isEmpty());
+                });
+            }
+        }
+        else
+        {
+            for (QueueEntry entry : messageIdIndex.get(messageIds))
+            {
+                if (visitEntry(entry, visitor))
                 {
-                    reference.release();
+                    break;
                 }
             }
         }
     }
 
+    private boolean visitEntry(final QueueEntry node, final QueueEntryVisitor visitor)
+    {
+        MessageReference reference = node.newMessageReference();
+        if(reference != null)
+        {
+            try
+            {
+                return !node.isDeleted() && reference.getMessage().checkValid() && visitor.visit(node);
+            }
+            finally
+            {
+                reference.release();
+            }
+        }
+        return false;
+    }
+
     // ------ Management functions
 
     @Override
@@ -1856,6 +1951,16 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                     });
     }
 
+    @Override
+    public void entryDeleted(final QueueEntry entry)
+    {
+        final QueueEntryIdIndex messageIdIndex = _messageIdIndex;
+        if (messageIdIndex != null)
+        {
+            messageIdIndex.remove(entry);
+        }
+    }
+
     @Override
     public void deleteEntry(final QueueEntry entry)
     {
@@ -2295,6 +2400,13 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     private boolean noHigherPriorityWithCredit(final QueueConsumer<?,?> sub, final QueueEntry queueEntry)
     {
+        if(_queueConsumerManager.getHighestInterestedPriority() <= sub.getPriority())
+        {
+            // consumers which do not want to be notified of work are skipped below, so if none of higher priority
+            // remain there is no need to look for their next available entries
+            return true;
+        }
+
         Iterator<QueueConsumer<?,?>> consumerIterator = _queueConsumerManager.getAllIterator();
 
         while (consumerIterator.hasNext())
@@ -2378,8 +2490,6 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public void checkMessageStatus()
     {
-        QueueEntryIterator queueListIterator = getEntries().iterator();
-
         final Set<NotificationCheck> perMessageChecks = new HashSet<>();
         final Set<NotificationCheck> queueLevelChecks = new HashSet<>();
 
@@ -2398,6 +2508,36 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         final long currentTime = System.currentTimeMillis();
         final long thresholdTime = currentTime - getAlertRepeatGap();
 
+        if (_expiryIndex.size() > 2L * getQueueDepthMessages() + EXPIRY_INDEX_PURGE_SLACK)
+        {
+            _expiryIndex.purgeStaleEntries();
+        }
+        _expiryIndex.processExpiredEntries(currentTime, node ->
+        {
+            if (!_stopped.get() && node.expired())
+            {
+                expireEntry(node);
+            }
+        });
+
+        // held entries and per message notifications still require every entry to be visited
+        if (!_holdMethods.isEmpty() || !perMessageChecks.isEmpty())
+        {
+            checkEntries(perMessageChecks, listener, currentTime, thresholdTime);
+        }
+
+        for(NotificationCheck check : queueLevelChecks)
+        {
+            checkForNotification(null, listener, currentTime, thresholdTime, check);
+        }
+    }
+
+    private void checkEntries(final Set<NotificationCheck> perMessageChecks,
+                              final QueueNotificationListener listener,
+                              final long currentTime,
+                              final long thresholdTime)
+    {
+        QueueEntryIterator queueListIterator = getEntries().iterator();
         while (!_stopped.get() && queueListIterator.advance())
         {
             final QueueEntry node = queueListIterator.getNode();
@@ -2441,11 +2581,6 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                 }
             }
         }
-
-        for(NotificationCheck check : queueLevelChecks)
-        {
-            checkForNotification(null, listener, currentTime, thresholdTime, check);
-        }
     }
 
     private void expireEntry(final QueueEntry node)
@@ -2519,11 +2654,12 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     }
 
     @Override
-    public void reallocateMessages()
+    public long reallocateMessages(final long budget)
     {
         QueueEntryIterator queueListIterator = getEntries().iterator();
 
-        while (!_stopped.get() && queueListIterator.advance())
+        long copiedBytes = 0L;
+        while (!_stopped.get() && (budget < 0L || copiedBytes < budget) && queueListIterator.advance())
         {
             final QueueEntry node = queueListIterator.getNode();
             if (!node.isDeleted() && !node.expired())
@@ -2540,7 +2676,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                         }
                         else
                         {
-                            message.getStoredMessage().reallocate();
+                            copiedBytes += reallocate(message.getStoredMessage());
                         }
                     }
                     finally
@@ -2554,6 +2690,18 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                 }
             }
         }
+        return copiedBytes;
+    }
+
+    /**
+     * Reallocates the stored message and returns the number of bytes copied in doing so. The copies are counted on
+     * the calling thread, so that neither other threads nor other queues affect the count.
+     */
+    private static long reallocate(final StoredMessage<?> storedMessage)
+    {
+        final long reallocatedBytes = QpidByteBuffer.getReallocatedBytesOfCurrentThread();
+        storedMessage.reallocate();
+        return QpidByteBuffer.getReallocatedBytesOfCurrentThread() - reallocatedBytes;
     }
 
     private boolean consumerHasAvailableMessages(final QueueConsumer consumer)
@@ -3553,7 +3701,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     public Content getMessageContent(final long messageId, final long limit, boolean returnJson, boolean decompressBeforeLimiting)
     {
         final MessageContentFinder messageFinder = new MessageContentFinder(messageId);
-        visit(messageFinder);
+        visit(Collections.singleton(messageId), messageFinder);
         if (messageFinder.isFound())
         {
             return createMessageContent(messageFinder.getMessageReference(), returnJson, limit, decompressBeforeLimiting);
@@ -3623,7 +3771,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     public MessageInfo getMessageInfoById(final long messageId, boolean includeHeaders)
     {
         final MessageFinder messageFinder = new MessageFinder(messageId, includeHeaders);
-        visit(messageFinder);
+        visit(Collections.singleton(messageId), messageFinder);
         return messageFinder.getMessageInfo();
     }
 
@@ -3935,7 +4083,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                     {
                         try (MessageReference messageReference = msg.newReference())
                         {
-                            updateExpiration(node);
+                            recalculateExpiration(node);
                         }
                         catch (MessageDeletedException e)
                         {
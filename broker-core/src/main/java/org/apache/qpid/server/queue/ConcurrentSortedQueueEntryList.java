@@ -0,0 +1,186 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.store.MessageEnqueueRecord;
+
+/**
+ * A sorted implementation of QueueEntryList backed by a concurrent skip list of entries ordered by
+ * (sort key, entry id).
+ * <p>
+ * Unlike {@link SortedQueueEntryList}, insertion, deletion and navigation do not take a list-wide lock, so
+ * publishers and consumers of a sorted queue do not serialise on the list. The order of the entries, and so the
+ * order in which consumers see them, is the same as that of {@link SortedQueueEntryList}.
+ */
+public class ConcurrentSortedQueueEntryList extends AbstractQueueEntryList
+{
+    private final ConcurrentSortedQueueEntry _head;
+    private final ConcurrentSkipListSet<ConcurrentSortedQueueEntry> _entries = new ConcurrentSkipListSet<>();
+    private final AtomicLong _entryId = new AtomicLong(Long.MIN_VALUE);
+    private final SortedQueueImpl _queue;
+    private final String _propertyName;
+
+    public ConcurrentSortedQueueEntryList(final SortedQueueImpl queue, final QueueStatistics queueStatistics)
+    {
+        super(queue, queueStatistics);
+        _queue = queue;
+        _head = new ConcurrentSortedQueueEntry(this);
+        _propertyName = queue.getSortKey();
+    }
+
+    @Override
+    public SortedQueueImpl getQueue()
+    {
+        return _queue;
+    }
+
+    @Override
+    public ConcurrentSortedQueueEntry add(final ServerMessage message, final MessageEnqueueRecord enqueueRecord)
+    {
+        String key = null;
+        final Object val = message.getMessageHeader().getHeader(_propertyName);
+        if(val != null)
+        {
+            key = val.toString();
+        }
+
+        final ConcurrentSortedQueueEntry entry =
+                new ConcurrentSortedQueueEntry(this, message, _entryId.incrementAndGet(), enqueueRecord, key);
+        updateStatsOnEnqueue(entry);
+
+        _entries.add(entry);
+
+        return entry;
+    }
+
+    /**
+     * Returns the first entry following the given one in sort order. As the head sorts before every entry, and a
+     * deleted entry retains its sort position, this is well defined for the head and for entries which have
+     * already been removed from the list.
+     */
+    @Override
+    public ConcurrentSortedQueueEntry next(final QueueEntry entry)
+    {
+        return _entries.higher((ConcurrentSortedQueueEntry) entry);
+    }
+
+    @Override
+    public QueueEntryIterator iterator()
+    {
+        return new QueueEntryIteratorImpl(_head);
+    }
+
+    @Override
+    public ConcurrentSortedQueueEntry getHead()
+    {
+        return _head;
+    }
+
+    @Override
+    public ConcurrentSortedQueueEntry getTail()
+    {
+        final Iterator<ConcurrentSortedQueueEntry> descendingIterator = _entries.descendingIterator();
+        return descendingIterator.hasNext() ? descendingIterator.next() : _head;
+    }
+
+    @Override
+    public QueueEntry getOldestEntry()
+    {
+        QueueEntry oldestEntry = null;
+        for (ConcurrentSortedQueueEntry node : _entries)
+        {
+            if (!node.isDeleted())
+            {
+                ServerMessage msg = node.getMessage();
+                if(msg != null && (oldestEntry == null || oldestEntry.getMessage().getMessageNumber() > msg.getMessageNumber()))
+                {
+                    oldestEntry = node;
+                }
+            }
+        }
+        return oldestEntry;
+    }
+
+    @Override
+    public void entryDeleted(final QueueEntry entry)
+    {
+        _entries.remove(entry);
+    }
+
+    @Override
+    public int getPriorities()
+    {
+        return 0;
+    }
+
+    @Override
+    public QueueEntry getLeastSignificantOldestEntry()
+    {
+        return getOldestEntry();
+    }
+
+    public class QueueEntryIteratorImpl implements QueueEntryIterator
+    {
+        private ConcurrentSortedQueueEntry _lastNode;
+
+        public QueueEntryIteratorImpl(final ConcurrentSortedQueueEntry startNode)
+        {
+            _lastNode = startNode;
+        }
+
+        @Override
+        public boolean atTail()
+        {
+            return next(_lastNode) == null;
+        }
+
+        @Override
+        public ConcurrentSortedQueueEntry getNode()
+        {
+            return _lastNode;
+        }
+
+        @Override
+        public boolean advance()
+        {
+            ConcurrentSortedQueueEntry nextNode = next(_lastNode);
+            if(nextNode != null)
+            {
+                ConcurrentSortedQueueEntry following;
+                while(nextNode.isDeleted() && (following = next(nextNode)) != null)
+                {
+                    nextNode = following;
+                }
+                _lastNode = nextNode;
+                return true;
+            }
+            else
+            {
+                return false;
+            }
+        }
+    }
+}
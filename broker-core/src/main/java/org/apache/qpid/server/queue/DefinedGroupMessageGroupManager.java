@@ -20,10 +20,10 @@
  */
 package org.apache.qpid.server.queue;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,20 +35,31 @@ import org.apache.qpid.server.message.MessageInstance.EntryState;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.util.StateChangeListener;
 
+/**
+ * Assigns each message group to at most one consumer at a time.
+ * <p>
+ * Groups are held in a concurrent map, and changes to a group are serialised on one of a fixed set of locks
+ * selected by the group key. Consumers attempting delivery of entries of different groups therefore rarely contend.
+ * {@link #mightAssign(QueueEntry, QueueConsumer)} answers without locking when the group is free or already assigned
+ * to the consumer; entries skipped by other consumers are recorded against their group so that those consumers can
+ * be rewound once the group is released.
+ */
 public class DefinedGroupMessageGroupManager implements MessageGroupManager
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefinedGroupMessageGroupManager.class);
+    private static final int LOCK_STRIPES = 64;
     private final String _groupId;
     private final String _defaultGroup;
-    private final Map<Object, Group> _groupMap = new HashMap<>();
+    private final ConcurrentMap<Object, Group> _groupMap = new ConcurrentHashMap<>();
+    private final Object[] _locks = new Object[LOCK_STRIPES];
     private final ConsumerResetHelper _resetHelper;
 
     private final class Group
     {
         private final Object _group;
         private final SortedSet<QueueEntry> _skippedEntries = new TreeSet<>();
-        private QueueConsumer<?,?> _consumer;
-        private int _activeCount;
+        private volatile QueueConsumer<?,?> _consumer;
+        private volatile int _activeCount;
 
         private Group(final Object key, final QueueConsumer<?,?> consumer)
         {
@@ -141,31 +152,52 @@ public class DefinedGroupMessageGroupManager implements MessageGroupManager
         _groupId = groupId;
         _defaultGroup = defaultGroup;
         _resetHelper = resetHelper;
+        for(int i = 0; i < LOCK_STRIPES; i++)
+        {
+            _locks[i] = new Object();
+        }
     }
     
     @Override
-    public synchronized boolean mightAssign(final QueueEntry entry, final QueueConsumer sub)
+    public boolean mightAssign(final QueueEntry entry, final QueueConsumer sub)
     {
         Object groupId = getKey(entry);
 
         Group group = _groupMap.get(groupId);
-        final boolean possibleAssignment = group == null || !group.isValid() || group.getConsumer() == sub;
-        if(!possibleAssignment)
+        if(isPossibleAssignment(group, sub))
         {
-            group.addSkippedEntry(entry);
+            return true;
+        }
+
+        synchronized (getLock(groupId))
+        {
+            group = _groupMap.get(groupId);
+            final boolean possibleAssignment = isPossibleAssignment(group, sub);
+            if(!possibleAssignment)
+            {
+                group.addSkippedEntry(entry);
+            }
+            return possibleAssignment;
         }
-        return possibleAssignment;
+    }
+
+    private boolean isPossibleAssignment(final Group group, final QueueConsumer<?,?> sub)
+    {
+        return group == null || !group.isValid() || group.getConsumer() == sub;
     }
 
     @Override
-    public synchronized boolean acceptMessage(final QueueConsumer<?,?> sub, final QueueEntry entry)
+    public boolean acceptMessage(final QueueConsumer<?,?> sub, final QueueEntry entry)
     {
-        return assignMessage(sub, entry) && entry.acquire(sub);
+        final Object groupId = getKey(entry);
+        synchronized (getLock(groupId))
+        {
+            return assignMessage(sub, entry, groupId) && entry.acquire(sub);
+        }
     }
 
-    private boolean assignMessage(final QueueConsumer<?,?> sub, final QueueEntry entry)
+    private boolean assignMessage(final QueueConsumer<?,?> sub, final QueueEntry entry, final Object groupId)
     {
-        Object groupId = getKey(entry);
         Group group = _groupMap.get(groupId);
 
         if(group == null || !group.isValid())
@@ -198,7 +230,7 @@ public class DefinedGroupMessageGroupManager implements MessageGroupManager
     }
 
     @Override
-    public synchronized QueueEntry findEarliestAssignedAvailableEntry(final QueueConsumer<?,?> sub)
+    public QueueEntry findEarliestAssignedAvailableEntry(final QueueConsumer<?,?> sub)
     {
         EntryFinder visitor = new EntryFinder(sub);
         sub.getQueue().visit(visitor);
@@ -249,6 +281,12 @@ public class DefinedGroupMessageGroupManager implements MessageGroupManager
     {
     }
     
+    private Object getLock(final Object groupId)
+    {
+        final int hash = groupId.hashCode();
+        return _locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
     private Object getKey(QueueEntry entry)
     {
         ServerMessage message = entry.getMessage();
@@ -277,7 +315,7 @@ public class DefinedGroupMessageGroupManager implements MessageGroupManager
         @Override
         public void stateChanged(final MessageInstance entry, final EntryState oldState, final EntryState newState)
         {
-            synchronized (DefinedGroupMessageGroupManager.this)
+            synchronized (getLock(_group._group))
             {
                 if(_group.isValid())
                 {
@@ -18,17 +18,23 @@
  */
 package org.apache.qpid.server.queue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.server.message.AbstractServerMessageImpl;
 import org.apache.qpid.server.message.MessageDeletedException;
 import org.apache.qpid.server.message.MessageReference;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.OverflowPolicy;
 import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.store.StoredMessage;
 
 public class FlowToDiskOverflowPolicyHandler implements OverflowPolicyHandler
 {
     private final Handler _handler;
 
-    FlowToDiskOverflowPolicyHandler(final Queue<?> queue)
+    FlowToDiskOverflowPolicyHandler(final AbstractQueue<?> queue)
     {
         _handler = new Handler(queue);
         queue.addChangeListener(_handler);
@@ -43,9 +49,26 @@ public class FlowToDiskOverflowPolicyHandler implements OverflowPolicyHandler
 
     private static class Handler extends OverflowPolicyMaximumQueueDepthChangeListener
     {
-        private final Queue<?> _queue;
+        private static final int FLOW_TO_DISK_BATCH_SIZE = 100;
+
+        private final AbstractQueue<?> _queue;
+
+        /**
+         * Number of tail sweeps requested; only the thread moving it from zero sweeps, repeating until no
+         * further request arrived while it was busy.
+         */
+        private final AtomicInteger _sweepRequests = new AtomicInteger();
+        private volatile boolean _boundaryInvalid;
 
-        private Handler(final Queue<?> queue)
+        /**
+         * First entry found beyond the limits by the last tail sweep. It and every entry after it have already
+         * been flowed to disk, so a sweep that reaches it again need not take a reference to the entries from there
+         * on, only flowing again those whose messages have since been reloaded into memory. Only used by the
+         * sweeping thread.
+         */
+        private QueueEntry _boundary;
+
+        private Handler(final AbstractQueue<?> queue)
         {
             super(OverflowPolicy.FLOW_TO_DISK);
             _queue = queue;
@@ -54,6 +77,7 @@ public class FlowToDiskOverflowPolicyHandler implements OverflowPolicyHandler
         @Override
         void onMaximumQueueDepthChange(final Queue<?> queue)
         {
+            _boundaryInvalid = true;
             checkOverflow(null);
         }
 
@@ -65,7 +89,7 @@ public class FlowToDiskOverflowPolicyHandler implements OverflowPolicyHandler
             {
                 if (newlyEnqueued == null)
                 {
-                    flowTailToDiskIfNecessary(maximumQueueDepthBytes, maximumQueueDepthMessages);
+                    flowTailToDiskIfNecessary();
                 }
                 else
                 {
@@ -74,7 +98,39 @@ public class FlowToDiskOverflowPolicyHandler implements OverflowPolicyHandler
             }
         }
 
-        private void flowTailToDiskIfNecessary(final long maximumQueueDepthBytes, final long maximumQueueDepthMessages)
+        private void flowTailToDiskIfNecessary()
+        {
+            if (_sweepRequests.getAndIncrement() == 0)
+            {
+                boolean complete = false;
+                try
+                {
+                    int requests;
+                    do
+                    {
+                        requests = _sweepRequests.get();
+                        if (_boundaryInvalid)
+                        {
+                            _boundaryInvalid = false;
+                            _boundary = null;
+                        }
+                        sweepTail(_queue.getMaximumQueueDepthBytes(), _queue.getMaximumQueueDepthMessages());
+                    }
+                    while (!_sweepRequests.compareAndSet(requests, 0));
+                    complete = true;
+                }
+                finally
+                {
+                    if (!complete)
+                    {
+                        _boundary = null;
+                        _sweepRequests.set(0);
+                    }
+                }
+            }
+        }
+
+        private void sweepTail(final long maximumQueueDepthBytes, final long maximumQueueDepthMessages)
         {
             final long queueDepthBytes = _queue.getQueueDepthBytes();
             final long queueDepthMessages = _queue.getQueueDepthMessages();
@@ -82,31 +138,153 @@ public class FlowToDiskOverflowPolicyHandler implements OverflowPolicyHandler
             if ((maximumQueueDepthBytes >= 0L && queueDepthBytes > maximumQueueDepthBytes) ||
                 (maximumQueueDepthMessages >= 0L && queueDepthMessages > maximumQueueDepthMessages))
             {
+                final QueueEntry previousBoundary = getLiveBoundary();
+                QueueEntry boundary = null;
+                boolean previousBoundaryReached = false;
 
                 long cumulativeDepthBytes = 0;
                 long cumulativeDepthMessages = 0;
 
-                QueueEntryIterator queueEntryIterator = _queue.queueEntryIterator();
-                while (queueEntryIterator.advance())
+                final List<MessageReference<?>> batch = new ArrayList<>(FLOW_TO_DISK_BATCH_SIZE);
+                try
                 {
-                    QueueEntry node = queueEntryIterator.getNode();
-
-                    if (node != null && !node.isDeleted())
+                    QueueEntryIterator queueEntryIterator = _queue.queueEntryIterator();
+                    while (queueEntryIterator.advance())
                     {
-                        ServerMessage message = node.getMessage();
-                        if (message != null)
+                        QueueEntry node = queueEntryIterator.getNode();
+                        if (node == previousBoundary)
                         {
-                            cumulativeDepthMessages++;
-                            cumulativeDepthBytes += message.getSizeIncludingHeader();
+                            previousBoundaryReached = true;
+                        }
 
-                            if (cumulativeDepthBytes > maximumQueueDepthBytes
-                                || cumulativeDepthMessages > maximumQueueDepthMessages)
+                        if (node != null && !node.isDeleted())
+                        {
+                            ServerMessage message = node.getMessage();
+                            if (message != null)
                             {
-                                flowToDisk(node);
+                                if (boundary == null)
+                                {
+                                    cumulativeDepthMessages++;
+                                    cumulativeDepthBytes += message.getSizeIncludingHeader();
+
+                                    if ((maximumQueueDepthBytes >= 0L && cumulativeDepthBytes > maximumQueueDepthBytes)
+                                        || (maximumQueueDepthMessages >= 0L
+                                            && cumulativeDepthMessages > maximumQueueDepthMessages))
+                                    {
+                                        boundary = node;
+                                    }
+                                }
+
+                                if (boundary != null)
+                                {
+                                    // entries from the previous boundary onwards were flowed to disk, but may
+                                    // since have been reloaded by browsing, selectors or redelivery
+                                    if (!previousBoundaryReached || isHeldInMemory(message))
+                                    {
+                                        addToBatch(node, batch);
+                                        if (batch.size() >= FLOW_TO_DISK_BATCH_SIZE)
+                                        {
+                                            flowToDisk(batch);
+                                        }
+                                    }
+                                }
                             }
                         }
                     }
+                    flowToDisk(batch);
+                    _boundary = boundary;
                 }
+                finally
+                {
+                    batch.forEach(MessageReference::release);
+                }
+            }
+            else
+            {
+                _boundary = null;
+            }
+        }
+
+        private QueueEntry getLiveBoundary()
+        {
+            QueueEntry boundary = _boundary;
+            while (boundary != null && boundary.isDeleted())
+            {
+                boundary = _queue.getEntries().next(boundary);
+            }
+            return boundary;
+        }
+
+        private void addToBatch(final QueueEntry node, final List<MessageReference<?>> batch)
+        {
+            try
+            {
+                final MessageReference<?> messageReference = node.getMessage().newReference();
+                final ServerMessage<?> message = messageReference.getMessage();
+                if (isHeldInMemory(message) && node.getQueue().checkValid(node))
+                {
+                    batch.add(messageReference);
+                }
+                else
+                {
+                    messageReference.release();
+                }
+            }
+            catch (MessageDeletedException mde)
+            {
+                // pass
+            }
+        }
+
+        private void flowToDisk(final List<MessageReference<?>> batch)
+        {
+            if (!batch.isEmpty())
+            {
+                final List<StoredMessage<?>> storedMessages = new ArrayList<>(batch.size());
+                for (MessageReference<?> messageReference : batch)
+                {
+                    final StoredMessage<?> storedMessage = messageReference.getMessage().getStoredMessage();
+                    if (storedMessage.getInMemorySize() > 0)
+                    {
+                        storedMessages.add(storedMessage);
+                    }
+                }
+                try
+                {
+                    if (!storedMessages.isEmpty())
+                    {
+                        _queue.getVirtualHost().getMessageStore().flowToDisk(storedMessages);
+                    }
+                    for (MessageReference<?> messageReference : batch)
+                    {
+                        evictConvertedMessages(messageReference.getMessage());
+                    }
+                }
+                finally
+                {
+                    batch.forEach(MessageReference::release);
+                    batch.clear();
+                }
+            }
+        }
+
+        private static boolean isHeldInMemory(final ServerMessage<?> message)
+        {
+            return message.getStoredMessage().getInMemorySize() > 0 || getConvertedMessagesSize(message) > 0;
+        }
+
+        private static long getConvertedMessagesSize(final ServerMessage<?> message)
+        {
+            return message instanceof AbstractServerMessageImpl
+                    ? ((AbstractServerMessageImpl<?, ?>) message).getConvertedMessagesSize()
+                    : 0L;
+        }
+
+        private static void evictConvertedMessages(final ServerMessage<?> message)
+        {
+            if (message instanceof AbstractServerMessageImpl)
+            {
+                ((AbstractServerMessageImpl<?, ?>) message).evictConvertedMessages();
             }
         }
 
@@ -102,6 +102,7 @@ class QueueConsumerImpl<T extends ConsumerTarget>
     private final String _linkName;
 
     private volatile QueueConsumerNode _queueConsumerNode;
+    private volatile QueueEntrySelectorIndex.Registration _selectorRegistration;
     private volatile boolean _nonLive;
 
     QueueConsumerImpl(final AbstractQueue<?> queue,
@@ -420,6 +421,11 @@ class QueueConsumerImpl<T extends ConsumerTarget>
             {
                 try
                 {
+                    final QueueEntrySelectorIndex.Registration selectorRegistration = _selectorRegistration;
+                    if (selectorRegistration != null)
+                    {
+                        return selectorRegistration.matches(entry);
+                    }
 
                     Filterable msg = entry.asFilterable();
                     try
@@ -446,6 +452,16 @@ class QueueConsumerImpl<T extends ConsumerTarget>
         }
     }
 
+    QueueEntrySelectorIndex.Registration getSelectorRegistration()
+    {
+        return _selectorRegistration;
+    }
+
+    void setSelectorRegistration(final QueueEntrySelectorIndex.Registration selectorRegistration)
+    {
+        _selectorRegistration = selectorRegistration;
+    }
+
     protected String getFilterLogString()
     {
         StringBuilder filterLogString = new StringBuilder();
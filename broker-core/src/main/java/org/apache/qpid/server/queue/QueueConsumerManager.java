@@ -35,4 +35,5 @@ public interface QueueConsumerManager
 
     int getAllSize();
     int getHighestNotifiedPriority();
+    int getHighestInterestedPriority();
 }
@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class QueueConsumerManagerImpl implements QueueConsumerManager
 {
@@ -200,6 +201,30 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
         }
     }
 
+    /**
+     * Returns the priority of the highest priority acquiring consumer that wants to be notified of work, whether or
+     * not it is currently notified, or {@link Integer#MIN_VALUE} if there is none. Each priority keeps a count of
+     * such consumers, which is not disturbed by consumers moving between the interested and notified lists. The
+     * cost depends on the number of distinct consumer priorities rather than on the number of consumers.
+     */
+    @Override
+    public int getHighestInterestedPriority()
+    {
+        for (PriorityConsumerListPair pair : _allConsumers)
+        {
+            if (pair._workDesiredCount.get() > 0)
+            {
+                return pair._priority;
+            }
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    static boolean isWorkDesired(final NodeState state)
+    {
+        return EITHER_INTERESTED_OR_NOTIFIED.contains(state);
+    }
+
     QueueConsumerNodeListEntry addNodeToInterestList(final QueueConsumerNode queueConsumerNode)
     {
         QueueConsumerNodeListEntry newListEntry;
@@ -279,6 +304,7 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
             {
                 final QueueConsumerNodeListEntry entry = priorityConsumerListPair._consumers.add(consumerNode);
                 consumerNode.setAllEntry(entry);
+                consumerNode.setWorkDesiredCount(priorityConsumerListPair._workDesiredCount);
                 return;
             }
             else if (priorityConsumerListPair._priority < consumerPriority)
@@ -290,6 +316,7 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
         PriorityConsumerListPair newPriorityConsumerListPair = new PriorityConsumerListPair(consumerPriority);
         final QueueConsumerNodeListEntry entry = newPriorityConsumerListPair._consumers.add(consumerNode);
         consumerNode.setAllEntry(entry);
+        consumerNode.setWorkDesiredCount(newPriorityConsumerListPair._workDesiredCount);
         _allConsumers.add(i, newPriorityConsumerListPair);
         _notified.add(i, new PriorityConsumerListPair(consumerPriority));
         _interested.add(i, new PriorityConsumerListPair(consumerPriority));
@@ -325,6 +352,7 @@ public class QueueConsumerManagerImpl implements QueueConsumerManager
     {
         final int _priority;
         final QueueConsumerNodeList _consumers;
+        final AtomicInteger _workDesiredCount = new AtomicInteger();
 
         private PriorityConsumerListPair(final int priority)
         {
@@ -21,6 +21,7 @@
 package org.apache.qpid.server.queue;
 
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
 
 final class QueueConsumerNode
 {
@@ -29,6 +30,7 @@ final class QueueConsumerNode
     private QueueConsumerNodeListEntry _listEntry;
     private QueueConsumerManagerImpl.NodeState _state = QueueConsumerManagerImpl.NodeState.REMOVED;
     private QueueConsumerNodeListEntry _allEntry;
+    private AtomicInteger _workDesiredCount;
 
     QueueConsumerNode(final QueueConsumerManagerImpl queueConsumerManager, final QueueConsumer<?,?> queueConsumer)
     {
@@ -51,12 +53,24 @@ final class QueueConsumerNode
     {
         if (fromStates.contains(_state))
         {
+            final boolean wasWorkDesired = QueueConsumerManagerImpl.isWorkDesired(_state);
+            final boolean workDesired = QueueConsumerManagerImpl.isWorkDesired(toState);
+            // count the node before it leaves its old list and uncount it after it has joined its new one, so that
+            // a move between interest lists never makes its priority appear absent
+            if (workDesired && !wasWorkDesired)
+            {
+                _workDesiredCount.incrementAndGet();
+            }
             if (_listEntry != null)
             {
                 _listEntry.remove();
             }
             _state = toState;
             _listEntry = _queueConsumerManager.addNodeToInterestList(this);
+            if (wasWorkDesired && !workDesired)
+            {
+                _workDesiredCount.decrementAndGet();
+            }
             return true;
         }
         else
@@ -74,4 +88,9 @@ final class QueueConsumerNode
     {
         _allEntry = allEntry;
     }
+
+    void setWorkDesiredCount(final AtomicInteger workDesiredCount)
+    {
+        _workDesiredCount = workDesiredCount;
+    }
 }
@@ -41,6 +41,8 @@ public interface QueueEntry extends MessageInstance, Comparable<QueueEntry>
 
     QueueEntry getNextValidEntry();
 
+    long getExpiration();
+
     void setExpiration(long calculatedExpiration);
 
     MessageReference newMessageReference();
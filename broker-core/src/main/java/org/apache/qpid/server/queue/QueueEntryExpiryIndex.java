@@ -0,0 +1,129 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Orders the entries of a queue that have an expiration by their expiration time, so that housekeeping only needs
+ * to visit the entries which are due rather than the whole queue.
+ * <p>
+ * Entries are not removed from the index when they are consumed, nor is the previous record of an entry removed when
+ * its expiration is changed and the entry added again. Instead, records of deleted entries and records whose
+ * expiration no longer matches that of their entry are dropped when they become due, and
+ * {@link #purgeStaleEntries()} discards them eagerly when the owning queue finds the index has grown out of
+ * proportion to its depth.
+ */
+final class QueueEntryExpiryIndex
+{
+    private final AtomicLong _sequence = new AtomicLong();
+    private final AtomicInteger _size = new AtomicInteger();
+    private final ConcurrentSkipListSet<Expiry> _expiries = new ConcurrentSkipListSet<>();
+
+    void add(final QueueEntry entry, final long expiration)
+    {
+        _expiries.add(new Expiry(expiration, _sequence.incrementAndGet(), entry));
+        _size.incrementAndGet();
+    }
+
+    int size()
+    {
+        return _size.get();
+    }
+
+    /**
+     * Passes each entry expiring before the given time to the expirer, in order of expiration. Entries which are
+     * deleted, either beforehand or by the expirer, are removed from the index, as are stale records.
+     */
+    void processExpiredEntries(final long currentTime, final Consumer<QueueEntry> expirer)
+    {
+        final Iterator<Expiry> iterator = _expiries.iterator();
+        while (iterator.hasNext())
+        {
+            final Expiry expiry = iterator.next();
+            if (expiry._expiration >= currentTime)
+            {
+                break;
+            }
+
+            final QueueEntry entry = expiry._entry;
+            if (expiry.isStale())
+            {
+                remove(expiry);
+                continue;
+            }
+            expirer.accept(entry);
+            if (entry.isDeleted())
+            {
+                remove(expiry);
+            }
+        }
+    }
+
+    void purgeStaleEntries()
+    {
+        for (Expiry expiry : _expiries)
+        {
+            if (expiry.isStale())
+            {
+                remove(expiry);
+            }
+        }
+    }
+
+    private void remove(final Expiry expiry)
+    {
+        if (_expiries.remove(expiry))
+        {
+            _size.decrementAndGet();
+        }
+    }
+
+    private static final class Expiry implements Comparable<Expiry>
+    {
+        private final long _expiration;
+        private final long _sequence;
+        private final QueueEntry _entry;
+
+        private Expiry(final long expiration, final long sequence, final QueueEntry entry)
+        {
+            _expiration = expiration;
+            _sequence = sequence;
+            _entry = entry;
+        }
+
+        private boolean isStale()
+        {
+            return _entry.isDeleted() || _entry.getExpiration() != _expiration;
+        }
+
+        @Override
+        public int compareTo(final Expiry other)
+        {
+            final int result = Long.compare(_expiration, other._expiration);
+            return result == 0 ? Long.compare(_sequence, other._sequence) : result;
+        }
+    }
+}
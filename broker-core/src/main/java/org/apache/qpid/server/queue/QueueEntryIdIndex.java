@@ -0,0 +1,83 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maps the message numbers of the entries of a queue to the entries themselves, allowing management operations
+ * which address messages by id to find them without walking the queue.
+ * <p>
+ * Entries are added when they are enqueued and removed when they are deleted.
+ */
+final class QueueEntryIdIndex
+{
+    private final ConcurrentMap<Long, QueueEntry> _entries = new ConcurrentHashMap<>();
+
+    void add(final QueueEntry entry)
+    {
+        _entries.put(entry.getMessage().getMessageNumber(), entry);
+    }
+
+    void remove(final QueueEntry entry)
+    {
+        _entries.remove(entry.getMessage().getMessageNumber(), entry);
+    }
+
+    int size()
+    {
+        return _entries.size();
+    }
+
+    /**
+     * @return the entry holding the message with the given number, or null if there is no such entry which has not
+     * been deleted
+     */
+    QueueEntry get(final long messageNumber)
+    {
+        final QueueEntry entry = _entries.get(messageNumber);
+        return entry == null || entry.isDeleted() ? null : entry;
+    }
+
+    /**
+     * @return the entries which have not been deleted holding the messages with the given numbers, in queue order
+     */
+    List<QueueEntry> get(final Collection<Long> messageNumbers)
+    {
+        final List<QueueEntry> entries = new ArrayList<>(messageNumbers.size());
+        for (Long messageNumber : new LinkedHashSet<>(messageNumbers))
+        {
+            final QueueEntry entry = get(messageNumber);
+            if (entry != null)
+            {
+                entries.add(entry);
+            }
+        }
+        Collections.sort(entries);
+        return entries;
+    }
+}
@@ -116,6 +116,8 @@ public abstract class QueueEntryImpl implements QueueEntry
 
     private final MessageEnqueueRecord _enqueueRecord;
 
+    private volatile QueueEntrySelectorIndex.EntryMatches _selectorMatches;
+
 
     QueueEntryImpl(QueueEntryList queueEntryList)
     {
@@ -160,6 +162,12 @@ public abstract class QueueEntryImpl implements QueueEntry
         }
     }
 
+    @Override
+    public long getExpiration()
+    {
+        return _expiration;
+    }
+
     @Override
     public void setExpiration(long expiration)
     {
@@ -577,6 +585,11 @@ public abstract class QueueEntryImpl implements QueueEntry
         {
             notifyStateChange(state, DELETED_STATE);
             _queueEntryList.entryDeleted(this);
+            final Queue<?> queue = getQueue();
+            if (queue instanceof MessageIdIndexedQueue)
+            {
+                ((MessageIdIndexedQueue) queue).entryDeleted(this);
+            }
             onDelete();
             _message.release();
 
@@ -737,6 +750,16 @@ public abstract class QueueEntryImpl implements QueueEntry
         _deliveryCountUpdater.decrementAndGet(this);
     }
 
+    QueueEntrySelectorIndex.EntryMatches getSelectorMatches()
+    {
+        return _selectorMatches;
+    }
+
+    void setSelectorMatches(final QueueEntrySelectorIndex.EntryMatches selectorMatches)
+    {
+        _selectorMatches = selectorMatches;
+    }
+
     @Override
     public Filterable asFilterable()
     {
@@ -0,0 +1,337 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.filter.ArrivalTimeFilter;
+import org.apache.qpid.server.filter.FilterManager;
+import org.apache.qpid.server.filter.Filterable;
+import org.apache.qpid.server.filter.FilterableMessage;
+import org.apache.qpid.server.filter.JMSMessagePropertyExpression;
+import org.apache.qpid.server.filter.JMSSelectorFilter;
+import org.apache.qpid.server.filter.MessageFilter;
+import org.apache.qpid.server.filter.PropertyExpression;
+import org.apache.qpid.server.filter.SelectorParsingException;
+
+/**
+ * Evaluates the filters of the consumers of a queue against each entry once, rather than once for every consumer
+ * that inspects the entry.
+ * <p>
+ * Only filters whose outcome depends on the message alone are indexed; a consumer with any other filter, such as a
+ * no-local filter, whose outcome depends on the consumers of the queue, is not registered and evaluates its filters
+ * itself. Consumers with equal filters share a registration. Registrations whose filter is a JMS selector testing a single
+ * message property for equality with a string literal, such as {@code region = 'EMEA'}, are grouped by property so
+ * that the property is read once per entry and the matching registrations are found by a hash lookup. Any other
+ * filter is evaluated once per entry.
+ * <p>
+ * The outcome for an entry is cached on the entry together with the set of registrations it was computed for, and is
+ * computed afresh when a registration has been added or removed since. The cache is dropped from the entry once every
+ * registration it was computed for has asked for its outcome.
+ */
+final class QueueEntrySelectorIndex
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueueEntrySelectorIndex.class);
+
+    private final Map<FilterManager, Registration> _registrations = new HashMap<>();
+    private final BitSet _usedSlots = new BitSet();
+    private volatile Snapshot _snapshot = new Snapshot(Collections.emptyList());
+
+    /**
+     * Returns the registration for the given filters, or null if the filters cannot be indexed.
+     */
+    synchronized Registration register(final FilterManager filters)
+    {
+        if (!isIndexable(filters))
+        {
+            return null;
+        }
+
+        Registration registration = _registrations.get(filters);
+        if (registration == null)
+        {
+            final int slot = _usedSlots.nextClearBit(0);
+            _usedSlots.set(slot);
+            registration = new Registration(this, filters, slot);
+            _registrations.put(filters, registration);
+            _snapshot = new Snapshot(_registrations.values());
+        }
+        registration._consumerCount++;
+        return registration;
+    }
+
+    synchronized void unregister(final Registration registration)
+    {
+        if (--registration._consumerCount == 0)
+        {
+            _registrations.remove(registration._filters);
+            _usedSlots.clear(registration._slot);
+            _snapshot = new Snapshot(_registrations.values());
+        }
+    }
+
+    int getRegistrationCount()
+    {
+        return _snapshot._registrations.size();
+    }
+
+    private static boolean isIndexable(final FilterManager filters)
+    {
+        final Iterator<MessageFilter> iterator = filters.filters();
+        while (iterator.hasNext())
+        {
+            final MessageFilter filter = iterator.next();
+            if (!(filter instanceof JMSSelectorFilter || filter instanceof ArrivalTimeFilter))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(final QueueEntry entry, final Registration registration)
+    {
+        final Snapshot snapshot = _snapshot;
+        if (!(entry instanceof QueueEntryImpl) || !snapshot.contains(registration))
+        {
+            return allows(registration._filters, entry.asFilterable());
+        }
+
+        final QueueEntryImpl queueEntry = (QueueEntryImpl) entry;
+        EntryMatches entryMatches = queueEntry.getSelectorMatches();
+        if (entryMatches == null || entryMatches._snapshot != snapshot)
+        {
+            entryMatches = new EntryMatches(snapshot, snapshot.evaluate(entry.asFilterable()));
+            queueEntry.setSelectorMatches(entryMatches);
+        }
+        if (entryMatches.markEvaluated(registration._slot) && queueEntry.getSelectorMatches() == entryMatches)
+        {
+            queueEntry.setSelectorMatches(null);
+        }
+        return entryMatches._matched.get(registration._slot);
+    }
+
+    private static boolean allows(final FilterManager filters, final Filterable message)
+    {
+        try
+        {
+            return filters.allAllow(message);
+        }
+        catch (SelectorParsingException e)
+        {
+            LOGGER.info("Could not evaluate filter [" + filters + "] against message " + message
+                        + ". Error was : " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * The filter shared by the consumers of a queue with equal filters.
+     */
+    static final class Registration
+    {
+        private final QueueEntrySelectorIndex _index;
+        private final FilterManager _filters;
+        private final int _slot;
+        private int _consumerCount;
+
+        private Registration(final QueueEntrySelectorIndex index, final FilterManager filters, final int slot)
+        {
+            _index = index;
+            _filters = filters;
+            _slot = slot;
+        }
+
+        /**
+         * Returns whether the filter allows the message of the entry. The caller must hold a reference to the
+         * message.
+         */
+        boolean matches(final QueueEntry entry)
+        {
+            return _index.matches(entry, this);
+        }
+    }
+
+    static final class EntryMatches
+    {
+        private final Snapshot _snapshot;
+        private final BitSet _matched;
+        private final BitSet _evaluated = new BitSet();
+        private int _remaining;
+
+        private EntryMatches(final Snapshot snapshot, final BitSet matched)
+        {
+            _snapshot = snapshot;
+            _matched = matched;
+            _remaining = snapshot._registrations.size();
+        }
+
+        /**
+         * Records that the registration in the given slot has asked for its outcome, and returns true once every
+         * registration has.
+         */
+        private synchronized boolean markEvaluated(final int slot)
+        {
+            if (!_evaluated.get(slot))
+            {
+                _evaluated.set(slot);
+                _remaining--;
+            }
+            return _remaining == 0;
+        }
+    }
+
+    private static final class Snapshot
+    {
+        private final List<Registration> _registrations;
+        private final Registration[] _registrationsBySlot;
+        private final Map<String, PropertyEquality> _propertyEqualities = new HashMap<>();
+        private final List<Registration> _otherRegistrations = new ArrayList<>();
+
+        private Snapshot(final Collection<Registration> registrations)
+        {
+            _registrations = new ArrayList<>(registrations);
+            int slots = 0;
+            for (Registration registration : _registrations)
+            {
+                slots = Math.max(slots, registration._slot + 1);
+            }
+            _registrationsBySlot = new Registration[slots];
+            for (Registration registration : _registrations)
+            {
+                _registrationsBySlot[registration._slot] = registration;
+
+                final JMSSelectorFilter selector = getEqualitySelector(registration._filters);
+                if (selector == null)
+                {
+                    _otherRegistrations.add(registration);
+                }
+                else
+                {
+                    _propertyEqualities.computeIfAbsent(selector.getEqualityPropertyName(), PropertyEquality::new)
+                                       .add(selector.getEqualityValue(), registration);
+                }
+            }
+        }
+
+        private static JMSSelectorFilter getEqualitySelector(final FilterManager filters)
+        {
+            final Iterator<MessageFilter> iterator = filters.filters();
+            if (iterator.hasNext())
+            {
+                final MessageFilter filter = iterator.next();
+                if (!iterator.hasNext()
+                    && filter instanceof JMSSelectorFilter
+                    && ((JMSSelectorFilter) filter).getEqualityPropertyName() != null)
+                {
+                    return (JMSSelectorFilter) filter;
+                }
+            }
+            return null;
+        }
+
+        private boolean contains(final Registration registration)
+        {
+            return registration._slot < _registrationsBySlot.length
+                   && _registrationsBySlot[registration._slot] == registration;
+        }
+
+        private BitSet evaluate(final Filterable message)
+        {
+            final BitSet matched = new BitSet();
+            for (PropertyEquality propertyEquality : _propertyEqualities.values())
+            {
+                propertyEquality.evaluate(message, matched);
+            }
+            for (Registration registration : _otherRegistrations)
+            {
+                if (allows(registration._filters, message))
+                {
+                    matched.set(registration._slot);
+                }
+            }
+            return matched;
+        }
+    }
+
+    private static final class PropertyEquality
+    {
+        private final PropertyExpression<FilterableMessage> _property;
+        private final Map<String, BitSet> _slotsByValue = new HashMap<>();
+        private final List<Registration> _registrations = new ArrayList<>();
+
+        private PropertyEquality(final String propertyName)
+        {
+            _property = JMSMessagePropertyExpression.FACTORY.createPropertyExpression(propertyName);
+        }
+
+        private void add(final String value, final Registration registration)
+        {
+            _slotsByValue.computeIfAbsent(value, v -> new BitSet()).set(registration._slot);
+            _registrations.add(registration);
+        }
+
+        private void evaluate(final Filterable message, final BitSet matched)
+        {
+            final Object value;
+            try
+            {
+                value = _property.evaluate(message);
+            }
+            catch (SelectorParsingException e)
+            {
+                LOGGER.info("Could not evaluate property [" + _property + "] against message " + message
+                            + ". Error was : " + e.getMessage());
+                return;
+            }
+
+            if (value instanceof String)
+            {
+                final BitSet slots = _slotsByValue.get(value);
+                if (slots != null)
+                {
+                    matched.or(slots);
+                }
+            }
+            else if (value != null)
+            {
+                // comparisons with values of other types are subject to conversion, so are left to the selectors
+                for (Registration registration : _registrations)
+                {
+                    if (allows(registration._filters, message))
+                    {
+                        matched.set(registration._slot);
+                    }
+                }
+            }
+        }
+    }
+}
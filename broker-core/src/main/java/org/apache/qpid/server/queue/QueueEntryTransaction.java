@@ -49,7 +49,7 @@ abstract class QueueEntryTransaction implements QueueManagingVirtualHost.Transac
     {
         if(_limit != 0)
         {
-            _sourceQueue.visit(new QueueEntryVisitor()
+            final QueueEntryVisitor visitor = new QueueEntryVisitor()
             {
 
                 @Override
@@ -73,7 +73,16 @@ abstract class QueueEntryTransaction implements QueueManagingVirtualHost.Transac
                     }
                     return stop || _limit == 0 || (_messageIds != null && _messageIds.isEmpty());
                 }
-            });
+            };
+
+            if (_messageIds != null && _sourceQueue instanceof MessageIdIndexedQueue)
+            {
+                ((MessageIdIndexedQueue) _sourceQueue).visit(new ArrayList<>(_messageIds), visitor);
+            }
+            else
+            {
+                _sourceQueue.visit(visitor);
+            }
         }
 
     }
@@ -21,6 +21,7 @@
 package org.apache.qpid.server.queue;
 
 import org.apache.qpid.server.model.ManagedAttribute;
+import org.apache.qpid.server.model.ManagedContextDefault;
 import org.apache.qpid.server.model.ManagedObject;
 import org.apache.qpid.server.model.Queue;
 
@@ -31,6 +32,13 @@ public interface SortedQueue<X extends SortedQueue<X>> extends Queue<X>
     String SORT_KEY = "sortKey";
     String SORTED_QUEUE_TYPE = "sorted";
 
+    String SORTED_QUEUE_CONCURRENT_ENTRY_LIST = "queue.sorted.concurrentEntryList";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = SORTED_QUEUE_CONCURRENT_ENTRY_LIST,
+            description = "If true, the sorted queue holds its entries in a concurrent skip list rather than a "
+                          + "red-black tree guarded by a single lock. Takes effect when the queue is opened.")
+    boolean DEFAULT_SORTED_QUEUE_CONCURRENT_ENTRY_LIST = false;
+
     @ManagedAttribute( mandatory = true )
     String getSortKey();
 
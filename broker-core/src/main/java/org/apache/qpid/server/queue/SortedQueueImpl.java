@@ -38,7 +38,8 @@ public class SortedQueueImpl extends OutOfOrderQueue<SortedQueueImpl> implements
 
     @ManagedAttributeField
     private String _sortKey;
-    private SortedQueueEntryList _entries;
+    private QueueEntryList _entries;
+    private boolean _serialiseEnqueues;
 
     @ManagedObjectFactoryConstructor
     public SortedQueueImpl(Map<String, Object> attributes, QueueManagingVirtualHost<?> virtualHost)
@@ -50,7 +51,16 @@ public class SortedQueueImpl extends OutOfOrderQueue<SortedQueueImpl> implements
     protected void onOpen()
     {
         super.onOpen();
-        _entries = new SortedQueueEntryList(this, getQueueStatistics());
+        if (getContextValue(Boolean.class, SORTED_QUEUE_CONCURRENT_ENTRY_LIST))
+        {
+            _entries = new ConcurrentSortedQueueEntryList(this, getQueueStatistics());
+            _serialiseEnqueues = false;
+        }
+        else
+        {
+            _entries = new SortedQueueEntryList(this, getQueueStatistics());
+            _serialiseEnqueues = true;
+        }
     }
 
     @Override
@@ -58,14 +68,21 @@ public class SortedQueueImpl extends OutOfOrderQueue<SortedQueueImpl> implements
                         final Action<? super MessageInstance> action,
                         MessageEnqueueRecord record)
     {
-        synchronized (_sortedQueueLock)
+        if (_serialiseEnqueues)
+        {
+            synchronized (_sortedQueueLock)
+            {
+                return super.doEnqueue(message, action, record);
+            }
+        }
+        else
         {
             return super.doEnqueue(message, action, record);
         }
     }
 
     @Override
-    SortedQueueEntryList getEntries()
+    QueueEntryList getEntries()
     {
         return _entries;
     }
@@ -19,16 +19,27 @@
 
 package org.apache.qpid.server.store;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +59,9 @@ public abstract class AbstractJsonFileStore
     private String _backupFileName;
     private String _tempFileName;
     private String _lockFileName;
+    private String _journalFileName;
+    private String _posixFileAttributes;
+    private Writer _journalWriter;
 
     protected AbstractJsonFileStore()
     {
@@ -94,6 +108,7 @@ public abstract class AbstractJsonFileStore
             _configFileName = fileFromSettings.getName();
             _backupFileName = fileFromSettings.getName() + ".bak";
             _tempFileName = fileFromSettings.getName() + ".tmp";
+            _journalFileName = fileFromSettings.getName() + ".journal";
 
             _lockFileName = fileFromSettings.getName() + ".lck";
         }
@@ -103,11 +118,14 @@ public abstract class AbstractJsonFileStore
             _configFileName = name + ".json";
             _backupFileName = name + ".bak";
             _tempFileName = name + ".tmp";
+            _journalFileName = name + ".journal";
 
             _lockFileName = name + ".lck";
         }
 
 
+        _posixFileAttributes = posixFileAttributes;
+
         checkDirectoryIsWritable(_directoryName);
         getFileLock();
 
@@ -152,7 +170,14 @@ public abstract class AbstractJsonFileStore
 
     protected void cleanup()
     {
-        releaseFileLock();
+        try
+        {
+            closeJournal();
+        }
+        finally
+        {
+            releaseFileLock();
+        }
     }
 
     private void getFileLock()
@@ -230,6 +255,113 @@ public abstract class AbstractJsonFileStore
         }
     }
 
+    /**
+     * Appends the given entry to the journal kept alongside the configuration file as a single line of JSON.
+     */
+    protected void appendToJournal(final Object entry)
+    {
+        final File journalFile = getJournalFile();
+        try
+        {
+            if (_journalWriter == null)
+            {
+                if (!journalFile.exists())
+                {
+                    _fileHelper.createNewFile(journalFile, _posixFileAttributes);
+                }
+                _journalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true),
+                                                                           StandardCharsets.UTF_8));
+            }
+            _journalWriter.write(getSerialisationObjectMapper().writer()
+                                                               .without(SerializationFeature.INDENT_OUTPUT)
+                                                               .writeValueAsString(entry));
+            _journalWriter.write('\n');
+            _journalWriter.flush();
+        }
+        catch (IOException e)
+        {
+            throw new StoreException("Cannot append to journal " + journalFile, e);
+        }
+    }
+
+    /**
+     * Reads the entries of the journal in the order they were appended. An incomplete final entry, as left behind
+     * if the broker stopped whilst appending it, is ignored.
+     */
+    protected List<Map<String, Object>> readJournal()
+    {
+        final File journalFile = getJournalFile();
+        if (!journalFile.exists())
+        {
+            return Collections.emptyList();
+        }
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final List<Map<String, Object>> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8))
+        {
+            String line = reader.readLine();
+            while (line != null)
+            {
+                final String nextLine = reader.readLine();
+                if (!line.trim().isEmpty())
+                {
+                    try
+                    {
+                        entries.add(objectMapper.readValue(line, Map.class));
+                    }
+                    catch (JsonProcessingException e)
+                    {
+                        if (nextLine != null)
+                        {
+                            throw new StoreException("Cannot parse entry in journal " + journalFile, e);
+                        }
+                        LOGGER.warn("Ignoring incomplete final entry in journal {}", journalFile);
+                    }
+                }
+                line = nextLine;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new StoreException("Cannot read journal " + journalFile, e);
+        }
+        return entries;
+    }
+
+    protected void discardJournal()
+    {
+        closeJournal();
+        final File journalFile = getJournalFile();
+        try
+        {
+            Files.deleteIfExists(journalFile.toPath());
+        }
+        catch (IOException e)
+        {
+            throw new StoreException("Cannot delete journal " + journalFile, e);
+        }
+    }
+
+    private void closeJournal()
+    {
+        if (_journalWriter != null)
+        {
+            try
+            {
+                _journalWriter.close();
+            }
+            catch (IOException e)
+            {
+                throw new StoreException("Failed to close journal " + getJournalFile(), e);
+            }
+            finally
+            {
+                _journalWriter = null;
+            }
+        }
+    }
+
     private void releaseFileLock()
     {
         if (_fileLock != null)
@@ -255,6 +387,11 @@ public abstract class AbstractJsonFileStore
         return new File(_directoryName, _configFileName);
     }
 
+    protected File getJournalFile()
+    {
+        return new File(_directoryName, _journalFileName);
+    }
+
     protected void delete(final String storePath)
     {
         if (storePath != null)
@@ -269,6 +406,15 @@ public abstract class AbstractJsonFileStore
             {
                 LOGGER.info("Failed to delete the store at location " + storePath);
             }
+
+            if (_directoryName != null && _journalFileName != null)
+            {
+                File journalFile = getJournalFile();
+                if (journalFile.exists() && !FileUtils.delete(journalFile, false))
+                {
+                    LOGGER.info("Failed to delete the store journal at location " + journalFile);
+                }
+            }
         }
 
         _configFileName = null;
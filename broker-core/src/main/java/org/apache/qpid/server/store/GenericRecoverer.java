@@ -20,10 +20,12 @@
  */
 package org.apache.qpid.server.store;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -49,9 +51,14 @@ public class GenericRecoverer
         _root = root;
     }
 
+    /**
+     * Recovers the descendants of the root from the given records. The recovery runs on the executor of the
+     * root's children, which is the executor the recovered objects belong to, so that subtrees with their own
+     * executors, such as those of virtual host nodes, are recovered independently of each other.
+     */
     public void recover(final List<ConfiguredObjectRecord> records, final boolean isNew)
     {
-        _root.getTaskExecutor().run(new Task<Void, RuntimeException>()
+        _root.getChildExecutor().run(new Task<Void, RuntimeException>()
         {
             @Override
             public Void execute()
@@ -141,6 +148,12 @@ public class GenericRecoverer
         return false;
     }
 
+    /**
+     * Recovers the objects described by the records, starting from the given root and working down the
+     * hierarchy. Records are indexed by their parent, so each record is visited once its parent is resolved
+     * rather than on every pass until then. Objects whose dependencies on other objects cannot yet be resolved
+     * are retried whenever no further objects can be reached through the hierarchy.
+     */
     private void resolveObjects(ConfiguredObject<?> parentObject,
                                 List<ConfiguredObjectRecord> records,
                                 final boolean isNew)
@@ -149,7 +162,19 @@ public class GenericRecoverer
         Map<UUID, ConfiguredObject<?>> resolvedObjects = new HashMap<UUID, ConfiguredObject<?>>();
         resolvedObjects.put(parentObject.getId(), parentObject);
 
-        Collection<ConfiguredObjectRecord> recordsWithUnresolvedParents = new ArrayList<ConfiguredObjectRecord>(records);
+        Map<UUID, List<ConfiguredObjectRecord>> recordsByParentId = new HashMap<>();
+        for (ConfiguredObjectRecord record : records)
+        {
+            Collection<UUID> parentIds = record.getParents().values();
+            if (parentIds.size() > 1)
+            {
+                throw new IllegalStateException(String.format("Unexpected number of parents %d for record %s ", parentIds.size(), record));
+            }
+            recordsByParentId.computeIfAbsent(parentIds.iterator().next(), id -> new ArrayList<>()).add(record);
+        }
+
+        Deque<ConfiguredObject<?>> resolvedParents = new ArrayDeque<>();
+        resolvedParents.add(parentObject);
         Collection<UnresolvedConfiguredObject<? extends ConfiguredObject>> recordsWithUnresolvedDependencies =
                 new ArrayList<UnresolvedConfiguredObject<? extends ConfiguredObject>>();
 
@@ -157,53 +182,35 @@ public class GenericRecoverer
 
         do
         {
-            updatesMade = false;
-            Iterator<ConfiguredObjectRecord> iter = recordsWithUnresolvedParents.iterator();
-            while (iter.hasNext())
+            ConfiguredObject<?> resolvedParent;
+            while ((resolvedParent = resolvedParents.poll()) != null)
             {
-                ConfiguredObjectRecord record = iter.next();
-                Collection<ConfiguredObject<?>> parents = new ArrayList<ConfiguredObject<?>>();
-                boolean foundParents = true;
-                for (UUID parentId : record.getParents().values())
+                List<ConfiguredObjectRecord> childRecords = recordsByParentId.remove(resolvedParent.getId());
+                if (childRecords != null)
                 {
-                    if (!resolvedObjects.containsKey(parentId))
-                    {
-                        foundParents = false;
-                        break;
-                    }
-                    else
+                    for (ConfiguredObjectRecord record : childRecords)
                     {
-                        parents.add(resolvedObjects.get(parentId));
-                    }
-                }
-                if (parents.size() > 1)
-                {
-                    throw new IllegalStateException(String.format("Unexpected number of parents %d for record %s ", parents.size(), record));
-                }
-                if (foundParents)
-                {
-                    iter.remove();
-                    ConfiguredObject<?>[] parentArray = parents.toArray(new ConfiguredObject<?>[parents.size()]);
-                    UnresolvedConfiguredObject<? extends ConfiguredObject> recovered =  factory.recover(record, parentArray[0]);
-                    Collection<ConfiguredObjectDependency<?>> dependencies = recovered.getUnresolvedDependencies();
-                    if (dependencies.isEmpty())
-                    {
-                        updatesMade = true;
-                        ConfiguredObject<?> resolved = recovered.resolve();
-                        if(!isNew)
+                        UnresolvedConfiguredObject<? extends ConfiguredObject> recovered = factory.recover(record, resolvedParent);
+                        Collection<ConfiguredObjectDependency<?>> dependencies = recovered.getUnresolvedDependencies();
+                        if (dependencies.isEmpty())
                         {
-                            resolved.decryptSecrets();
+                            ConfiguredObject<?> resolved = recovered.resolve();
+                            if(!isNew)
+                            {
+                                resolved.decryptSecrets();
+                            }
+                            resolvedObjects.put(resolved.getId(), resolved);
+                            resolvedParents.add(resolved);
+                        }
+                        else
+                        {
+                            recordsWithUnresolvedDependencies.add(recovered);
                         }
-                        resolvedObjects.put(resolved.getId(), resolved);
-                    }
-                    else
-                    {
-                        recordsWithUnresolvedDependencies.add(recovered);
                     }
                 }
-
             }
 
+            updatesMade = false;
             Iterator<UnresolvedConfiguredObject<? extends ConfiguredObject>> unresolvedIter = recordsWithUnresolvedDependencies.iterator();
 
             while(unresolvedIter.hasNext())
@@ -243,17 +250,20 @@ public class GenericRecoverer
                     unresolvedIter.remove();
                     ConfiguredObject<?> resolved = unresolvedObject.resolve();
                     resolvedObjects.put(resolved.getId(), resolved);
+                    resolvedParents.add(resolved);
                 }
             }
 
-        } while(updatesMade && !(recordsWithUnresolvedDependencies.isEmpty() && recordsWithUnresolvedParents.isEmpty()));
+        } while(updatesMade && !(recordsWithUnresolvedDependencies.isEmpty() && recordsByParentId.isEmpty()));
 
         if(!recordsWithUnresolvedDependencies.isEmpty())
         {
             throw new IllegalArgumentException("Cannot resolve some objects: " + recordsWithUnresolvedDependencies);
         }
-        if(!recordsWithUnresolvedParents.isEmpty())
+        if(!recordsByParentId.isEmpty())
         {
+            Collection<ConfiguredObjectRecord> recordsWithUnresolvedParents = new ArrayList<>();
+            recordsByParentId.values().forEach(recordsWithUnresolvedParents::addAll);
             throw new IllegalArgumentException("Cannot resolve object because their parents cannot be found" + recordsWithUnresolvedParents);
         }
     }
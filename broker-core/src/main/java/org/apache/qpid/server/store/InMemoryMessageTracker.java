@@ -0,0 +1,116 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Orders the messages of a store which hold data in memory by their last use, so that flow to disk can release
+ * memory from the least recently used messages without walking the queues.
+ * <p>
+ * Stores record a use of a message whenever its data is loaded or read and forget the message when its data is
+ * released. A use stamps the message with a new sequence number, but only if the message has not been stamped since
+ * the last time memory was released: the recency of messages used between two releases is that of their first use
+ * in that period, which keeps repeated reads of a message down to a single map lookup. The stamp of a message and its
+ * place in the order are updated together while holding the message's entry in the map of stamps, so a use and a
+ * release of the same message cannot interleave.
+ */
+public class InMemoryMessageTracker
+{
+    private final AtomicLong _sequence = new AtomicLong();
+    private final ConcurrentMap<StoredMessage<?>, Long> _lastUse = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, StoredMessage<?>> _messagesByLastUse = new ConcurrentSkipListMap<>();
+    private volatile long _periodStart;
+
+    public void touch(final StoredMessage<?> message)
+    {
+        final Long current = _lastUse.get(message);
+        if (current == null || current < _periodStart)
+        {
+            _lastUse.compute(message, (m, previous) ->
+            {
+                if (previous != null && previous >= _periodStart)
+                {
+                    return previous;
+                }
+                final long sequence = _sequence.incrementAndGet();
+                _messagesByLastUse.put(sequence, m);
+                if (previous != null)
+                {
+                    _messagesByLastUse.remove(previous, m);
+                }
+                return sequence;
+            });
+        }
+    }
+
+    public void remove(final StoredMessage<?> message)
+    {
+        _lastUse.computeIfPresent(message, (m, sequence) ->
+        {
+            _messagesByLastUse.remove(sequence, m);
+            return null;
+        });
+    }
+
+    public int size()
+    {
+        return _lastUse.size();
+    }
+
+    public void clear()
+    {
+        _lastUse.clear();
+        _messagesByLastUse.clear();
+    }
+
+    /**
+     * Flows messages to disk, least recently used first, until at least the given number of bytes have been
+     * released from memory or no tracked messages remain.
+     *
+     * @return the number of bytes released
+     */
+    public long flowToDisk(final long bytesToRelease)
+    {
+        _periodStart = _sequence.get() + 1;
+
+        long bytesReleased = 0;
+        Map.Entry<Long, StoredMessage<?>> entry = _messagesByLastUse.firstEntry();
+        while (entry != null && bytesReleased < bytesToRelease)
+        {
+            final Long sequence = entry.getKey();
+            final StoredMessage<?> message = entry.getValue();
+            if (_lastUse.remove(message, sequence))
+            {
+                _messagesByLastUse.remove(sequence, message);
+                final long inMemorySize = message.getInMemorySize();
+                message.flowToDisk();
+                bytesReleased += inMemorySize - message.getInMemorySize();
+            }
+            entry = _messagesByLastUse.higherEntry(sequence);
+        }
+        return bytesReleased;
+    }
+}
@@ -36,6 +36,9 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -50,11 +53,33 @@ import org.apache.qpid.server.model.Model;
 import org.apache.qpid.server.model.SystemConfig;
 import org.apache.qpid.server.plugin.QpidServiceLoader;
 import org.apache.qpid.server.store.handler.ConfiguredObjectRecordHandler;
-
+import org.apache.qpid.server.util.DaemonThreadFactory;
+
+/**
+ * Durable configuration store holding the configuration as a single JSON document.
+ * <p>
+ * By default every change rewrites the whole document. If {@link #JOURNAL_ENABLED} is set, changes are instead
+ * appended to a journal kept alongside the document, and the document is rewritten in the background once the
+ * journal holds {@link #JOURNAL_COMPACTION_THRESHOLD} entries. On open or reload the journal is replayed over the
+ * document.
+ */
 public class JsonFileConfigStore extends AbstractJsonFileStore implements DurableConfigurationStore
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(JsonFileConfigStore.class);
 
+    public static final String JOURNAL_ENABLED = SystemConfig.JSON_CONFIG_STORE_JOURNAL_ENABLED;
+    public static final String JOURNAL_COMPACTION_THRESHOLD = SystemConfig.JSON_CONFIG_STORE_JOURNAL_COMPACTION_THRESHOLD;
+
+    private static final String JOURNAL_OPERATION = "operation";
+    private static final String JOURNAL_OPERATION_UPDATE = "update";
+    private static final String JOURNAL_OPERATION_REMOVE = "remove";
+    private static final String JOURNAL_RECORDS = "records";
+    private static final String JOURNAL_IDS = "ids";
+    private static final String JOURNAL_RECORD_ID = "id";
+    private static final String JOURNAL_RECORD_TYPE = "type";
+    private static final String JOURNAL_RECORD_ATTRIBUTES = "attributes";
+    private static final String JOURNAL_RECORD_PARENTS = "parents";
+
     private static final Comparator<Class<? extends ConfiguredObject>> CATEGORY_CLASS_COMPARATOR =
             new Comparator<Class<? extends ConfiguredObject>>()
             {
@@ -85,6 +110,12 @@ public class JsonFileConfigStore extends AbstractJsonFileStore implements Durabl
 
     private ConfiguredObject<?> _parent;
 
+    private volatile boolean _journalEnabled;
+    private volatile int _journalCompactionThreshold;
+    private int _journalEntryCount;
+    private boolean _compactionScheduled;
+    private ExecutorService _compactionExecutor;
+
     private enum State { CLOSED, CONFIGURED, OPEN };
     private State _state = State.CLOSED;
     private final Object _lock = new Object();
@@ -114,16 +145,27 @@ public class JsonFileConfigStore extends AbstractJsonFileStore implements Durabl
               fileBasedSettings.getStorePath(),
               parent.getContextValue(String.class, SystemConfig.POSIX_FILE_PERMISSIONS),
               Collections.emptyMap());
+
+        _journalEnabled = Boolean.TRUE.equals(parent.getContextValue(Boolean.class, JOURNAL_ENABLED));
+        final Integer compactionThreshold = parent.getContextValue(Integer.class, JOURNAL_COMPACTION_THRESHOLD);
+        _journalCompactionThreshold = compactionThreshold == null
+                ? SystemConfig.DEFAULT_JSON_CONFIG_STORE_JOURNAL_COMPACTION_THRESHOLD
+                : compactionThreshold;
         changeState(State.CLOSED, State.CONFIGURED);
 
     }
 
     @Override
-    public boolean openConfigurationStore(ConfiguredObjectRecordHandler handler,
-                                          final ConfiguredObjectRecord... initialRecords)
+    public synchronized boolean openConfigurationStore(ConfiguredObjectRecordHandler handler,
+                                                       final ConfiguredObjectRecord... initialRecords)
     {
         changeState(State.CONFIGURED, State.OPEN);
         boolean isNew = load(initialRecords);
+        if (_journalEnabled)
+        {
+            _compactionExecutor = Executors.newSingleThreadExecutor(
+                    new DaemonThreadFactory("JsonConfigStore-Compaction-" + _parent.getName()));
+        }
         List<ConfiguredObjectRecord> records = new ArrayList<ConfiguredObjectRecord>(_objectsById.values());
         for(ConfiguredObjectRecord record : records)
         {
@@ -133,7 +175,7 @@ public class JsonFileConfigStore extends AbstractJsonFileStore implements Durabl
     }
 
     @Override
-    public void reload(ConfiguredObjectRecordHandler handler)
+    public synchronized void reload(ConfiguredObjectRecordHandler handler)
     {
         assertState(State.OPEN);
         _idsByType.clear();
@@ -218,10 +260,17 @@ public class JsonFileConfigStore extends AbstractJsonFileStore implements Durabl
                 }
                 idsForType.add(record.getId());
             }
+
+            _journalEntryCount = 0;
             if(updated)
             {
                 save();
             }
+            else if(replayJournal() > 0
+                    && (!_journalEnabled || _journalEntryCount >= _journalCompactionThreshold))
+            {
+                save();
+            }
             return updated;
         }
         catch (IOException e)
@@ -272,7 +321,7 @@ public class JsonFileConfigStore extends AbstractJsonFileStore implements Durabl
 
             idsForType.add(record.getId());
 
-            save();
+            persist(Collections.singletonList(record));
         }
     }
 
@@ -304,6 +353,163 @@ public class JsonFileConfigStore extends AbstractJsonFileStore implements Durabl
         }
 
         save(data);
+        discardJournal();
+        _journalEntryCount = 0;
+    }
+
+    private void persist(final Collection<ConfiguredObjectRecord> records)
+    {
+        if (_journalEnabled)
+        {
+            List<Map<String, Object>> journalRecords = new ArrayList<>(records.size());
+            for (ConfiguredObjectRecord record : records)
+            {
+                Map<String, Object> journalRecord = new LinkedHashMap<>();
+                journalRecord.put(JOURNAL_RECORD_ID, record.getId());
+                journalRecord.put(JOURNAL_RECORD_TYPE, record.getType());
+                journalRecord.put(JOURNAL_RECORD_ATTRIBUTES, record.getAttributes());
+                journalRecord.put(JOURNAL_RECORD_PARENTS, record.getParents());
+                journalRecords.add(journalRecord);
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put(JOURNAL_OPERATION, JOURNAL_OPERATION_UPDATE);
+            entry.put(JOURNAL_RECORDS, journalRecords);
+            appendJournalEntry(entry);
+        }
+        else
+        {
+            save();
+        }
+    }
+
+    private void persistRemoval(final Collection<UUID> removedIds)
+    {
+        if (_journalEnabled)
+        {
+            if (!removedIds.isEmpty())
+            {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put(JOURNAL_OPERATION, JOURNAL_OPERATION_REMOVE);
+                entry.put(JOURNAL_IDS, removedIds);
+                appendJournalEntry(entry);
+            }
+        }
+        else
+        {
+            save();
+        }
+    }
+
+    private void appendJournalEntry(final Map<String, Object> entry)
+    {
+        appendToJournal(entry);
+        _journalEntryCount++;
+        final ExecutorService compactionExecutor = _compactionExecutor;
+        if (_journalEntryCount >= _journalCompactionThreshold && !_compactionScheduled && compactionExecutor != null)
+        {
+            _compactionScheduled = true;
+            compactionExecutor.execute(this::compact);
+        }
+    }
+
+    private synchronized void compact()
+    {
+        _compactionScheduled = false;
+        synchronized (_lock)
+        {
+            if (_state != State.OPEN)
+            {
+                return;
+            }
+        }
+
+        try
+        {
+            LOGGER.debug("Compacting journal of {} entries into {}", _journalEntryCount, getConfigFile());
+            save();
+        }
+        catch (StoreException e)
+        {
+            LOGGER.error("Failed to compact journal into {}, changes remain in the journal", getConfigFile(), e);
+        }
+    }
+
+    private int replayJournal()
+    {
+        final List<Map<String, Object>> entries = readJournal();
+        for (Map<String, Object> entry : entries)
+        {
+            final Object operation = entry.get(JOURNAL_OPERATION);
+            if (JOURNAL_OPERATION_UPDATE.equals(operation))
+            {
+                for (Object journalRecord : (List<?>) entry.get(JOURNAL_RECORDS))
+                {
+                    putRecord(createRecord((Map<?, ?>) journalRecord));
+                }
+            }
+            else if (JOURNAL_OPERATION_REMOVE.equals(operation))
+            {
+                for (Object id : (List<?>) entry.get(JOURNAL_IDS))
+                {
+                    removeRecord(UUID.fromString(String.valueOf(id)));
+                }
+            }
+            else
+            {
+                throw new StoreException("Unknown operation '" + operation + "' in journal " + getJournalFile());
+            }
+        }
+        _journalEntryCount = entries.size();
+        return entries.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConfiguredObjectRecord createRecord(final Map<?, ?> journalRecord)
+    {
+        final Map<String, UUID> parents = new HashMap<>();
+        final Map<?, ?> journalParents = (Map<?, ?>) journalRecord.get(JOURNAL_RECORD_PARENTS);
+        if (journalParents != null)
+        {
+            for (Map.Entry<?, ?> parent : journalParents.entrySet())
+            {
+                parents.put(String.valueOf(parent.getKey()), UUID.fromString(String.valueOf(parent.getValue())));
+            }
+        }
+        return new ConfiguredObjectRecordImpl(UUID.fromString(String.valueOf(journalRecord.get(JOURNAL_RECORD_ID))),
+                                              (String) journalRecord.get(JOURNAL_RECORD_TYPE),
+                                              (Map<String, Object>) journalRecord.get(JOURNAL_RECORD_ATTRIBUTES),
+                                              parents);
+    }
+
+    private void putRecord(final ConfiguredObjectRecord record)
+    {
+        final UUID id = record.getId();
+        final String type = record.getType();
+        if(_objectsById.put(id, record) == null)
+        {
+            List<UUID> idsForType = _idsByType.get(type);
+            if(idsForType == null)
+            {
+                idsForType = new ArrayList<UUID>();
+                _idsByType.put(type, idsForType);
+            }
+            if(idsForType.contains(record.getId()))
+            {
+                throw new IllegalArgumentException("Duplicate id for record " + record);
+            }
+
+            idsForType.add(id);
+        }
+    }
+
+    private ConfiguredObjectRecord removeRecord(final UUID id)
+    {
+        ConfiguredObjectRecord record = _objectsById.remove(id);
+        if(record != null)
+        {
+            _idsByType.get(record.getType()).remove(record.getId());
+        }
+        return record;
     }
 
     private Map<UUID, Map<String, SortedSet<ConfiguredObjectRecord>>> createChildMap()
@@ -399,14 +605,13 @@ public class JsonFileConfigStore extends AbstractJsonFileStore implements Durabl
         List<UUID> removedIds = new ArrayList<UUID>();
         for(ConfiguredObjectRecord requestedRecord : objects)
         {
-            ConfiguredObjectRecord record = _objectsById.remove(requestedRecord.getId());
+            ConfiguredObjectRecord record = removeRecord(requestedRecord.getId());
             if(record != null)
             {
                 removedIds.add(record.getId());
-                _idsByType.get(record.getType()).remove(record.getId());
             }
         }
-        save();
+        persistRemoval(removedIds);
         return removedIds.toArray(new UUID[removedIds.size()]);
     }
 
@@ -453,46 +658,54 @@ public class JsonFileConfigStore extends AbstractJsonFileStore implements Durabl
                 throw new StoreException("Cannot update record of unknown type " + type);
             }
         }
+        List<ConfiguredObjectRecord> updatedRecords = new ArrayList<>(records.length);
         for(ConfiguredObjectRecord record : records)
         {
             record = new ConfiguredObjectRecordImpl(record);
-            final UUID id = record.getId();
-            final String type = record.getType();
-            if(_objectsById.put(id, record) == null)
-            {
-                List<UUID> idsForType = _idsByType.get(type);
-                if(idsForType == null)
-                {
-                    idsForType = new ArrayList<UUID>();
-                    _idsByType.put(type, idsForType);
-                }
-                if(idsForType.contains(record.getId()))
-                {
-                    throw new IllegalArgumentException("Duplicate id for record " + record);
-                }
-
-                idsForType.add(id);
-            }
+            putRecord(record);
+            updatedRecords.add(record);
         }
 
-        save();
+        persist(updatedRecords);
     }
 
     @Override
     public void closeConfigurationStore()
     {
-
-        try
+        final ExecutorService compactionExecutor;
+        synchronized (this)
         {
-            cleanup();
+            compactionExecutor = _compactionExecutor;
+            _compactionExecutor = null;
         }
-        finally
+        // the pending compaction needs this store's monitor, so it is drained before the monitor is taken below
+        if (compactionExecutor != null)
         {
-            _idsByType.clear();
-            _objectsById.clear();
-            synchronized (_lock)
+            compactionExecutor.shutdown();
+            try
             {
-                _state = State.CLOSED;
+                compactionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this)
+        {
+            try
+            {
+                cleanup();
+            }
+            finally
+            {
+                _idsByType.clear();
+                _objectsById.clear();
+                synchronized (_lock)
+                {
+                    _state = State.CLOSED;
+                }
             }
         }
     }
@@ -22,6 +22,7 @@ package org.apache.qpid.server.store;
 
 
 import java.io.File;
+import java.util.Collection;
 
 import org.apache.qpid.server.model.ConfiguredObject;
 import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
@@ -65,6 +66,30 @@ public interface MessageStore
 
     long getBytesEvacuatedFromMemory();
 
+    /**
+     * Flows messages held in memory to disk, least recently used first, until at least the given number of bytes
+     * have been released.
+     *
+     * @return the number of bytes released, or -1 if the store does not track the use of its in-memory messages, in
+     * which case the caller is responsible for choosing the messages to flow to disk
+     */
+    default long flowToDisk(long bytesToRelease)
+    {
+        return -1L;
+    }
+
+    /**
+     * Flows the given messages to disk. Stores may write the messages not yet persisted as a single group rather
+     * than one at a time.
+     */
+    default void flowToDisk(Collection<? extends StoredMessage<?>> messages)
+    {
+        for (StoredMessage<?> message : messages)
+        {
+            message.flowToDisk();
+        }
+    }
+
     /**
      * Is this store capable of persisting the data
      *
@@ -97,6 +122,26 @@ public interface MessageStore
         void visitDistributedTransactions(DistributedTransactionHandler handler) throws StoreException;
 
         StoredMessage<?> getMessage(long messageId);
+
+        /**
+         * Visits the messages with the given ids, skipping any which do not exist. Stores are expected to read the
+         * message meta-data in key order and to defer reading the content until it is first required.
+         *
+         * @param messageIds ids of the messages to visit in ascending order
+         * @param handler handler to pass the messages to
+         */
+        default void visitMessages(long[] messageIds, MessageHandler handler) throws StoreException
+        {
+            for (long messageId : messageIds)
+            {
+                StoredMessage<?> message = getMessage(messageId);
+                if (message != null && !handler.handle(message))
+                {
+                    break;
+                }
+            }
+        }
+
         void close();
     }
 
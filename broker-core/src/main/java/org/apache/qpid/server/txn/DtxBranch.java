@@ -44,7 +44,7 @@ public class DtxBranch
 
     private final Xid _xid;
     private final List<ServerTransaction.Action> _postTransactionActions = new ArrayList<ServerTransaction.Action>();
-    private       State                          _state = State.ACTIVE;
+    private volatile State                       _state = State.ACTIVE;
     private long _timeout;
     private Map<AMQPSession<?,?>, State> _associatedSessions = new HashMap<>();
     private final List<EnqueueRecord> _enqueueRecords = new ArrayList<>();
@@ -22,9 +22,9 @@
 package org.apache.qpid.server.txn;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledFuture;
 
 import org.apache.qpid.server.session.AMQPSession;
@@ -32,9 +32,16 @@ import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.StoreException;
 import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
 
+/**
+ * Registry of the distributed transaction branches of a virtual host.
+ * <p>
+ * Branches are held in a concurrent map and the state transitions of a branch are serialised on the branch itself,
+ * so that work on one branch, including its synchronous store commit, does not hold up operations on other
+ * branches.
+ */
 public class DtxRegistry
 {
-    private final Map<ComparableXid, DtxBranch> _branches = new HashMap<>();
+    private final ConcurrentMap<ComparableXid, DtxBranch> _branches = new ConcurrentHashMap<>();
     private final QueueManagingVirtualHost<?> _virtualHost;
 
     public DtxRegistry(final QueueManagingVirtualHost<?> virtualHost)
@@ -115,28 +122,22 @@ public class DtxRegistry
         }
     }
 
-    public synchronized DtxBranch getBranch(Xid xid)
+    public DtxBranch getBranch(Xid xid)
     {
         return _branches.get(new ComparableXid(xid));
     }
 
-    public synchronized boolean registerBranch(DtxBranch branch)
+    public boolean registerBranch(DtxBranch branch)
     {
-        ComparableXid xid = new ComparableXid(branch.getXid());
-        if(!_branches.containsKey(xid))
-        {
-            _branches.put(xid, branch);
-            return true;
-        }
-        return false;
+        return _branches.putIfAbsent(new ComparableXid(branch.getXid()), branch) == null;
     }
 
-    synchronized boolean unregisterBranch(DtxBranch branch)
+    boolean unregisterBranch(DtxBranch branch)
     {
-        return (_branches.remove(new ComparableXid(branch.getXid())) != null);
+        return _branches.remove(new ComparableXid(branch.getXid()), branch);
     }
 
-    public synchronized void commit(Xid id, boolean onePhase)
+    public void commit(Xid id, boolean onePhase)
             throws IncorrectDtxStateException, UnknownDtxBranchException, StoreException, RollbackOnlyDtxException, TimeoutDtxException
     {
         DtxBranch branch = getBranch(id);
@@ -144,6 +145,7 @@ public class DtxRegistry
         {
             synchronized (branch)
             {
+                checkRegistered(id, branch);
                 if(!branch.hasAssociatedActiveSessions())
                 {
                     branch.clearAssociations();
@@ -182,7 +184,7 @@ public class DtxRegistry
         }
     }
 
-    public synchronized void prepare(Xid id)
+    public void prepare(Xid id)
             throws UnknownDtxBranchException,
             IncorrectDtxStateException, StoreException, RollbackOnlyDtxException, TimeoutDtxException
     {
@@ -191,6 +193,7 @@ public class DtxRegistry
         {
             synchronized (branch)
             {
+                checkRegistered(id, branch);
                 if(!branch.hasAssociatedActiveSessions())
                 {
                     branch.clearAssociations();
@@ -224,7 +227,7 @@ public class DtxRegistry
         }
     }
 
-    public synchronized void rollback(Xid id)
+    public void rollback(Xid id)
             throws IncorrectDtxStateException,
             UnknownDtxBranchException,
             StoreException, TimeoutDtxException
@@ -235,6 +238,7 @@ public class DtxRegistry
         {
             synchronized (branch)
             {
+                checkRegistered(id, branch);
                 if(branch.expired() || branch.getState() == DtxBranch.State.TIMEDOUT)
                 {
                     unregisterBranch(branch);
@@ -267,6 +271,7 @@ public class DtxRegistry
         {
             synchronized (branch)
             {
+                checkRegistered(id, branch);
                 if(!branch.hasAssociatedSessions())
                 {
                     if(branch.getState() != DtxBranch.State.HEUR_COM && branch.getState() != DtxBranch.State.HEUR_RB)
@@ -289,6 +294,15 @@ public class DtxRegistry
         }
     }
 
+    private void checkRegistered(final Xid id, final DtxBranch branch) throws UnknownDtxBranchException
+    {
+        // the branch may have been completed by another thread whilst the caller was waiting for its lock
+        if(getBranch(id) != branch)
+        {
+            throw new UnknownDtxBranchException(id);
+        }
+    }
+
     public long getTimeout(Xid id) throws UnknownDtxBranchException
     {
         DtxBranch branch = getBranch(id);
@@ -315,7 +329,7 @@ public class DtxRegistry
         }
     }
 
-    public synchronized List<Xid> recover()
+    public List<Xid> recover()
     {
         List<Xid> inDoubt = new ArrayList<>();
         for(DtxBranch branch : _branches.values())
@@ -328,25 +342,31 @@ public class DtxRegistry
         return inDoubt;
     }
 
-    public synchronized void endAssociations(AMQPSession<?,?> session)
+    public void endAssociations(AMQPSession<?,?> session)
     {
         for(DtxBranch branch : _branches.values())
         {
-            if(branch.isAssociated(session))
+            synchronized (branch)
             {
-                branch.setState(DtxBranch.State.ROLLBACK_ONLY);
-                branch.disassociateSession(session);
+                if(branch.isAssociated(session))
+                {
+                    branch.setState(DtxBranch.State.ROLLBACK_ONLY);
+                    branch.disassociateSession(session);
+                }
             }
         }
 
     }
 
 
-    public synchronized void close()
+    public void close()
     {
         for(DtxBranch branch : _branches.values())
         {
-            branch.close();
+            synchronized (branch)
+            {
+                branch.close();
+            }
         }
         _branches.clear();
     }
@@ -62,6 +62,7 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -89,7 +90,9 @@ import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.logging.messages.MessageStoreMessages;
 import org.apache.qpid.server.logging.messages.VirtualHostMessages;
 import org.apache.qpid.server.logging.subjects.MessageStoreLogSubject;
+import org.apache.qpid.server.message.AbstractServerMessageImpl;
 import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.ConvertedMessageSizeAccount;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageDeletedException;
 import org.apache.qpid.server.message.MessageDestination;
@@ -151,7 +154,7 @@ import org.apache.qpid.server.util.Strings;
 import org.apache.qpid.server.virtualhost.connection.ConnectionPrincipalStatisticsRegistryImpl;
 
 public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> extends AbstractConfiguredObject<X>
-        implements QueueManagingVirtualHost<X>
+        implements QueueManagingVirtualHost<X>, ConvertedMessageSizeAccount
 {
     private final Collection<ConnectionValidator> _connectionValidators = new ArrayList<>();
 
@@ -205,6 +208,11 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     private final VirtualHostNode<?> _virtualHostNode;
 
     private final AtomicLong _targetSize = new AtomicLong(100 * 1024 * 1024);
+    private final AtomicLong _convertedMessagesSize = new AtomicLong();
+    private final ConcurrentMap<AbstractServerMessageImpl<?, ?>, Long> _convertedMessageSizes =
+            new ConcurrentHashMap<>();
+    private final LongAdder _convertedMessageCacheHits = new LongAdder();
+    private final LongAdder _convertedMessageCacheMisses = new LongAdder();
 
     private MessageStoreLogSubject _messageStoreLogSubject;
 
@@ -274,6 +282,8 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     
     private boolean _useAsyncRecoverer;
 
+    private volatile int _firstQueueToReallocate;
+
     private MessageDestination _defaultDestination;
 
     private MessageStore _messageStore;
@@ -1415,26 +1425,14 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     }
 
     @Override
-    public ListenableFuture<Void> reallocateMessages()
+    public ListenableFuture<Long> reallocateMessages()
     {
         final ScheduledThreadPoolExecutor houseKeepingTaskExecutor = _houseKeepingTaskExecutor;
         if (houseKeepingTaskExecutor != null)
         {
             try
             {
-                final Future<Void> future = houseKeepingTaskExecutor.submit(() ->
-                                                                            {
-                                                                                final Collection<Queue> queues =
-                                                                                        getChildren(Queue.class);
-                                                                                for (Queue q : queues)
-                                                                                {
-                                                                                    if (q.getState() == State.ACTIVE)
-                                                                                    {
-                                                                                        q.reallocateMessages();
-                                                                                    }
-                                                                                }
-                                                                                return null;
-                                                                            });
+                final Future<Long> future = houseKeepingTaskExecutor.submit(this::reallocateQueueMessages);
                 return JdkFutureAdapters.listenInPoolThread(future);
             }
             catch (RejectedExecutionException e)
@@ -1445,7 +1443,36 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
                 }
             }
         }
-        return Futures.immediateFuture(null);
+        return Futures.immediateFuture(0L);
+    }
+
+    /**
+     * Reallocates the messages of the queues until the compaction budget is spent. The next run starts with the
+     * queue at which the budget ran out, so that successive runs make their way through all the queues.
+     *
+     * @return the number of bytes copied
+     */
+    private long reallocateQueueMessages()
+    {
+        final List<Queue> queues = new ArrayList<>(getChildren(Queue.class));
+        final int numberOfQueues = queues.size();
+        final int firstQueue = _firstQueueToReallocate;
+        final long budget = getContextValue(Long.class, Broker.COMPACT_MEMORY_BUDGET);
+        long copiedBytes = 0L;
+        for (int i = 0; i < numberOfQueues && (budget < 0L || copiedBytes < budget); i++)
+        {
+            final int queueIndex = (firstQueue + i) % numberOfQueues;
+            final Queue<?> queue = queues.get(queueIndex);
+            if (queue.getState() == State.ACTIVE)
+            {
+                copiedBytes += queue.reallocateMessages(budget < 0L ? budget : budget - copiedBytes);
+                if (budget >= 0L && copiedBytes >= budget)
+                {
+                    _firstQueueToReallocate = queueIndex;
+                }
+            }
+        }
+        return copiedBytes;
     }
 
     @Override
@@ -1475,7 +1502,60 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     @Override
     public long getInMemoryMessageSize()
     {
-        return _messageStore == null ? -1 : _messageStore.getInMemorySize();
+        return _messageStore == null ? -1 : _messageStore.getInMemorySize() + _convertedMessagesSize.get();
+    }
+
+    @Override
+    public void convertedMessageSizeChanged(final AbstractServerMessageImpl<?, ?> message, final long delta)
+    {
+        _convertedMessageSizes.merge(message, delta, (size, change) -> size + change == 0 ? null : size + change);
+        _convertedMessagesSize.addAndGet(delta);
+    }
+
+    @Override
+    public void convertedMessageCacheHit()
+    {
+        _convertedMessageCacheHits.increment();
+    }
+
+    @Override
+    public void convertedMessageCacheMiss()
+    {
+        _convertedMessageCacheMisses.increment();
+    }
+
+    @Override
+    public long getConvertedMessageCacheHits()
+    {
+        return _convertedMessageCacheHits.sum();
+    }
+
+    @Override
+    public long getConvertedMessageCacheMisses()
+    {
+        return _convertedMessageCacheMisses.sum();
+    }
+
+    /**
+     * Evicts the shared conversions of messages whose content has already been flowed to disk, then those of other
+     * messages until the in-memory message size is no greater than the given target. Conversions can be recreated
+     * without touching the store, so they are released before any message is flowed to disk.
+     */
+    private void evictConvertedMessages(final long targetSize)
+    {
+        for (AbstractServerMessageImpl<?, ?> message : _convertedMessageSizes.keySet())
+        {
+            if (!message.getStoredMessage().isInContentInMemory())
+            {
+                message.evictConvertedMessages();
+            }
+        }
+
+        final Iterator<AbstractServerMessageImpl<?, ?>> iterator = _convertedMessageSizes.keySet().iterator();
+        while (getInMemoryMessageSize() > targetSize && iterator.hasNext())
+        {
+            iterator.next().evictConvertedMessages();
+        }
     }
 
     @Override
@@ -2114,6 +2194,13 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
             if (isOverTargetSize())
             {
                 long currentTargetSize = _targetSize.get();
+                evictConvertedMessages(currentTargetSize);
+                final long bytesToRelease = getInMemoryMessageSize() - currentTargetSize;
+                if (bytesToRelease <= 0 || _messageStore.flowToDisk(bytesToRelease) >= 0)
+                {
+                    return;
+                }
+
                 List<QueueEntryIterator> queueIterators = new ArrayList<>();
                 for (Queue<?> q : getChildren(Queue.class))
                 {
@@ -2133,8 +2220,12 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
                         {
                             try (MessageReference messageReference = node.getMessage().newReference())
                             {
-                                final StoredMessage storedMessage = messageReference.getMessage().getStoredMessage();
-                                final long inMemorySize = storedMessage.getInMemorySize();
+                                final ServerMessage message = messageReference.getMessage();
+                                final StoredMessage storedMessage = message.getStoredMessage();
+                                final long convertedMessagesSize = message instanceof AbstractServerMessageImpl
+                                        ? ((AbstractServerMessageImpl) message).getConvertedMessagesSize()
+                                        : 0L;
+                                final long inMemorySize = storedMessage.getInMemorySize() + convertedMessagesSize;
                                 if (inMemorySize > 0)
                                 {
                                     if (cumulativeSize <= currentTargetSize)
@@ -2145,6 +2236,10 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
                                     if (cumulativeSize > currentTargetSize && node.getQueue().checkValid(node))
                                     {
                                         storedMessage.flowToDisk();
+                                        if (convertedMessagesSize > 0)
+                                        {
+                                            ((AbstractServerMessageImpl) message).evictConvertedMessages();
+                                        }
                                     }
                                 }
                             }
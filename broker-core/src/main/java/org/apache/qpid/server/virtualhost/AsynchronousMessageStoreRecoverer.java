@@ -21,6 +21,7 @@
 package org.apache.qpid.server.virtualhost;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -96,6 +97,7 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         private final MessageStore _store;
         private final MessageStoreLogSubject _logSubject;
         private final long _maxMessageId;
+        private final int _recoveryBatchSize;
         private final Set<Queue<?>> _recoveringQueues = new CopyOnWriteArraySet<>();
         private final AtomicBoolean _recoveryComplete = new AtomicBoolean();
         private final Map<Long, MessageReference<? extends ServerMessage<?>>> _recoveredMessages = new HashMap<>();
@@ -119,6 +121,8 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             _logSubject = new MessageStoreLogSubject(virtualHost.getName(), _store.getClass().getSimpleName());
 
             _maxMessageId = _store.getNextMessageId();
+            _recoveryBatchSize = Math.max(1, virtualHost.getContextValue(Integer.class,
+                                                                         QueueManagingVirtualHost.MESSAGE_RECOVERY_BATCH_SIZE));
             Collection children = _virtualHost.getChildren(Queue.class);
             _recoveringQueues.addAll((Collection<? extends Queue<?>>) children);
 
@@ -174,6 +178,7 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         {
             MessageInstanceVisitor handler = new MessageInstanceVisitor(queue);
             _storeReader.visitMessageInstances(queue, handler);
+            handler.recoverPendingEntries();
 
             if (handler.getNumberOfUnknownMessageInstances() > 0)
             {
@@ -263,6 +268,58 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             return ref == null ? null : ref.getMessage();
         }
 
+        /**
+         * Returns the recovered messages with the given ids, keyed by id. The messages which have not been
+         * recovered by an earlier call are read from the store together, in id order.
+         */
+        private synchronized Map<Long, ServerMessage<?>> getRecoveredMessages(final long[] messageIds)
+        {
+            final Map<Long, ServerMessage<?>> messages = new HashMap<>();
+            final long[] unrecoveredMessageIds = new long[messageIds.length];
+            int unrecoveredCount = 0;
+            for (long messageId : messageIds)
+            {
+                MessageReference<? extends ServerMessage<?>> ref = _recoveredMessages.get(messageId);
+                if (ref == null)
+                {
+                    unrecoveredMessageIds[unrecoveredCount++] = messageId;
+                }
+                else
+                {
+                    messages.put(messageId, ref.getMessage());
+                }
+            }
+
+            if (unrecoveredCount > 0)
+            {
+                final long[] sortedIds = Arrays.copyOf(unrecoveredMessageIds, unrecoveredCount);
+                Arrays.sort(sortedIds);
+                _storeReader.visitMessages(sortedIds, new MessageHandler()
+                {
+                    @Override
+                    public boolean handle(final StoredMessage<?> storedMessage)
+                    {
+                        final long messageId = storedMessage.getMessageNumber();
+                        if (!_recoveredMessages.containsKey(messageId))
+                        {
+                            StorableMessageMetaData metaData = storedMessage.getMetaData();
+
+                            @SuppressWarnings("rawtypes")
+                            MessageMetaDataType type = metaData.getType();
+
+                            @SuppressWarnings("unchecked")
+                            ServerMessage<?> serverMessage = type.createMessage(storedMessage);
+
+                            _recoveredMessages.put(messageId, serverMessage.newReference());
+                            messages.put(messageId, serverMessage);
+                        }
+                        return true;
+                    }
+                });
+            }
+            return messages;
+        }
+
         public void cancel()
         {
             _continueRecovery.set(false);
@@ -512,9 +569,14 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         }
 
 
+        /**
+         * Collects the queue entries visited in the store into batches, so that the messages they reference are
+         * read from the store together rather than looked up one at a time.
+         */
         private class MessageInstanceVisitor implements MessageInstanceHandler
         {
             private final Queue<?> _queue;
+            private final List<MessageEnqueueRecord> _pendingEntries = new ArrayList<>();
             long _recoveredCount;
             private int _numberOfUnknownMessageInstances;
 
@@ -528,15 +590,50 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             public boolean handle(final MessageEnqueueRecord record)
             {
                 long messageId = record.getMessageNumber();
-                String queueName = _queue.getName();
 
                 if(messageId < _maxMessageId)
                 {
-                    ServerMessage<?> message = getRecoveredMessage(messageId);
+                    _pendingEntries.add(record);
+                    if (_pendingEntries.size() >= _recoveryBatchSize)
+                    {
+                        recoverPendingEntries();
+                    }
+                    return _continueRecovery.get();
+                }
+                else
+                {
+                    return false;
+                }
+
+            }
+
+            void recoverPendingEntries()
+            {
+                if (!_continueRecovery.get())
+                {
+                    _pendingEntries.clear();
+                }
+                if (_pendingEntries.isEmpty())
+                {
+                    return;
+                }
+
+                final long[] messageIds = new long[_pendingEntries.size()];
+                for (int i = 0; i < messageIds.length; i++)
+                {
+                    messageIds[i] = _pendingEntries.get(i).getMessageNumber();
+                }
+                final Map<Long, ServerMessage<?>> messages = getRecoveredMessages(messageIds);
+
+                String queueName = _queue.getName();
+                for (MessageEnqueueRecord record : _pendingEntries)
+                {
+                    long messageId = record.getMessageNumber();
+                    ServerMessage<?> message = messages.get(messageId);
 
                     if (message != null)
                     {
-                        LOGGER.debug("Delivering message id '{}' to queue '{}'", message.getMessageNumber(), queueName);
+                        LOGGER.debug("Delivering message id '{}' to queue '{}'", messageId, queueName);
 
                         _queue.recover(message, record);
                         _recoveredCount++;
@@ -550,13 +647,8 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                         txn.commitTranAsync((Void) null);
                         _numberOfUnknownMessageInstances++;
                     }
-                    return _continueRecovery.get();
-                }
-                else
-                {
-                    return false;
                 }
-
+                _pendingEntries.clear();
             }
 
             long getRecoveredCount()
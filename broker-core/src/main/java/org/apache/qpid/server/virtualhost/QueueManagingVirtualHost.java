@@ -169,6 +169,13 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
     @ManagedContextDefault( name = VIRTUALHOST_CONNECTION_THREAD_POOL_NUMBER_OF_SELECTORS)
     long DEFAULT_VIRTUALHOST_CONNECTION_THREAD_POOL_NUMBER_OF_SELECTORS = Math.max(DEFAULT_VIRTUALHOST_CONNECTION_THREAD_POOL_SIZE/8, 1);
 
+    String MESSAGE_RECOVERY_BATCH_SIZE = "virtualhost.messageRecoveryBatchSize";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = MESSAGE_RECOVERY_BATCH_SIZE,
+                           description = "Number of queue entries whose messages are read from the store together"
+                                         + " when queues are recovered asynchronously")
+    int DEFAULT_MESSAGE_RECOVERY_BATCH_SIZE = 1000;
+
     String NAMED_CACHE_MAXIMUM_SIZE = "virtualhost.namedCache.maximumSize";
     @SuppressWarnings("unused")
     @ManagedContextDefault(name = NAMED_CACHE_MAXIMUM_SIZE, description = "Maximum number of entries within the named cached")
@@ -285,6 +292,20 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
                       description = "Total Number of Bytes Evacuated from Memory Due to Flow to Disk.")
     long getBytesEvacuatedFromMemory();
 
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT,
+                      label = "Converted Message Cache Hits",
+                      description = "Total number of deliveries from this virtualhost which reused a previous"
+                                    + " conversion of the message into the format of the consuming protocol.")
+    long getConvertedMessageCacheHits();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT,
+                      label = "Converted Message Cache Misses",
+                      description = "Total number of deliveries from this virtualhost which required the message to be"
+                                    + " converted into the format of the consuming protocol.")
+    long getConvertedMessageCacheMisses();
+
     @SuppressWarnings("unused")
     @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
             units = StatisticUnit.BYTES,
@@ -373,7 +394,10 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
 
     MessageDestination getSystemDestination(String name);
 
-    ListenableFuture<Void> reallocateMessages();
+    /**
+     * @return future of the number of bytes copied out of sparse direct memory buffers
+     */
+    ListenableFuture<Long> reallocateMessages();
 
     boolean isOverTargetSize();
 
@@ -31,10 +31,12 @@ import javax.security.auth.Subject;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.qpid.server.configuration.IllegalConfigurationException;
+import org.apache.qpid.server.configuration.updater.Task;
 import org.apache.qpid.server.logging.messages.ConfigStoreMessages;
 import org.apache.qpid.server.model.Broker;
 import org.apache.qpid.server.model.ConfiguredObject;
@@ -63,6 +65,46 @@ public abstract class AbstractStandardVirtualHostNode<X extends AbstractStandard
 
     @Override
     protected ListenableFuture<Void> activate()
+    {
+        if (!getContextValue(Boolean.class, PARALLEL_ACTIVATION))
+        {
+            return recoverAndOpenVirtualHost();
+        }
+
+        // The virtual host subtree already runs on the child executor. Recovering the configuration store on it too
+        // frees the broker's configuration thread to activate other nodes. Changes to this node itself, such as
+        // clearing the initial configuration, are still passed back to the broker's configuration thread.
+        final ListenableFuture<ListenableFuture<Void>> recovered =
+                getChildExecutor().submit(new Task<ListenableFuture<Void>, RuntimeException>()
+                {
+                    @Override
+                    public ListenableFuture<Void> execute()
+                    {
+                        return recoverAndOpenVirtualHost();
+                    }
+
+                    @Override
+                    public String getObject()
+                    {
+                        return AbstractStandardVirtualHostNode.this.toString();
+                    }
+
+                    @Override
+                    public String getAction()
+                    {
+                        return "activate";
+                    }
+
+                    @Override
+                    public String getArguments()
+                    {
+                        return null;
+                    }
+                });
+        return Futures.transformAsync(recovered, openFuture -> openFuture, MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<Void> recoverAndOpenVirtualHost()
     {
         if (LOGGER.isDebugEnabled())
         {
@@ -92,11 +134,27 @@ public abstract class AbstractStandardVirtualHostNode<X extends AbstractStandard
         }
 
         final boolean isNew = upgrader.upgradeAndRecover(getConfigurationStore(), initialRecords);
+        final ListenableFuture<Void> initialConfigurationCleared;
         if(initialRecords.length > 0)
         {
-            setAttributes(Collections.<String, Object>singletonMap(VIRTUALHOST_INITIAL_CONFIGURATION, "{}"));
+            // This may be running on the child executor, so the change to this node must not block waiting for the
+            // broker's configuration thread.
+            initialConfigurationCleared = setAttributesAsync(Collections.<String, Object>singletonMap(
+                    VIRTUALHOST_INITIAL_CONFIGURATION, "{}"));
+        }
+        else
+        {
+            initialConfigurationCleared = Futures.immediateFuture(null);
         }
 
+        final boolean firstOpening = isNew && initialRecords.length == 0;
+        return Futures.transformAsync(initialConfigurationCleared,
+                                      cleared -> openVirtualHost(firstOpening),
+                                      MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<Void> openVirtualHost(final boolean firstOpening)
+    {
         getEventLogger().message(getConfigurationStoreLogSubject(), ConfigStoreMessages.RECOVERY_COMPLETE());
 
         QueueManagingVirtualHost<?>  host = getVirtualHost();
@@ -105,7 +163,7 @@ public abstract class AbstractStandardVirtualHostNode<X extends AbstractStandard
         {
             final QueueManagingVirtualHost<?> recoveredHost = host;
             final ListenableFuture<Void> openFuture;
-            recoveredHost.setFirstOpening(isNew && initialRecords.length == 0);
+            recoveredHost.setFirstOpening(firstOpening);
             openFuture = Subject.doAs(getSubjectWithAddedSystemRights(),
                                       new PrivilegedAction<ListenableFuture<Void>>()
                                       {
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.qpid.server.bytebuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class BufferPoolTest extends UnitTestBase
+{
+    private static final int BUFFER_SIZE = 8;
+
+    @Test
+    public void testReturnedBufferIsReusedByReturningThread()
+    {
+        final BufferPool pool = new BufferPool(BUFFER_SIZE, 10);
+        assertNull("Unexpected buffer from empty pool", pool.getBuffer());
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        pool.returnBuffer(buffer);
+        assertEquals("Unexpected pool size", (long) 1, (long) pool.size());
+
+        assertSame("Unexpected buffer", buffer, pool.getBuffer());
+        assertEquals("Unexpected pool size", (long) 0, (long) pool.size());
+    }
+
+    @Test
+    public void testPoolSizeIsLimited()
+    {
+        final int maxSize = BufferPool.MAGAZINE_CAPACITY + 2;
+        final BufferPool pool = new BufferPool(BUFFER_SIZE, maxSize);
+
+        for (int i = 0; i < 3 * BufferPool.MAGAZINE_CAPACITY; i++)
+        {
+            pool.returnBuffer(ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+        assertEquals("Buffers held in the magazine should count against the maximum size",
+                     (long) maxSize, (long) pool.size());
+
+        pool.releaseThreadLocalBuffers();
+        assertEquals("Unexpected pool size after releasing thread local buffers", (long) maxSize, (long) pool.size());
+    }
+
+    @Test
+    public void testReleaseAllBuffersEmptiesMagazinesOfOtherThreads() throws Exception
+    {
+        final BufferPool pool = new BufferPool(BUFFER_SIZE, 10);
+        final CountDownLatch returned = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        final AtomicReference<ByteBuffer> result = new AtomicReference<>();
+        final Thread thread = new Thread(() ->
+        {
+            pool.returnBuffer(ByteBuffer.allocateDirect(BUFFER_SIZE));
+            returned.countDown();
+            try
+            {
+                released.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            result.set(pool.getBuffer());
+        });
+        thread.start();
+        assertTrue("Buffer was not returned", returned.await(10, TimeUnit.SECONDS));
+        assertEquals("Unexpected pool size", (long) 1, (long) pool.size());
+
+        pool.releaseAllBuffers();
+        assertEquals("Unexpected pool size after releasing all buffers", (long) 0, (long) pool.size());
+
+        released.countDown();
+        thread.join();
+        assertNull("Magazine of the other thread should have been emptied", result.get());
+        assertEquals("Unexpected pool size", (long) 0, (long) pool.size());
+    }
+
+    @Test
+    public void testReleasedBuffersAreAvailableToOtherThreads() throws Exception
+    {
+        final BufferPool pool = new BufferPool(BUFFER_SIZE, 10);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        pool.returnBuffer(buffer);
+
+        assertNull("Buffer held by the returning thread should not be available to other threads",
+                   getBufferFromOtherThread(pool));
+
+        pool.releaseThreadLocalBuffers();
+
+        assertSame("Released buffer should be available to other threads", buffer, getBufferFromOtherThread(pool));
+        assertEquals("Unexpected pool size", (long) 0, (long) pool.size());
+    }
+
+    private ByteBuffer getBufferFromOtherThread(final BufferPool pool) throws InterruptedException
+    {
+        final AtomicReference<ByteBuffer> result = new AtomicReference<>();
+        final Thread thread = new Thread(() -> result.set(pool.getBuffer()));
+        thread.start();
+        thread.join();
+        return result.get();
+    }
+}
@@ -896,6 +896,92 @@ public class QpidByteBufferTest extends UnitTestBase
         }
     }
 
+    @Test
+    public void testAllocateDirectUsesSizeClasses() throws Exception
+    {
+        final int pooledBufferSize = QpidByteBufferFactory.MINIMUM_SIZE_CLASS * 4;
+        QpidByteBuffer.deinitialisePool();
+        QpidByteBuffer.initialisePool(pooledBufferSize, POOL_SIZE, SPARSITY_FRACTION);
+
+        assertEquals("Unexpected size classes",
+                     Arrays.asList(pooledBufferSize / 4, pooledBufferSize / 2, pooledBufferSize),
+                     QpidByteBuffer.getPooledBufferSizeClasses());
+
+        final int mediumSize = pooledBufferSize / 4 + 1;
+        try (QpidByteBuffer buffer = QpidByteBuffer.allocateDirect(mediumSize))
+        {
+            assertEquals("Unexpected buffer size", (long) mediumSize, (long) buffer.capacity());
+            assertFalse("Buffer of best fitting size class should not be sparse", buffer.isSparse());
+            assertEquals("Unexpected number of buffers in use in size class",
+                         (long) 1, (long) QpidByteBuffer.getNumberOfBuffersInUse(pooledBufferSize / 2));
+            assertEquals("Unexpected number of small buffers in use",
+                         (long) 1, (long) QpidByteBuffer.getNumberOfSmallBuffersInUse());
+            assertEquals("Unexpected allocated direct memory size",
+                         (long) pooledBufferSize / 2, QpidByteBuffer.getAllocatedDirectMemorySize());
+        }
+        assertEquals("Unexpected number of buffers in use in size class after dispose",
+                     (long) 0, (long) QpidByteBuffer.getNumberOfBuffersInUse(pooledBufferSize / 2));
+        assertEquals("Unexpected number of buffers in pool in size class after dispose",
+                     (long) 1, (long) QpidByteBuffer.getNumberOfBuffersInPool(pooledBufferSize / 2));
+
+        try (QpidByteBuffer buffer = QpidByteBuffer.allocateDirect(10))
+        {
+            assertEquals("Unexpected buffer size", (long) 10, (long) buffer.capacity());
+            assertEquals("Small allocation should be carved from the smallest size class",
+                         (long) 1, (long) QpidByteBuffer.getNumberOfBuffersInUse(pooledBufferSize / 4));
+            assertEquals("Unexpected number of buffers in use in largest size class",
+                         (long) 0, (long) QpidByteBuffer.getNumberOfBuffersInUse(pooledBufferSize));
+        }
+    }
+
+    @Test
+    public void testReallocateSparseBuffer() throws Exception
+    {
+        final int pooledBufferSize = QpidByteBufferFactory.MINIMUM_SIZE_CLASS * 4;
+        QpidByteBuffer.deinitialisePool();
+        QpidByteBuffer.initialisePool(pooledBufferSize, POOL_SIZE, SPARSITY_FRACTION);
+
+        final QpidByteBuffer buffer = QpidByteBuffer.allocateDirect(pooledBufferSize);
+        final QpidByteBuffer view = buffer.view(0, 100);
+        buffer.dispose();
+        assertTrue("View should be sparse", view.isSparse());
+        assertEquals("Unexpected allocated direct memory size",
+                     (long) pooledBufferSize, QpidByteBuffer.getAllocatedDirectMemorySize());
+
+        final long reallocatedBytes = QpidByteBuffer.getReallocatedBytesOfCurrentThread();
+        try (QpidByteBuffer reallocated = QpidByteBuffer.reallocateIfNecessary(view))
+        {
+            assertEquals("Unexpected number of reallocated bytes",
+                         (long) 100, QpidByteBuffer.getReallocatedBytesOfCurrentThread() - reallocatedBytes);
+            assertEquals("Unexpected allocated direct memory size after reallocation",
+                         (long) QpidByteBufferFactory.MINIMUM_SIZE_CLASS,
+                         QpidByteBuffer.getAllocatedDirectMemorySize());
+            assertFalse("Reallocated buffer should not be sparse", reallocated.isSparse());
+        }
+    }
+
+    @Test
+    public void testReallocatedBytesCountedPerThread() throws Exception
+    {
+        final int pooledBufferSize = QpidByteBufferFactory.MINIMUM_SIZE_CLASS * 4;
+        QpidByteBuffer.deinitialisePool();
+        QpidByteBuffer.initialisePool(pooledBufferSize, POOL_SIZE, SPARSITY_FRACTION);
+
+        final long reallocatedBytes = QpidByteBuffer.getReallocatedBytesOfCurrentThread();
+        final Thread thread = new Thread(() ->
+                                         {
+                                             final QpidByteBuffer buffer = QpidByteBuffer.allocateDirect(pooledBufferSize);
+                                             final QpidByteBuffer view = buffer.view(0, 100);
+                                             buffer.dispose();
+                                             QpidByteBuffer.reallocateIfNecessary(view).dispose();
+                                         });
+        thread.start();
+        thread.join();
+
+        assertEquals("Copies made by another thread should not be counted",
+                     reallocatedBytes, QpidByteBuffer.getReallocatedBytesOfCurrentThread());
+    }
+
     @Test
     public void testDeflateInflateDirect() throws Exception
     {
@@ -0,0 +1,216 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class HeadersBindingIndexTest extends UnitTestBase
+{
+    private static final String[] HEADER_NAMES = {"A", "B", "C", "D"};
+    private static final String[] HEADER_VALUES = {"1", "2", "3"};
+
+    private HeadersBindingIndex _index;
+    private Queue<?> _queue;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _index = new HeadersBindingIndex();
+        _queue = mock(Queue.class);
+    }
+
+    @Test
+    public void testMatchAll() throws Exception
+    {
+        final HeadersBinding binding = createBinding("all", "x-match", "all", "A", "1", "B", "");
+        _index.add(binding);
+
+        assertEquals(Collections.singletonList(binding), _index.match(createHeader("A", "1", "B", "2")));
+        assertTrue(_index.match(createHeader("A", "1")).isEmpty());
+        assertTrue(_index.match(createHeader("A", "2", "B", "2")).isEmpty());
+    }
+
+    @Test
+    public void testMatchAny() throws Exception
+    {
+        final HeadersBinding binding = createBinding("any", "x-match", "any", "A", "1", "B", "");
+        _index.add(binding);
+
+        assertEquals(Collections.singletonList(binding), _index.match(createHeader("A", "1", "B", "2")));
+        assertEquals(Collections.singletonList(binding), _index.match(createHeader("B", "3")));
+        assertTrue(_index.match(createHeader("A", "2")).isEmpty());
+    }
+
+    @Test
+    public void testBindingWithoutHeaderTermsMatchesEverything() throws Exception
+    {
+        final HeadersBinding binding = createBinding("empty", "x-match", "any");
+        _index.add(binding);
+
+        assertEquals(Collections.singletonList(binding), _index.match(createHeader("A", "1")));
+        assertEquals(Collections.singletonList(binding), _index.match(null));
+    }
+
+    @Test
+    public void testRemove() throws Exception
+    {
+        final HeadersBinding binding1 = createBinding("one", "A", "1");
+        final HeadersBinding binding2 = createBinding("two", "A", "1");
+        _index.add(binding1);
+        _index.add(binding2);
+
+        assertEquals(new HashSet<>(Arrays.asList(binding1, binding2)), new HashSet<>(_index.match(createHeader("A", "1"))));
+
+        _index.remove(binding1.getBinding());
+
+        assertEquals(Collections.singletonList(binding2), _index.match(createHeader("A", "1")));
+        assertEquals(1, _index.size());
+
+        _index.remove(binding2.getBinding());
+
+        assertTrue(_index.match(createHeader("A", "1")).isEmpty());
+        assertEquals(0, _index.size());
+    }
+
+    @Test
+    public void testReplace() throws Exception
+    {
+        _index.add(createBinding("one", "A", "1"));
+        final HeadersBinding replacement = createBinding("one", "A", "2");
+        _index.add(replacement);
+
+        assertTrue(_index.match(createHeader("A", "1")).isEmpty());
+        assertEquals(Collections.singletonList(replacement), _index.match(createHeader("A", "2")));
+        assertEquals(1, _index.size());
+    }
+
+    @Test
+    public void testMatchesAgreeWithLinearEvaluation() throws Exception
+    {
+        final Random random = new Random(0);
+        final List<HeadersBinding> bindings = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+        {
+            final List<String> arguments = new ArrayList<>();
+            arguments.add("x-match");
+            arguments.add(random.nextBoolean() ? "all" : "any");
+            for (String name : HEADER_NAMES)
+            {
+                final int choice = random.nextInt(3);
+                if (choice == 1)
+                {
+                    arguments.add(name);
+                    arguments.add("");
+                }
+                else if (choice == 2)
+                {
+                    arguments.add(name);
+                    arguments.add(HEADER_VALUES[random.nextInt(HEADER_VALUES.length)]);
+                }
+            }
+            final HeadersBinding binding = createBinding("binding" + i, arguments.toArray(new String[0]));
+            bindings.add(binding);
+            _index.add(binding);
+        }
+
+        for (int i = 0; i < 500; i++)
+        {
+            if (i % 50 == 0)
+            {
+                final HeadersBinding removed = bindings.remove(random.nextInt(bindings.size()));
+                _index.remove(removed.getBinding());
+            }
+
+            final List<String> headers = new ArrayList<>();
+            for (String name : HEADER_NAMES)
+            {
+                if (random.nextBoolean())
+                {
+                    headers.add(name);
+                    headers.add(HEADER_VALUES[random.nextInt(HEADER_VALUES.length)]);
+                }
+            }
+            final AMQMessageHeader header = createHeader(headers.toArray(new String[0]));
+
+            final Set<HeadersBinding> expected = new HashSet<>();
+            for (HeadersBinding binding : bindings)
+            {
+                if (binding.matches(header))
+                {
+                    expected.add(binding);
+                }
+            }
+
+            final List<HeadersBinding> actual = _index.match(header);
+            assertEquals("Unexpected duplicates in match result", new HashSet<>(actual).size(), actual.size());
+            assertEquals("Unexpected match result for headers " + headers, expected, new HashSet<>(actual));
+        }
+    }
+
+    private HeadersBinding createBinding(final String bindingKey, final String... arguments) throws Exception
+    {
+        final Map<String, Object> bindArguments = new HashMap<>();
+        for (int i = 0; i < arguments.length; i += 2)
+        {
+            bindArguments.put(arguments[i], arguments[i + 1]);
+        }
+        return new HeadersBinding(new AbstractExchange.BindingIdentifier(bindingKey, _queue), bindArguments);
+    }
+
+    private AMQMessageHeader createHeader(final String... headers)
+    {
+        final Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < headers.length; i += 2)
+        {
+            values.put(headers[i], headers[i + 1]);
+        }
+
+        final AMQMessageHeader header = mock(AMQMessageHeader.class);
+        when(header.getHeaderNames()).thenReturn(values.keySet());
+        when(header.containsHeader(anyString())).then(invocation -> values.containsKey(invocation.getArgument(0)));
+        when(header.containsHeaders(any()))
+                .then(invocation -> values.keySet().containsAll(invocation.getArgument(0)));
+        when(header.getHeader(anyString())).then(invocation -> values.get(invocation.getArgument(0)));
+        return header;
+    }
+}
@@ -657,6 +657,57 @@ public class TopicExchangeTest extends UnitTestBase
         assertTrue("Message should be be possible to route using old binding", result2.hasRoutes());
     }
 
+    @Test
+    public void testRoutingCacheInvalidatedByBindAndUnbind() throws Exception
+    {
+        final Queue<?> queue1 = _vhost.createChild(Queue.class, Collections.singletonMap(Queue.NAME, getTestName() + "_queue1"));
+        final Queue<?> queue2 = _vhost.createChild(Queue.class, Collections.singletonMap(Queue.NAME, getTestName() + "_queue2"));
+
+        _exchange.bind(queue1.getName(), "a.*", null, false);
+
+        RoutingResult<ServerMessage<?>> result = _exchange.route(_messageWithNoHeaders, "a.b", _instanceProperties);
+        assertEquals(1, result.getNumberOfRoutes());
+        assertEquals(1, _exchange.getRoutingCacheMisses());
+
+        result = _exchange.route(_messageWithNoHeaders, "a.b", _instanceProperties);
+        assertEquals(1, result.getNumberOfRoutes());
+        assertEquals(1, _exchange.getRoutingCacheHits());
+
+        _exchange.bind(queue2.getName(), "a.b", null, false);
+
+        result = _exchange.route(_messageWithNoHeaders, "a.b", _instanceProperties);
+        assertEquals(2, result.getNumberOfRoutes());
+        assertEquals(2, _exchange.getRoutingCacheMisses());
+
+        _exchange.unbind(queue1.getName(), "a.*");
+
+        result = _exchange.route(_messageWithNoHeaders, "a.b", _instanceProperties);
+        assertEquals(1, result.getNumberOfRoutes());
+        assertTrue(result.getRoutes().contains(queue2));
+        assertEquals(3, _exchange.getRoutingCacheMisses());
+
+        _exchange.bind(queue1.getName(), "a.*", null, false);
+
+        result = _exchange.route(_messageWithNoHeaders, "a.c", _instanceProperties);
+        assertEquals("Message not routed after rebinding", 1, result.getNumberOfRoutes());
+        assertTrue(result.getRoutes().contains(queue1));
+    }
+
+    @Test
+    public void testRoutingCacheEvaluatesFilteredBindingsPerMessage() throws Exception
+    {
+        final Queue<?> queue = _vhost.createChild(Queue.class, Collections.singletonMap(Queue.NAME, getTestName() + "_queue"));
+        _exchange.bind(queue.getName(), "a.b", Collections.singletonMap(JMS_SELECTOR.toString(), "prop = True"), false);
+
+        final ServerMessage<?> matchingMessage = createTestMessage(Collections.singletonMap("prop", true));
+        final ServerMessage<?> unmatchingMessage = createTestMessage(Collections.singletonMap("prop", false));
+
+        assertTrue(_exchange.route(matchingMessage, "a.b", _instanceProperties).hasRoutes());
+        assertFalse(_exchange.route(unmatchingMessage, "a.b", _instanceProperties).hasRoutes());
+        assertTrue(_exchange.route(matchingMessage, "a.b", _instanceProperties).hasRoutes());
+        assertEquals(2, _exchange.getRoutingCacheHits());
+    }
+
     private ServerMessage<?> createTestMessage(Map<String, Object> headerValues)
     {
         AMQMessageHeader header = mock(AMQMessageHeader.class);
@@ -0,0 +1,133 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange.topic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class TopicParserTest extends UnitTestBase
+{
+    @Test
+    public void testParse()
+    {
+        final TopicParser parser = new TopicParser();
+        final TopicMatcherResult direct = new TestResult();
+        final TopicMatcherResult star = new TestResult();
+        final TopicMatcherResult hash = new TestResult();
+
+        parser.addBinding("a.b.c", direct);
+        parser.addBinding("a.*.c", star);
+        parser.addBinding("a.#", hash);
+
+        assertEquals(new HashSet<>(Arrays.asList(direct, star, hash)), new HashSet<>(parser.parse("a.b.c")));
+        assertEquals(new HashSet<>(Arrays.asList(star, hash)), new HashSet<>(parser.parse("a.x.c")));
+        assertEquals(Collections.singleton(hash), new HashSet<>(parser.parse("a.x.y.z")));
+        assertTrue(parser.parse("b.c").isEmpty());
+    }
+
+    @Test
+    public void testRemoveBinding()
+    {
+        final TopicParser parser = new TopicParser();
+        final TopicMatcherResult result = new TestResult();
+
+        parser.addBinding("a.b", result);
+        assertEquals(1, parser.getBindingCount());
+
+        assertTrue(parser.removeBinding("a.b", result));
+        assertFalse(parser.removeBinding("a.b", result));
+        assertEquals(0, parser.getBindingCount());
+        assertTrue(parser.parse("a.b").isEmpty());
+        assertEquals(0, parser.getStateCount());
+    }
+
+    @Test
+    public void testCompactionDiscardsStatesOfRemovedBindings()
+    {
+        final TopicParser parser = new TopicParser();
+        final TopicMatcherResult retained = new TestResult();
+        parser.addBinding("retained.#", retained);
+        final int initialStateCount = parser.getStateCount();
+        final long initialFootprint = parser.getEstimatedFootprint();
+
+        final TopicMatcherResult[] temporary = new TopicMatcherResult[100];
+        for (int i = 0; i < temporary.length; i++)
+        {
+            temporary[i] = new TestResult();
+            parser.addBinding("temporary." + i + ".*", temporary[i]);
+        }
+        assertTrue(parser.getStateCount() > initialStateCount);
+
+        for (int i = 0; i < temporary.length; i++)
+        {
+            parser.removeBinding("temporary." + i + ".*", temporary[i]);
+        }
+
+        assertEquals(1, parser.getBindingCount());
+        assertEquals(initialStateCount, parser.getStateCount());
+        assertEquals(initialFootprint, parser.getEstimatedFootprint());
+        assertEquals(Collections.singleton(retained), new HashSet<>(parser.parse("retained.x.y")));
+        assertTrue(parser.parse("temporary.1.x").isEmpty());
+    }
+
+    @Test
+    public void testCompactionRetainsLiveBindings()
+    {
+        final TopicParser parser = new TopicParser();
+        final TopicMatcherResult[] results = new TopicMatcherResult[10];
+        for (int i = 0; i < results.length; i++)
+        {
+            results[i] = new TestResult();
+            parser.addBinding("key." + i + ".#", results[i]);
+        }
+
+        for (int i = 0; i < results.length; i += 2)
+        {
+            parser.removeBinding("key." + i + ".#", results[i]);
+        }
+        parser.compact();
+
+        for (int i = 0; i < results.length; i++)
+        {
+            if (i % 2 == 0)
+            {
+                assertTrue(parser.parse("key." + i + ".x").isEmpty());
+            }
+            else
+            {
+                assertEquals(Collections.singleton(results[i]), new HashSet<>(parser.parse("key." + i + ".x")));
+            }
+        }
+    }
+
+    private static class TestResult implements TopicMatcherResult
+    {
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.server.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.apache.qpid.server.filter.selector.SelectorParser;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class SelectorCompilerTest extends UnitTestBase
+{
+    private static final String[] SELECTORS = {
+            "a = 5",
+            "a <> 5",
+            "a > 3",
+            "a >= 3",
+            "a < 3",
+            "a <= 3",
+            "a > 10000000000",
+            "a = 2.5",
+            "a < 2.5",
+            "NOT (a > 3)",
+            "a BETWEEN 1 AND 5",
+            "a NOT BETWEEN 1 AND 5",
+            "NOT (a BETWEEN 1 AND 5)",
+            "a > 3 OR b = 2",
+            "a > 3 AND b = 2",
+            "NOT (a > 3 OR b = 2)",
+            "a IS NULL OR a > 2",
+            "a > 3 AND b = 'x'",
+            "b = 'x' OR a BETWEEN 2.0 AND 3.5"
+    };
+
+    private static final Object[] VALUES = {
+            null, (byte) 3, (short) 4, 3, 5, 6L, 10000000001L, 2.5d, 4.0d, 2.5f, Double.NaN, "x", "5", true
+    };
+
+    @Test
+    public void testNumericComparisonsAreCompiled() throws Exception
+    {
+        assertTrue(compile("a > 3") instanceof SelectorCompiler.NumericComparison);
+        assertTrue(compile("a = 2.5") instanceof SelectorCompiler.NumericComparison);
+
+        final BooleanExpression<FilterableMessage> stringEquality = parse("a = 'x'");
+        assertSame(stringEquality, SelectorCompiler.compile(stringEquality));
+    }
+
+    @Test
+    public void testCompiledSelectorsAgreeWithInterpretedSelectors() throws Exception
+    {
+        final List<Filterable> messages = new ArrayList<>();
+        for (Object a : VALUES)
+        {
+            for (Object b : VALUES)
+            {
+                messages.add(createMessage(a, b));
+            }
+        }
+
+        for (String selector : SELECTORS)
+        {
+            final BooleanExpression<FilterableMessage> interpreted = parse(selector);
+            final BooleanExpression<FilterableMessage> compiled = SelectorCompiler.compile(parse(selector));
+            for (Filterable message : messages)
+            {
+                assertEquals("Unexpected result of selector '" + selector + "' for a=" + message.getHeader("a")
+                             + ", b=" + message.getHeader("b"),
+                             interpreted.evaluate(message),
+                             compiled.evaluate(message));
+            }
+        }
+    }
+
+    @Test
+    public void testCompiledFilterMatches() throws Exception
+    {
+        final JMSSelectorFilter filter = new JMSSelectorFilter("a BETWEEN 1 AND 5", true);
+
+        assertTrue(filter.matches(createMessage(3L, null)));
+        assertFalse(filter.matches(createMessage(6, null)));
+        assertFalse(filter.matches(createMessage(null, null)));
+    }
+
+    private BooleanExpression<FilterableMessage> compile(final String selector) throws Exception
+    {
+        return SelectorCompiler.compile(parse(selector));
+    }
+
+    private BooleanExpression<FilterableMessage> parse(final String selector) throws Exception
+    {
+        final SelectorParser<FilterableMessage> selectorParser = new SelectorParser<>();
+        selectorParser.setPropertyExpressionFactory(JMSMessagePropertyExpression.FACTORY);
+        return selectorParser.parse(selector);
+    }
+
+    private Filterable createMessage(final Object a, final Object b)
+    {
+        final Map<String, Object> headers = new HashMap<>();
+        headers.put("a", a);
+        headers.put("b", b);
+
+        final Filterable message = mock(Filterable.class);
+        when(message.getHeader(anyString())).then(invocation -> headers.get(invocation.getArgument(0)));
+        return message;
+    }
+}
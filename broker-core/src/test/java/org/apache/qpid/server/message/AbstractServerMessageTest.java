@@ -20,16 +20,25 @@
  */
 package org.apache.qpid.server.message;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 import java.util.UUID;
 
 import org.junit.Test;
 
+import org.apache.qpid.server.model.NamedAddressSpace;
+import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
@@ -162,4 +171,129 @@ public class AbstractServerMessageTest extends UnitTestBase
         }
 
     }
+
+    @Test
+    public void testConvertedMessageSharedUntilMessageDeleted()
+    {
+        final StoredMessage<StorableMessageMetaData> storedMessage = mock(StoredMessage.class);
+        when(storedMessage.isInContentInMemory()).thenReturn(true);
+        final TestMessage<StorableMessageMetaData> msg = new TestMessage<>(storedMessage, this);
+        final NamedAddressSpace addressSpace =
+                mock(NamedAddressSpace.class, withSettings().extraInterfaces(ConvertedMessageSizeAccount.class));
+        final ServerMessage<?> converted = mock(ServerMessage.class);
+        @SuppressWarnings("unchecked")
+        final MessageConverter<TestMessage<StorableMessageMetaData>, ServerMessage> converter = mock(MessageConverter.class);
+        when(converter.convert(any(), any())).thenReturn(converted);
+
+        final MessageReference<TestMessage<StorableMessageMetaData>> ref = msg.newReference(createQueue("1"));
+
+        assertSame(converted, msg.getConvertedMessage(converter, addressSpace));
+        msg.releaseConvertedMessage(converted);
+        assertSame(converted, msg.getConvertedMessage(converter, addressSpace));
+        msg.releaseConvertedMessage(converted);
+        verify(converter, times(1)).convert(msg, addressSpace);
+        verify(converter, never()).dispose(any());
+        verify((ConvertedMessageSizeAccount) addressSpace, times(1)).convertedMessageCacheHit();
+        verify((ConvertedMessageSizeAccount) addressSpace, times(1)).convertedMessageCacheMiss();
+
+        msg.releaseConvertedMessage(msg.getConvertedMessage(converter, mock(NamedAddressSpace.class)));
+        verify(converter, times(2)).convert(any(), any());
+
+        ref.release();
+        verify(converter, times(2)).dispose(converted);
+
+        try
+        {
+            msg.getConvertedMessage(converter, addressSpace);
+            fail("Message should not be converted once all references had been removed");
+        }
+        catch (MessageDeletedException e)
+        {
+            // pass
+        }
+        verify(converter, times(2)).convert(any(), any());
+    }
+
+    @Test
+    public void testConvertedMessageCacheCountsHitsAndMisses()
+    {
+        final StoredMessage<StorableMessageMetaData> storedMessage = mock(StoredMessage.class);
+        final TestMessage<StorableMessageMetaData> msg = new TestMessage<>(storedMessage, this);
+        final NamedAddressSpace addressSpace = mock(NamedAddressSpace.class);
+        @SuppressWarnings("unchecked")
+        final MessageConverter<TestMessage<StorableMessageMetaData>, ServerMessage> converter = mock(MessageConverter.class);
+        when(converter.convert(any(), any())).thenReturn(mock(ServerMessage.class));
+
+        final ConvertedMessageCache cache = new ConvertedMessageCache(msg);
+        cache.getConvertedMessage(msg, converter, addressSpace, true);
+        cache.getConvertedMessage(msg, converter, addressSpace, true);
+        cache.getConvertedMessage(msg, converter, addressSpace, false);
+
+        assertEquals("Unexpected hit count", 1, cache.getHitCount());
+        assertEquals("Unexpected miss count", 2, cache.getMissCount());
+    }
+
+    @Test
+    public void testConvertedMessageNotSharedOnceFlowedToDisk()
+    {
+        final StoredMessage<StorableMessageMetaData> storedMessage = mock(StoredMessage.class);
+        when(storedMessage.isInContentInMemory()).thenReturn(true);
+        final TestMessage<StorableMessageMetaData> msg = new TestMessage<>(storedMessage, this);
+        final NamedAddressSpace addressSpace =
+                mock(NamedAddressSpace.class, withSettings().extraInterfaces(ConvertedMessageSizeAccount.class));
+        final ServerMessage<?> converted = mock(ServerMessage.class);
+        when(converted.getSizeIncludingHeader()).thenReturn(10L);
+        @SuppressWarnings("unchecked")
+        final MessageConverter<TestMessage<StorableMessageMetaData>, ServerMessage> converter = mock(MessageConverter.class);
+        when(converter.convert(any(), any())).thenReturn(converted);
+
+        final MessageReference<TestMessage<StorableMessageMetaData>> ref = msg.newReference(createQueue("1"));
+
+        assertSame(converted, msg.getConvertedMessage(converter, addressSpace));
+        assertEquals(10L, msg.getConvertedMessagesSize());
+        verify((ConvertedMessageSizeAccount) addressSpace).convertedMessageSizeChanged(msg, 10L);
+
+        when(storedMessage.isInContentInMemory()).thenReturn(false);
+        msg.releaseConvertedMessage(converted);
+        assertEquals(0L, msg.getConvertedMessagesSize());
+        verify((ConvertedMessageSizeAccount) addressSpace).convertedMessageSizeChanged(msg, -10L);
+        verify(converter).dispose(converted);
+
+        assertSame(converted, msg.getConvertedMessage(converter, addressSpace));
+        assertEquals("Conversion of a message on disk should not be cached", 0L, msg.getConvertedMessagesSize());
+        verify(converter, times(1)).dispose(converted);
+        msg.releaseConvertedMessage(converted);
+        verify(converter, times(2)).dispose(converted);
+        verify(converter, times(2)).convert(msg, addressSpace);
+
+        ref.release();
+        verify(converter, times(2)).dispose(converted);
+    }
+
+    @Test
+    public void testEvictedConversionDisposedOnLastRelease()
+    {
+        final StoredMessage<StorableMessageMetaData> storedMessage = mock(StoredMessage.class);
+        when(storedMessage.isInContentInMemory()).thenReturn(true);
+        final TestMessage<StorableMessageMetaData> msg = new TestMessage<>(storedMessage, this);
+        final NamedAddressSpace addressSpace = mock(NamedAddressSpace.class);
+        final ServerMessage<?> converted = mock(ServerMessage.class);
+        @SuppressWarnings("unchecked")
+        final MessageConverter<TestMessage<StorableMessageMetaData>, ServerMessage> converter = mock(MessageConverter.class);
+        when(converter.convert(any(), any())).thenReturn(converted);
+
+        final MessageReference<TestMessage<StorableMessageMetaData>> ref = msg.newReference(createQueue("1"));
+
+        msg.getConvertedMessage(converter, addressSpace);
+        msg.getConvertedMessage(converter, addressSpace);
+        msg.evictConvertedMessages();
+
+        msg.releaseConvertedMessage(converted);
+        verify(converter, never()).dispose(any());
+        msg.releaseConvertedMessage(converted);
+        verify(converter).dispose(converted);
+
+        ref.release();
+        verify(converter).dispose(converted);
+    }
 }
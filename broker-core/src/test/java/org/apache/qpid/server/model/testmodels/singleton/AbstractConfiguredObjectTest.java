@@ -957,6 +957,24 @@ public class AbstractConfiguredObjectTest extends UnitTestBase
         assertTrue("Expected statistic not found", stats.containsKey("longStatistic"));
     }
 
+    @Test
+    public void testRequestedStatistics() throws Exception
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(TestSingleton.NAME, "myName");
+
+        TestSingleton object = _model.getObjectFactory().create(TestSingleton.class,
+                                                                    attributes, null);
+
+        final long before = System.currentTimeMillis();
+        final Map<String, Object> stats = object.getStatistics(Collections.singletonList("longStatistic"));
+        assertEquals("Unexpected statistics", Collections.singleton("longStatistic"), stats.keySet());
+        assertTrue("Unexpected statistic value", (Long) stats.get("longStatistic") >= before);
+
+        assertTrue("Unexpected statistics",
+                   object.getStatistics(Collections.singletonList("unknownStatistic")).isEmpty());
+    }
+
     @Test
     public void testAuditInformation() throws Exception
     {
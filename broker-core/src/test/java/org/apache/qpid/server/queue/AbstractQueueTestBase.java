@@ -40,6 +40,7 @@ import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -1155,6 +1156,67 @@ abstract class AbstractQueueTestBase extends UnitTestBase
         assertEquals("Unexpected DLQ depth", 1, dlq.getQueueDepthMessages());
     }
 
+    @Test
+    public void testExpiredMessagesDeletedByHousekeeping()
+    {
+        final long currentTime = System.currentTimeMillis();
+        final ServerMessage expiredMessage = createMessage(1L);
+        when(expiredMessage.getExpiration()).thenReturn(currentTime - 1000L);
+        final ServerMessage messageWithoutExpiration = createMessage(2L);
+        final ServerMessage unexpiredMessage = createMessage(3L);
+        when(unexpiredMessage.getExpiration()).thenReturn(currentTime + 60000L);
+
+        _queue.enqueue(unexpiredMessage, null, null);
+        _queue.enqueue(messageWithoutExpiration, null, null);
+        _queue.enqueue(expiredMessage, null, null);
+
+        assertEquals("Unexpected queue depth", 3, _queue.getQueueDepthMessages());
+
+        _queue.checkMessageStatus();
+
+        assertEquals("Unexpected queue depth after checking message status", 2, _queue.getQueueDepthMessages());
+        assertEquals("Unexpected expired message count", 1, _queue.getTotalExpiredMessages());
+    }
+
+    @Test
+    public void testMessageIdIndex()
+    {
+        Map<String,Object> attributes = new HashMap<>(_arguments);
+        attributes.put(Queue.NAME, getTestName());
+        attributes.put(Queue.CONTEXT, Collections.singletonMap(Queue.QUEUE_MESSAGE_ID_INDEX_ENABLED, "true"));
+        Queue<?> queue = _virtualHost.createChild(Queue.class, attributes);
+        Queue<?> target = _virtualHost.createChild(Queue.class, Collections.singletonMap(Queue.NAME, getTestName() + "_target"));
+
+        for (long id = 1; id <= 5; id++)
+        {
+            queue.enqueue(createMessage(id), null, null);
+        }
+
+        final QueueEntry entry = queue.getMessageOnTheQueue(3L);
+        assertNotNull("Message not found", entry);
+        assertEquals("Unexpected message", 3L, entry.getMessage().getMessageNumber());
+        assertNull("Unexpected message found", queue.getMessageOnTheQueue(6L));
+
+        assertEquals("Unexpected deleted messages", Arrays.asList(2L, 4L),
+                     queue.deleteMessages(Arrays.asList(4L, 2L, 6L), null, -1));
+        assertNull("Deleted message found", queue.getMessageOnTheQueue(2L));
+        assertNull("Deleted message found", queue.getMessageOnTheQueue(4L));
+        assertEquals("Unexpected queue depth", 3, queue.getQueueDepthMessages());
+
+        assertEquals("Unexpected moved messages", Collections.singletonList(5L),
+                     queue.moveMessages(target, Collections.singletonList(5L), null, -1));
+        assertNull("Moved message found", queue.getMessageOnTheQueue(5L));
+        assertEquals("Unexpected queue depth", 2, queue.getQueueDepthMessages());
+        assertEquals("Unexpected target queue depth", 1, target.getQueueDepthMessages());
+
+        final List<Long> visited = new ArrayList<>();
+        ((MessageIdIndexedQueue) queue).visit(Arrays.asList(3L, 1L, 5L), e -> {
+            visited.add(e.getMessage().getMessageNumber());
+            return false;
+        });
+        assertEquals("Unexpected visited messages", Arrays.asList(1L, 3L), visited);
+    }
+
     private void doMoveOrCopyMessageTest(final boolean move)
     {
         Queue target = _virtualHost.createChild(Queue.class, Collections.singletonMap(Queue.NAME, getTestName() + "_target"));
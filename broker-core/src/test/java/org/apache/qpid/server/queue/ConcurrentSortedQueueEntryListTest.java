@@ -0,0 +1,271 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerTestHelper;
+import org.apache.qpid.server.model.LifetimePolicy;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+public class ConcurrentSortedQueueEntryListTest extends QueueEntryListTestBase
+{
+    private static final String[] KEYS = SortedQueueEntryListTest.keys;
+
+    private SortedQueueImpl _testQueue;
+    private ConcurrentSortedQueueEntryList _list;
+    private ExecutorService _executorService;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Map<String,Object> attributes = new HashMap<>();
+        attributes.put(Queue.ID, UUID.randomUUID());
+        attributes.put(Queue.NAME, getTestName());
+        attributes.put(Queue.DURABLE, false);
+        attributes.put(Queue.LIFETIME_POLICY, LifetimePolicy.PERMANENT);
+        attributes.put(SortedQueue.SORT_KEY, "KEY");
+
+        final QueueManagingVirtualHost virtualHost = BrokerTestHelper.createVirtualHost("testVH", this);
+        _testQueue = new SortedQueueImpl(attributes, virtualHost);
+        _testQueue.open();
+        _list = new ConcurrentSortedQueueEntryList(_testQueue, _testQueue.getQueueStatistics());
+
+        long messageId = 0L;
+        for (final String key : KEYS)
+        {
+            _list.add(generateTestMessage(messageId++, key), null);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (_executorService != null)
+        {
+            _executorService.shutdownNow();
+        }
+    }
+
+    @Override
+    public ConcurrentSortedQueueEntryList getTestList()
+    {
+        return getTestList(false);
+    }
+
+    @Override
+    public ConcurrentSortedQueueEntryList getTestList(final boolean newList)
+    {
+        return newList ? new ConcurrentSortedQueueEntryList(_testQueue, _testQueue.getQueueStatistics()) : _list;
+    }
+
+    @Override
+    public long getExpectedFirstMsgId()
+    {
+        return 67L;
+    }
+
+    @Override
+    public int getExpectedListLength()
+    {
+        return KEYS.length;
+    }
+
+    @Override
+    public ServerMessage getTestMessageToAdd()
+    {
+        return generateTestMessage(1, "test value");
+    }
+
+    @Override
+    protected SortedQueueImpl getTestQueue()
+    {
+        return _testQueue;
+    }
+
+    @Override
+    @Test
+    public void testIterator() throws Exception
+    {
+        super.testIterator();
+
+        final String[] keysSorted = KEYS.clone();
+        Arrays.sort(keysSorted);
+
+        final QueueEntryIterator iter = getTestList().iterator();
+        int count = 0;
+        while (iter.advance())
+        {
+            assertEquals("Sorted queue entry value does not match sorted key array",
+                         keysSorted[count++],
+                         iter.getNode().getMessage().getMessageHeader().getHeader("KEY"));
+        }
+    }
+
+    @Test
+    public void testOrderMatchesSortedQueueEntryList()
+    {
+        final ConcurrentSortedQueueEntryList concurrentList = getTestList(true);
+        final SortedQueueEntryList sortedList = new SortedQueueEntryList(_testQueue, _testQueue.getQueueStatistics());
+
+        long messageId = 0L;
+        for (final String key : KEYS)
+        {
+            final String entryKey = messageId % 7 == 0 ? null : messageId % 5 == 0 ? "samekey" : key;
+            concurrentList.add(generateTestMessage(messageId, entryKey), null);
+            sortedList.add(generateTestMessage(messageId, entryKey), null);
+            messageId++;
+        }
+
+        assertEquals("Unexpected entry order", getMessageIds(sortedList), getMessageIds(concurrentList));
+    }
+
+    @Test
+    public void testNextOfDeletedEntry()
+    {
+        final ConcurrentSortedQueueEntryList list = getTestList(true);
+        final ConcurrentSortedQueueEntry entryA = list.add(generateTestMessage(1, "A"), null);
+        final ConcurrentSortedQueueEntry entryB = list.add(generateTestMessage(2, "B"), null);
+        final ConcurrentSortedQueueEntry entryC = list.add(generateTestMessage(3, "C"), null);
+
+        entryB.acquire();
+        entryB.delete();
+
+        assertSame("Unexpected next entry of deleted entry", entryC, list.next(entryB));
+        assertSame("Unexpected next entry", entryC, list.next(entryA));
+        assertSame("Unexpected tail", entryC, list.getTail());
+
+        entryC.acquire();
+        entryC.delete();
+
+        assertNull("Unexpected next entry", list.next(entryA));
+        assertSame("Unexpected tail", entryA, list.getTail());
+    }
+
+    @Test
+    public void testConcurrentAddAndDelete() throws Exception
+    {
+        final ConcurrentSortedQueueEntryList list = getTestList(true);
+        final int threads = 4;
+        final int entriesPerThread = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        _executorService = Executors.newFixedThreadPool(threads);
+
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            final int thread = t;
+            futures.add(_executorService.submit(() -> {
+                start.await();
+                for (int i = 0; i < entriesPerThread; i++)
+                {
+                    final long messageId = (long) thread * entriesPerThread + i;
+                    final QueueEntry entry =
+                            list.add(generateTestMessage(messageId, String.valueOf(messageId % 97)), null);
+                    if (i % 2 == 0)
+                    {
+                        entry.acquire();
+                        entry.delete();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures)
+        {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        final QueueEntryIterator iterator = list.iterator();
+        QueueEntry previous = null;
+        int count = 0;
+        while (iterator.advance())
+        {
+            final QueueEntry entry = iterator.getNode();
+            assertTrue("Deleted entry returned by iterator", !entry.isDeleted());
+            if (previous != null)
+            {
+                assertTrue("Entries out of order", previous.compareTo(entry) < 0);
+            }
+            previous = entry;
+            count++;
+        }
+        assertEquals("Unexpected number of entries", threads * entriesPerThread / 2, count);
+    }
+
+    private List<Long> getMessageIds(final QueueEntryList list)
+    {
+        final List<Long> messageIds = new ArrayList<>();
+        final QueueEntryIterator iterator = list.iterator();
+        while (iterator.advance())
+        {
+            messageIds.add(iterator.getNode().getMessage().getMessageNumber());
+        }
+        return messageIds;
+    }
+
+    private ServerMessage generateTestMessage(final long id, final String keyValue)
+    {
+        final ServerMessage message = mock(ServerMessage.class);
+        AMQMessageHeader hdr = mock(AMQMessageHeader.class);
+        when(message.getMessageHeader()).thenReturn(hdr);
+        when(hdr.getHeader(eq("KEY"))).thenReturn(keyValue);
+        when(hdr.containsHeader(eq("KEY"))).thenReturn(true);
+        when(hdr.getHeaderNames()).thenReturn(Collections.singleton("KEY"));
+        MessageReference ref = mock(MessageReference.class);
+        when(ref.getMessage()).thenReturn(message);
+        when(message.newReference()).thenReturn(ref);
+        when(message.newReference(any(TransactionLogResource.class))).thenReturn(ref);
+        when(message.getMessageNumber()).thenReturn(id);
+
+        return message;
+    }
+}
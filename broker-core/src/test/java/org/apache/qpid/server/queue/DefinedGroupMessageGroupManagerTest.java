@@ -0,0 +1,233 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.MessageInstance;
+import org.apache.qpid.server.message.MessageInstance.EntryState;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.util.StateChangeListener;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class DefinedGroupMessageGroupManagerTest extends UnitTestBase
+{
+    private MessageGroupManager.ConsumerResetHelper _resetHelper;
+    private DefinedGroupMessageGroupManager _groupManager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _resetHelper = mock(MessageGroupManager.ConsumerResetHelper.class);
+        _groupManager = new DefinedGroupMessageGroupManager(null, "qpid.no-group", _resetHelper);
+    }
+
+    @Test
+    public void testGroupIsAssignedToOneConsumer()
+    {
+        final QueueConsumer<?,?> consumer1 = mock(QueueConsumer.class);
+        final QueueConsumer<?,?> consumer2 = mock(QueueConsumer.class);
+        final TestEntry entry1 = new TestEntry("A");
+        final TestEntry entry2 = new TestEntry("A");
+        final TestEntry entry3 = new TestEntry("B");
+
+        assertTrue(_groupManager.mightAssign(entry1.getEntry(), consumer1));
+        assertTrue(_groupManager.acceptMessage(consumer1, entry1.getEntry()));
+
+        assertFalse(_groupManager.mightAssign(entry2.getEntry(), consumer2));
+        assertFalse(_groupManager.acceptMessage(consumer2, entry2.getEntry()));
+        assertTrue(_groupManager.mightAssign(entry2.getEntry(), consumer1));
+
+        assertTrue(_groupManager.mightAssign(entry3.getEntry(), consumer2));
+        assertTrue(_groupManager.acceptMessage(consumer2, entry3.getEntry()));
+        assertFalse(_groupManager.mightAssign(entry3.getEntry(), consumer1));
+    }
+
+    @Test
+    public void testGroupIsReleasedWhenItsEntriesAreDeleted()
+    {
+        final QueueConsumer<?,?> consumer1 = mock(QueueConsumer.class);
+        final QueueConsumer<?,?> consumer2 = mock(QueueConsumer.class);
+        final TestEntry entry1 = new TestEntry("A");
+        final TestEntry entry2 = new TestEntry("A");
+
+        assertTrue(_groupManager.acceptMessage(consumer1, entry1.getEntry()));
+        assertFalse(_groupManager.mightAssign(entry2.getEntry(), consumer2));
+        verify(_resetHelper, never()).resetSubPointersForGroups(any(QueueEntry.class));
+
+        entry1.delete();
+
+        verify(_resetHelper).resetSubPointersForGroups(entry2.getEntry());
+        assertTrue(_groupManager.mightAssign(entry2.getEntry(), consumer2));
+        assertTrue(_groupManager.acceptMessage(consumer2, entry2.getEntry()));
+    }
+
+    @Test
+    public void testConcurrentConsumersNeverShareAGroup() throws Exception
+    {
+        final int consumerCount = 8;
+        final int groupCount = 16;
+        final List<TestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+        {
+            entries.add(new TestEntry("group" + (i % groupCount)));
+        }
+
+        final Map<Object, QueueConsumer<?,?>> groupOwners = new ConcurrentHashMap<>();
+        final List<String> violations = new CopyOnWriteArrayList<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(consumerCount);
+        try
+        {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < consumerCount; c++)
+            {
+                final QueueConsumer<?,?> consumer = mock(QueueConsumer.class);
+                futures.add(executor.submit(() ->
+                                            {
+                                                start.await();
+                                                for (TestEntry entry : entries)
+                                                {
+                                                    if (_groupManager.mightAssign(entry.getEntry(), consumer)
+                                                        && _groupManager.acceptMessage(consumer, entry.getEntry()))
+                                                    {
+                                                        final QueueConsumer<?,?> owner =
+                                                                groupOwners.putIfAbsent(entry.getGroup(), consumer);
+                                                        if (owner != null && owner != consumer)
+                                                        {
+                                                            violations.add(entry.getGroup());
+                                                        }
+                                                    }
+                                                }
+                                                return null;
+                                            }));
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+            {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertTrue("Groups delivered to more than one consumer: " + violations, violations.isEmpty());
+        assertEquals(groupCount, groupOwners.size());
+    }
+
+    private static final class TestEntry
+    {
+        private static final AtomicLong MESSAGE_NUMBER = new AtomicLong();
+
+        private final String _group;
+        private final QueueEntry _entry;
+        private final List<StateChangeListener<? super MessageInstance, EntryState>> _listeners =
+                new CopyOnWriteArrayList<>();
+        private final AtomicReference<EntryState> _state = new AtomicReference<>(MessageInstance.AVAILABLE_STATE);
+
+        @SuppressWarnings("unchecked")
+        private TestEntry(final String group)
+        {
+            _group = group;
+            _entry = mock(QueueEntry.class);
+
+            final AMQMessageHeader header = mock(AMQMessageHeader.class);
+            when(header.getGroupId()).thenReturn(group);
+            final long messageNumber = MESSAGE_NUMBER.incrementAndGet();
+            final ServerMessage<?> message = mock(ServerMessage.class);
+            when(message.getMessageHeader()).thenReturn(header);
+            when(message.getMessageNumber()).thenReturn(messageNumber);
+            when(_entry.getMessage()).thenReturn((ServerMessage) message);
+            when(_entry.compareTo(any(QueueEntry.class))).then(invocation ->
+                {
+                    final QueueEntry other = invocation.getArgument(0);
+                    return Long.compare(messageNumber, other.getMessage().getMessageNumber());
+                });
+            when(_entry.isAvailable()).then(invocation -> _state.get() == MessageInstance.AVAILABLE_STATE);
+
+            doAnswer(invocation -> _listeners.add(invocation.getArgument(0))).when(_entry)
+                                                                            .addStateChangeListener(any());
+            when(_entry.removeStateChangeListener(any()))
+                    .then(invocation -> _listeners.remove(invocation.getArgument(0)));
+            when(_entry.acquire(any(QueueConsumer.class))).then(invocation ->
+                {
+                    final QueueConsumer<?,?> consumer = invocation.getArgument(0);
+                    return changeState(MessageInstance.AVAILABLE_STATE,
+                                       new MessageInstance.StealableConsumerAcquiredState<>(consumer));
+                });
+        }
+
+        private QueueEntry getEntry()
+        {
+            return _entry;
+        }
+
+        private String getGroup()
+        {
+            return _group;
+        }
+
+        private void delete()
+        {
+            changeState(_state.get(), MessageInstance.DELETED_STATE);
+        }
+
+        private boolean changeState(final EntryState expected, final EntryState newState)
+        {
+            if (_state.compareAndSet(expected, newState))
+            {
+                for (StateChangeListener<? super MessageInstance, EntryState> listener : _listeners)
+                {
+                    listener.stateChanged(_entry, expected, newState);
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -23,12 +23,14 @@ package org.apache.qpid.server.queue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -79,6 +81,84 @@ public class FlowToDiskOverflowPolicyHandlerTest extends UnitTestBase
         verify(storedMessage2).flowToDisk();
     }
 
+    @Test
+    public void testOverflowAfterLoweringMessageLimit() throws Exception
+    {
+        ServerMessage<?> message = createMessage(10L);
+        _queue.enqueue(message, null, null);
+        ServerMessage<?> message2 = createMessage(10L);
+        _queue.enqueue(message2, null, null);
+        ServerMessage<?> message3 = createMessage(10L);
+        _queue.enqueue(message3, null, null);
+
+        _queue.setAttributes(Collections.singletonMap(Queue.MAXIMUM_QUEUE_DEPTH_MESSAGES, 2));
+
+        verify(message.getStoredMessage(), never()).flowToDisk();
+        verify(message2.getStoredMessage(), never()).flowToDisk();
+        verify(message3.getStoredMessage()).flowToDisk();
+    }
+
+    @Test
+    public void testTailAlreadyFlowedIsNotSweptAgain() throws Exception
+    {
+        ServerMessage<?> message = createMessage(10L);
+        _queue.enqueue(message, null, null);
+        ServerMessage<?> message2 = createMessage(10L);
+        _queue.enqueue(message2, null, null);
+        ServerMessage<?> message3 = createMessage(10L);
+        _queue.enqueue(message3, null, null);
+
+        _queue.setAttributes(Collections.singletonMap(Queue.MAXIMUM_QUEUE_DEPTH_BYTES, 10));
+
+        verify(message.getStoredMessage(), never()).flowToDisk();
+        verify(message2.getStoredMessage()).flowToDisk();
+        verify(message3.getStoredMessage()).flowToDisk();
+
+        ServerMessage<?> message4 = createMessage(10L);
+        _queue.enqueue(message4, null, null);
+        verify(message4.getStoredMessage()).flowToDisk();
+
+        QueueEntryIterator iterator = _queue.queueEntryIterator();
+        iterator.advance();
+        QueueEntry head = iterator.getNode();
+        head.acquire();
+        head.delete();
+
+        verify(message2.getStoredMessage(), times(1)).flowToDisk();
+        verify(message3.getStoredMessage(), times(1)).flowToDisk();
+        verify(message4.getStoredMessage(), times(1)).flowToDisk();
+
+        when(message2.getStoredMessage().getInMemorySize()).thenReturn(10L);
+        _queue.setAttributes(Collections.singletonMap(Queue.MAXIMUM_QUEUE_DEPTH_BYTES, 0));
+
+        verify(message2.getStoredMessage(), times(2)).flowToDisk();
+    }
+
+    @Test
+    public void testReloadedTailEntryFlowedAgain() throws Exception
+    {
+        ServerMessage<?> message = createMessage(10L);
+        _queue.enqueue(message, null, null);
+        ServerMessage<?> message2 = createMessage(10L);
+        _queue.enqueue(message2, null, null);
+        ServerMessage<?> message3 = createMessage(10L);
+        _queue.enqueue(message3, null, null);
+
+        _queue.setAttributes(Collections.singletonMap(Queue.MAXIMUM_QUEUE_DEPTH_BYTES, 10));
+
+        verify(message2.getStoredMessage()).flowToDisk();
+        verify(message3.getStoredMessage()).flowToDisk();
+
+        // message content read back into memory, e.g. by a browser
+        when(message3.getStoredMessage().getInMemorySize()).thenReturn(10L);
+
+        _queue.checkCapacity();
+
+        verify(message.getStoredMessage(), never()).flowToDisk();
+        verify(message2.getStoredMessage(), times(1)).flowToDisk();
+        verify(message3.getStoredMessage(), times(2)).flowToDisk();
+    }
+
     @Test
     public void testOverflowOnSecondMessage() throws Exception
     {
@@ -135,7 +215,13 @@ public class FlowToDiskOverflowPolicyHandlerTest extends UnitTestBase
         StoredMessage storedMessage = mock(StoredMessage.class);
         when(message.getStoredMessage()).thenReturn(storedMessage);
         when(storedMessage.isInContentInMemory()).thenReturn(true);
-        when(storedMessage.getInMemorySize()).thenReturn(size);
+        final AtomicLong inMemorySize = new AtomicLong(size);
+        when(storedMessage.getInMemorySize()).thenAnswer(invocation -> inMemorySize.get());
+        when(storedMessage.flowToDisk()).thenAnswer(invocation ->
+                                                    {
+                                                        inMemorySize.set(0L);
+                                                        return true;
+                                                    });
 
         MessageReference ref = mock(MessageReference.class);
         when(ref.getMessage()).thenReturn(message);
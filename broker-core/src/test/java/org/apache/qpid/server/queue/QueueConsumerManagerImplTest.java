@@ -0,0 +1,126 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class QueueConsumerManagerImplTest extends UnitTestBase
+{
+    private QueueConsumerManagerImpl _consumerManager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        final AbstractQueue<?> queue = mock(AbstractQueue.class);
+        when(queue.getContextValue(Integer.class, Queue.QUEUE_SCAVANGE_COUNT)).thenReturn(100);
+        _consumerManager = new QueueConsumerManagerImpl(queue);
+    }
+
+    @Test
+    public void testHighestInterestedPriority()
+    {
+        assertEquals(Integer.MIN_VALUE, _consumerManager.getHighestInterestedPriority());
+
+        final QueueConsumer<?,?> low = createConsumer(1, true, true);
+        final QueueConsumer<?,?> high = createConsumer(10, true, true);
+        final QueueConsumer<?,?> highest = createConsumer(20, false, true);
+        final QueueConsumer<?,?> browser = createConsumer(30, true, false);
+        _consumerManager.addConsumer(low);
+        _consumerManager.addConsumer(high);
+        _consumerManager.addConsumer(highest);
+        _consumerManager.addConsumer(browser);
+
+        assertEquals("Consumers not wanting work or not acquiring should be ignored",
+                     10, _consumerManager.getHighestInterestedPriority());
+
+        assertTrue(_consumerManager.setNotified(high, true));
+        assertEquals(10, _consumerManager.getHighestInterestedPriority());
+
+        assertTrue(_consumerManager.setInterest(high, false));
+        assertEquals(1, _consumerManager.getHighestInterestedPriority());
+
+        assertTrue(_consumerManager.setInterest(highest, true));
+        assertEquals(20, _consumerManager.getHighestInterestedPriority());
+
+        assertTrue(_consumerManager.removeConsumer(highest));
+        assertEquals(1, _consumerManager.getHighestInterestedPriority());
+
+        assertTrue(_consumerManager.removeConsumer(low));
+        assertEquals(Integer.MIN_VALUE, _consumerManager.getHighestInterestedPriority());
+    }
+
+    @Test
+    public void testHighestInterestedPriorityCountsEachConsumerOnce()
+    {
+        final QueueConsumer<?,?> low = createConsumer(1, true, true);
+        final QueueConsumer<?,?> high = createConsumer(10, true, true);
+        final QueueConsumer<?,?> otherHigh = createConsumer(10, true, true);
+        _consumerManager.addConsumer(low);
+        _consumerManager.addConsumer(high);
+        _consumerManager.addConsumer(otherHigh);
+
+        assertTrue(_consumerManager.setNotified(high, true));
+        assertTrue(_consumerManager.setNotified(high, false));
+        assertTrue(_consumerManager.setNotified(high, true));
+        assertTrue(_consumerManager.setInterest(high, false));
+        assertFalse(_consumerManager.setInterest(high, false));
+        assertEquals("Remaining consumer of the same priority should still count",
+                     10, _consumerManager.getHighestInterestedPriority());
+
+        assertTrue(_consumerManager.setNotified(otherHigh, true));
+        assertTrue(_consumerManager.removeConsumer(otherHigh));
+        assertEquals(1, _consumerManager.getHighestInterestedPriority());
+
+        assertTrue(_consumerManager.setInterest(high, true));
+        assertEquals(10, _consumerManager.getHighestInterestedPriority());
+        assertTrue(_consumerManager.removeConsumer(high));
+        assertEquals(1, _consumerManager.getHighestInterestedPriority());
+    }
+
+    private QueueConsumer<?,?> createConsumer(final int priority, final boolean notifyWorkDesired, final boolean acquires)
+    {
+        final QueueConsumer<?,?> consumer = mock(QueueConsumer.class);
+        final AtomicReference<QueueConsumerNode> node = new AtomicReference<>();
+        doAnswer(invocation -> {
+            node.set(invocation.getArgument(0));
+            return null;
+        }).when(consumer).setQueueConsumerNode(any(QueueConsumerNode.class));
+        when(consumer.getQueueConsumerNode()).then(invocation -> node.get());
+        when(consumer.getPriority()).thenReturn(priority);
+        when(consumer.isNotifyWorkDesired()).thenReturn(notifyWorkDesired);
+        when(consumer.acquires()).thenReturn(acquires);
+        return consumer;
+    }
+}
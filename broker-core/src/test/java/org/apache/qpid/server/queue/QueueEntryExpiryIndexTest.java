@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.qpid.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class QueueEntryExpiryIndexTest extends UnitTestBase
+{
+    private final QueueEntryExpiryIndex _index = new QueueEntryExpiryIndex();
+
+    @Test
+    public void testDueEntriesProcessedInOrderOfExpiration()
+    {
+        final QueueEntry later = createEntry(200L);
+        final QueueEntry earlier = createEntry(100L);
+        final QueueEntry notDue = createEntry(1000L);
+        _index.add(later, 200L);
+        _index.add(earlier, 100L);
+        _index.add(notDue, 1000L);
+
+        final List<QueueEntry> processed = new ArrayList<>();
+        _index.processExpiredEntries(500L, processed::add);
+
+        assertEquals("Unexpected entries processed", Arrays.asList(earlier, later), processed);
+        assertEquals("Undeleted entries should remain in the index", 3, _index.size());
+    }
+
+    @Test
+    public void testDeletedEntriesRemovedWhenDue()
+    {
+        final QueueEntry entry = createEntry(100L);
+        _index.add(entry, 100L);
+        when(entry.isDeleted()).thenReturn(true);
+
+        final List<QueueEntry> processed = new ArrayList<>();
+        _index.processExpiredEntries(500L, processed::add);
+
+        assertEquals("Deleted entry should not be processed", Collections.emptyList(), processed);
+        assertEquals("Deleted entry should be removed from the index", 0, _index.size());
+    }
+
+    @Test
+    public void testRecordOfChangedExpirationRemovedWhenDue()
+    {
+        final QueueEntry entry = createEntry(100L);
+        _index.add(entry, 100L);
+        when(entry.getExpiration()).thenReturn(200L);
+        _index.add(entry, 200L);
+
+        final List<QueueEntry> processed = new ArrayList<>();
+        _index.processExpiredEntries(500L, processed::add);
+
+        assertEquals("Entry should be processed once", Collections.singletonList(entry), processed);
+        assertEquals("Only the current record should remain in the index", 1, _index.size());
+    }
+
+    @Test
+    public void testPurgeRemovesStaleRecords()
+    {
+        final QueueEntry entry = createEntry(1000L);
+        _index.add(entry, 1000L);
+        when(entry.getExpiration()).thenReturn(2000L);
+        _index.add(entry, 2000L);
+        final QueueEntry deleted = createEntry(1000L);
+        _index.add(deleted, 1000L);
+        when(deleted.isDeleted()).thenReturn(true);
+
+        assertEquals("Unexpected index size", 3, _index.size());
+
+        _index.purgeStaleEntries();
+
+        assertEquals("Unexpected index size after purge", 1, _index.size());
+
+        final List<QueueEntry> processed = new ArrayList<>();
+        _index.processExpiredEntries(3000L, processed::add);
+        assertEquals("Unexpected entries processed", Collections.singletonList(entry), processed);
+    }
+
+    private QueueEntry createEntry(final long expiration)
+    {
+        final QueueEntry entry = mock(QueueEntry.class);
+        when(entry.getExpiration()).thenReturn(expiration);
+        return entry;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.apache.qpid.server.model.Queue.QUEUE_SCAVANGE_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.filter.AMQPFilterTypes;
+import org.apache.qpid.server.filter.FilterManager;
+import org.apache.qpid.server.filter.JMSSelectorFilter;
+import org.apache.qpid.server.filter.MessageFilter;
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class QueueEntrySelectorIndexTest extends UnitTestBase
+{
+    private QueueEntrySelectorIndex _index;
+    private StandardQueueEntryList _entries;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _index = new QueueEntrySelectorIndex();
+        final StandardQueueImpl queue = mock(StandardQueueImpl.class);
+        when(queue.getContextValue(Integer.class, QUEUE_SCAVANGE_COUNT)).thenReturn(10);
+        _entries = new StandardQueueEntryList(queue, new QueueStatistics());
+    }
+
+    @Test
+    public void testEqualitySelectorsReadPropertyOnce() throws Exception
+    {
+        final QueueEntrySelectorIndex.Registration red = _index.register(createFilters("colour = 'red'"));
+        final QueueEntrySelectorIndex.Registration blue = _index.register(createFilters("'blue' = colour"));
+        final QueueEntrySelectorIndex.Registration large = _index.register(createFilters("size > 2"));
+
+        final AMQMessageHeader header = createHeader("colour", "red", "size", 3);
+        final QueueEntry entry = _entries.add(createMessage(1, header), null);
+
+        assertTrue(red.matches(entry));
+        assertTrue(red.matches(entry));
+        assertFalse(blue.matches(entry));
+        assertTrue(large.matches(entry));
+
+        verify(header, times(1)).getHeader("colour");
+        verify(header, times(1)).getHeader("size");
+    }
+
+    @Test
+    public void testEqualFiltersShareRegistration() throws Exception
+    {
+        final QueueEntrySelectorIndex.Registration first = _index.register(createFilters("colour = 'red'"));
+        final QueueEntrySelectorIndex.Registration second = _index.register(createFilters("colour = 'red'"));
+
+        assertSame(first, second);
+        assertEquals(1, _index.getRegistrationCount());
+
+        _index.unregister(first);
+        assertEquals(1, _index.getRegistrationCount());
+
+        _index.unregister(second);
+        assertEquals(0, _index.getRegistrationCount());
+    }
+
+    @Test
+    public void testRegistrationAddedAfterEntryEvaluated() throws Exception
+    {
+        final QueueEntrySelectorIndex.Registration red = _index.register(createFilters("colour = 'red'"));
+        final QueueEntry entry = _entries.add(createMessage(1, createHeader("colour", "green")), null);
+        assertFalse(red.matches(entry));
+
+        final QueueEntrySelectorIndex.Registration green = _index.register(createFilters("colour = 'green'"));
+        assertTrue(green.matches(entry));
+        assertFalse(red.matches(entry));
+
+        _index.unregister(red);
+        final QueueEntrySelectorIndex.Registration green2 = _index.register(createFilters("colour = 'green' OR colour = 'red'"));
+        assertTrue(green2.matches(entry));
+        assertTrue(green.matches(entry));
+    }
+
+    @Test
+    public void testUnregisteredRegistrationStillEvaluatesOwnFilter() throws Exception
+    {
+        final QueueEntrySelectorIndex.Registration red = _index.register(createFilters("colour = 'red'"));
+        _index.unregister(red);
+        final QueueEntrySelectorIndex.Registration blue = _index.register(createFilters("colour = 'blue'"));
+
+        final QueueEntry entry = _entries.add(createMessage(1, createHeader("colour", "blue")), null);
+
+        assertTrue(blue.matches(entry));
+        assertFalse(red.matches(entry));
+    }
+
+    @Test
+    public void testOutcomeDroppedOnceEveryRegistrationEvaluated() throws Exception
+    {
+        final QueueEntrySelectorIndex.Registration red = _index.register(createFilters("colour = 'red'"));
+        final QueueEntrySelectorIndex.Registration blue = _index.register(createFilters("colour = 'blue'"));
+        final QueueEntryImpl entry = (QueueEntryImpl) _entries.add(createMessage(1, createHeader("colour", "red")), null);
+
+        assertTrue(red.matches(entry));
+        assertNotNull("Outcome should be cached until every registration has evaluated the entry",
+                      entry.getSelectorMatches());
+        assertTrue(red.matches(entry));
+        assertNotNull(entry.getSelectorMatches());
+
+        assertFalse(blue.matches(entry));
+        assertNull("Outcome should be dropped once every registration has evaluated the entry",
+                   entry.getSelectorMatches());
+
+        assertTrue(red.matches(entry));
+    }
+
+    @Test
+    public void testFiltersDependingOnMoreThanMessageNotIndexed() throws Exception
+    {
+        final MessageFilter filter = mock(MessageFilter.class);
+        final FilterManager filters = new FilterManager();
+        filters.add(AMQPFilterTypes.NO_LOCAL.toString(), filter);
+
+        assertNull(_index.register(filters));
+
+        filters.add(AMQPFilterTypes.JMS_SELECTOR.toString(), new JMSSelectorFilter("colour = 'red'"));
+        assertNull(_index.register(filters));
+        assertEquals(0, _index.getRegistrationCount());
+    }
+
+    @Test
+    public void testMissingProperty() throws Exception
+    {
+        final QueueEntrySelectorIndex.Registration red = _index.register(createFilters("colour = 'red'"));
+        final QueueEntrySelectorIndex.Registration absent = _index.register(createFilters("colour IS NULL"));
+        final QueueEntry entry = _entries.add(createMessage(1, createHeader()), null);
+
+        assertFalse(red.matches(entry));
+        assertTrue(absent.matches(entry));
+    }
+
+    private FilterManager createFilters(final String selector) throws Exception
+    {
+        final FilterManager filters = new FilterManager();
+        filters.add(AMQPFilterTypes.JMS_SELECTOR.toString(), new JMSSelectorFilter(selector));
+        return filters;
+    }
+
+    private AMQMessageHeader createHeader(final Object... headers)
+    {
+        final Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < headers.length; i += 2)
+        {
+            values.put((String) headers[i], headers[i + 1]);
+        }
+
+        final AMQMessageHeader header = mock(AMQMessageHeader.class);
+        when(header.getHeaderNames()).thenReturn(values.keySet());
+        when(header.containsHeader(anyString())).then(invocation -> values.containsKey(invocation.getArgument(0)));
+        when(header.getHeader(anyString())).then(invocation -> values.get(invocation.getArgument(0)));
+        return header;
+    }
+
+    private ServerMessage createMessage(final long messageNumber, final AMQMessageHeader header)
+    {
+        final ServerMessage message = mock(ServerMessage.class);
+        when(message.getMessageNumber()).thenReturn(messageNumber);
+        final MessageReference ref = mock(MessageReference.class);
+        when(ref.getMessage()).thenReturn(message);
+        when(message.newReference()).thenReturn(ref);
+        when(message.newReference(any(TransactionLogResource.class))).thenReturn(ref);
+        when(message.getMessageHeader()).thenReturn(header);
+        return message;
+    }
+}
@@ -23,10 +23,13 @@ package org.apache.qpid.server.queue;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -94,6 +97,35 @@ public class QueueMessageRecoveryTest extends UnitTestBase
     }
 
 
+    @Test
+    public void testRecoveredEntriesBeyondMetadataInMemoryDepthAreFlowedToDisk() throws Exception
+    {
+        final List<ServerMessage<?>> messageList = new ArrayList<>();
+        final Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Queue.NAME, "test");
+        attributes.put(Queue.CONTEXT, Collections.singletonMap(Queue.QUEUE_RECOVERY_METADATA_IN_MEMORY_DEPTH, "2"));
+        TestQueue queue = new TestQueue(attributes, _vhost, messageList);
+
+        queue.open();
+
+        final List<ServerMessage<?>> recoveredMessages = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            ServerMessage<?> message = createMockMessage(i);
+            recoveredMessages.add(message);
+            queue.recover(message, createEnqueueRecord(i, queue));
+        }
+        queue.enqueue(createMockMessage(4), null, null);
+        queue.completeRecovery();
+
+        verify(recoveredMessages.get(0).getStoredMessage(), never()).flowToDisk();
+        verify(recoveredMessages.get(1).getStoredMessage(), never()).flowToDisk();
+        verify(recoveredMessages.get(2).getStoredMessage()).flowToDisk();
+        verify(recoveredMessages.get(3).getStoredMessage()).flowToDisk();
+        assertEquals((long) 5, (long) messageList.size());
+        verify(messageList.get(4).getStoredMessage(), never()).flowToDisk();
+    }
+
     @Test
     public void testMultiThreadedRecovery() throws Exception
     {
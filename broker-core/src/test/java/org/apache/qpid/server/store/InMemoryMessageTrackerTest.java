@@ -0,0 +1,108 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.qpid.server.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class InMemoryMessageTrackerTest extends UnitTestBase
+{
+    private final InMemoryMessageTracker _tracker = new InMemoryMessageTracker();
+
+    @Test
+    public void testLeastRecentlyUsedFlowedFirst()
+    {
+        final StoredMessage<?> first = createMessage(10L);
+        final StoredMessage<?> second = createMessage(10L);
+        final StoredMessage<?> third = createMessage(10L);
+        _tracker.touch(first);
+        _tracker.touch(second);
+        _tracker.touch(third);
+        assertEquals(3, _tracker.size());
+
+        assertEquals(20L, _tracker.flowToDisk(15L));
+
+        verify(first).flowToDisk();
+        verify(second).flowToDisk();
+        verify(third, never()).flowToDisk();
+        assertEquals(1, _tracker.size());
+    }
+
+    @Test
+    public void testUseAfterReleaseMovesMessageToBack()
+    {
+        final StoredMessage<?> first = createMessage(10L);
+        final StoredMessage<?> second = createMessage(10L);
+        final StoredMessage<?> third = createMessage(10L);
+        _tracker.touch(first);
+        _tracker.touch(second);
+        _tracker.touch(third);
+
+        _tracker.flowToDisk(0L);
+        _tracker.touch(first);
+
+        assertEquals(20L, _tracker.flowToDisk(20L));
+        verify(first, never()).flowToDisk();
+        verify(second).flowToDisk();
+        verify(third).flowToDisk();
+    }
+
+    @Test
+    public void testRemovedMessageNotFlowed()
+    {
+        final StoredMessage<?> message = createMessage(10L);
+        _tracker.touch(message);
+        _tracker.touch(message);
+        _tracker.remove(message);
+        assertEquals(0, _tracker.size());
+
+        assertEquals(0L, _tracker.flowToDisk(10L));
+        verify(message, never()).flowToDisk();
+
+        _tracker.touch(message);
+        assertEquals(1, _tracker.size());
+        assertEquals(10L, _tracker.flowToDisk(10L));
+        assertEquals(0, _tracker.size());
+    }
+
+    private StoredMessage<?> createMessage(final long size)
+    {
+        final AtomicLong inMemorySize = new AtomicLong(size);
+        final StoredMessage<?> message = mock(StoredMessage.class);
+        when(message.getInMemorySize()).then(invocation -> inMemorySize.get());
+        when(message.flowToDisk()).then(invocation ->
+                                        {
+                                            inMemorySize.set(0L);
+                                            return true;
+                                        });
+        return message;
+    }
+}
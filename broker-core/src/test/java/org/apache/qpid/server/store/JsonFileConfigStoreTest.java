@@ -35,6 +35,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -446,6 +448,110 @@ public class JsonFileConfigStoreTest extends UnitTestBase
 
     }
 
+    @Test
+    public void testJournalReplayedOnOpen() throws Exception
+    {
+        enableJournal(100);
+        _store.init(_parent);
+        _store.openConfigurationStore(mock(ConfiguredObjectRecordHandler.class));
+        createRootRecord();
+
+        final UUID queueId = new UUID(0, 1);
+        final UUID queue2Id = new UUID(1, 1);
+        Map<String, Object> queueAttr = Collections.<String, Object>singletonMap(ConfiguredObject.NAME, "queue");
+        Map<String, Object> queue2Attr = Collections.<String, Object>singletonMap(ConfiguredObject.NAME, "queue2");
+        _store.create(new ConfiguredObjectRecordImpl(queueId, "Queue", queueAttr, getRootAsParentMap()));
+        final ConfiguredObjectRecordImpl queue2Record =
+                new ConfiguredObjectRecordImpl(queue2Id, "Queue", queue2Attr, getRootAsParentMap());
+        _store.create(queue2Record);
+
+        queueAttr = new HashMap<>(queueAttr);
+        queueAttr.put("owner", "theowner");
+        _store.update(false, new ConfiguredObjectRecordImpl(queueId, "Queue", queueAttr, getRootAsParentMap()));
+        _store.remove(queue2Record);
+
+        final File configFile = new File(_storeLocation, _parent.getName() + ".json");
+        final File journalFile = new File(_storeLocation, _parent.getName() + ".journal");
+        assertTrue("Journal should exist", journalFile.exists());
+        assertFalse("Changes should not have been written to the configuration file",
+                    new String(Files.readAllBytes(configFile.toPath()), StandardCharsets.UTF_8).contains("queue"));
+
+        _store.closeConfigurationStore();
+
+        _store.init(_parent);
+        _store.openConfigurationStore(_handler);
+        verify(_handler).handle(matchesRecord(queueId, "Queue", queueAttr));
+        verify(_handler, times(0)).handle(matchesRecord(queue2Id, "Queue", queue2Attr));
+        _store.closeConfigurationStore();
+    }
+
+    @Test
+    public void testJournalFoldedIntoConfigurationFileWhenJournalDisabled() throws Exception
+    {
+        enableJournal(100);
+        _store.init(_parent);
+        _store.openConfigurationStore(mock(ConfiguredObjectRecordHandler.class));
+        createRootRecord();
+
+        final UUID queueId = new UUID(0, 1);
+        final Map<String, Object> queueAttr = Collections.<String, Object>singletonMap(ConfiguredObject.NAME, "queue");
+        _store.create(new ConfiguredObjectRecordImpl(queueId, "Queue", queueAttr, getRootAsParentMap()));
+        _store.closeConfigurationStore();
+
+        when(_parent.getContextValue(Boolean.class, JsonFileConfigStore.JOURNAL_ENABLED)).thenReturn(false);
+        _store = new JsonFileConfigStore(VirtualHost.class);
+        _store.init(_parent);
+        _store.openConfigurationStore(_handler);
+        verify(_handler).handle(matchesRecord(queueId, "Queue", queueAttr));
+        _store.closeConfigurationStore();
+
+        assertFalse("Journal should have been removed",
+                    new File(_storeLocation, _parent.getName() + ".journal").exists());
+        assertTrue("Configuration file should contain the journalled change",
+                   new String(Files.readAllBytes(new File(_storeLocation, _parent.getName() + ".json").toPath()),
+                              StandardCharsets.UTF_8).contains("queue"));
+    }
+
+    @Test
+    public void testJournalCompaction() throws Exception
+    {
+        enableJournal(3);
+        _store.init(_parent);
+        _store.openConfigurationStore(mock(ConfiguredObjectRecordHandler.class));
+        createRootRecord();
+
+        final UUID queueId = new UUID(0, 1);
+        final UUID queue2Id = new UUID(1, 1);
+        final Map<String, Object> queueAttr = Collections.<String, Object>singletonMap(ConfiguredObject.NAME, "queue");
+        final Map<String, Object> queue2Attr = Collections.<String, Object>singletonMap(ConfiguredObject.NAME, "queue2");
+        _store.create(new ConfiguredObjectRecordImpl(queueId, "Queue", queueAttr, getRootAsParentMap()));
+        _store.create(new ConfiguredObjectRecordImpl(queue2Id, "Queue", queue2Attr, getRootAsParentMap()));
+
+        // closing waits for the compaction triggered by the third journal entry
+        _store.closeConfigurationStore();
+
+        assertFalse("Journal should have been compacted",
+                    new File(_storeLocation, _parent.getName() + ".journal").exists());
+        final String configuration =
+                new String(Files.readAllBytes(new File(_storeLocation, _parent.getName() + ".json").toPath()),
+                           StandardCharsets.UTF_8);
+        assertTrue("Configuration file should contain the compacted changes",
+                   configuration.contains("queue") && configuration.contains("queue2"));
+
+        _store.init(_parent);
+        _store.openConfigurationStore(_handler);
+        verify(_handler).handle(matchesRecord(queueId, "Queue", queueAttr));
+        verify(_handler).handle(matchesRecord(queue2Id, "Queue", queue2Attr));
+        _store.closeConfigurationStore();
+    }
+
+    private void enableJournal(final int compactionThreshold)
+    {
+        when(_parent.getContextValue(Boolean.class, JsonFileConfigStore.JOURNAL_ENABLED)).thenReturn(true);
+        when(_parent.getContextValue(Integer.class, JsonFileConfigStore.JOURNAL_COMPACTION_THRESHOLD))
+                .thenReturn(compactionThreshold);
+    }
+
 
     private void createRootRecord()
     {
@@ -491,6 +491,28 @@ public abstract class MessageStoreTestCase extends UnitTestBase
     }
 
 
+    @Test
+    public void testStoreFlowsLeastRecentlyUsedMessagesToDisk()
+    {
+        assumeThat(flowToDiskSupported(), is(equalTo(true)));
+
+        final StoredMessage<?> storedMessage1 = createStoredMessage();
+        final StoredMessage<?> storedMessage2 = createStoredMessage();
+        final StoredMessage<?> storedMessage3 = createStoredMessage();
+        assertNotNull(storedMessage1.getContent(0, storedMessage1.getContentSize()));
+
+        final long inMemorySize2 = storedMessage2.getInMemorySize();
+        assertEquals(inMemorySize2, _store.flowToDisk(inMemorySize2));
+        assertEquals(0, storedMessage2.getInMemorySize());
+        assertTrue(storedMessage3.getInMemorySize() > 0);
+        assertTrue(storedMessage1.getInMemorySize() > 0);
+
+        final long inMemorySize3 = storedMessage3.getInMemorySize();
+        assertEquals(inMemorySize3, _store.flowToDisk(1));
+        assertEquals(0, storedMessage3.getInMemorySize());
+        assertTrue(storedMessage1.getInMemorySize() > 0);
+    }
+
     @Test
     public void testIsInContentInMemoryBeforeFlowControl()
     {
@@ -0,0 +1,151 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.txn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.Transaction;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class DtxRegistryTest extends UnitTestBase
+{
+    private MessageStore _messageStore;
+    private DtxRegistry _dtxRegistry;
+    private ExecutorService _executor;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _messageStore = mock(MessageStore.class);
+        when(_messageStore.newTransaction()).then(invocation -> mock(Transaction.class));
+
+        final QueueManagingVirtualHost<?> virtualHost = mock(QueueManagingVirtualHost.class);
+        when(virtualHost.getMessageStore()).thenReturn(_messageStore);
+
+        _dtxRegistry = new DtxRegistry(virtualHost);
+        _executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        _executor.shutdownNow();
+    }
+
+    @Test
+    public void testRegisterBranch()
+    {
+        final DtxBranch branch = new DtxBranch(createXid(1), _dtxRegistry);
+
+        assertTrue(_dtxRegistry.registerBranch(branch));
+        assertFalse(_dtxRegistry.registerBranch(new DtxBranch(createXid(1), _dtxRegistry)));
+        assertEquals(branch, _dtxRegistry.getBranch(createXid(1)));
+    }
+
+    @Test
+    public void testCommitOfCompletedBranchIsRejected() throws Exception
+    {
+        final Xid xid = createXid(1);
+        _dtxRegistry.registerBranch(new DtxBranch(xid, _dtxRegistry));
+
+        _dtxRegistry.commit(xid, true);
+        assertNull(_dtxRegistry.getBranch(xid));
+
+        try
+        {
+            _dtxRegistry.commit(xid, true);
+            fail("Exception not thrown");
+        }
+        catch (UnknownDtxBranchException e)
+        {
+            // pass
+        }
+    }
+
+    @Test
+    public void testStoreCommitOfOneBranchDoesNotBlockOtherBranches() throws Exception
+    {
+        final CountDownLatch commitStarted = new CountDownLatch(1);
+        final CountDownLatch commitReleased = new CountDownLatch(1);
+        final Transaction blockingTransaction = mock(Transaction.class);
+        doAnswer(invocation ->
+                 {
+                     commitStarted.countDown();
+                     commitReleased.await(10, TimeUnit.SECONDS);
+                     return null;
+                 }).when(blockingTransaction).commitTran();
+
+        final Xid blockedXid = createXid(1);
+        final Xid otherXid = createXid(2);
+        _dtxRegistry.registerBranch(new DtxBranch(blockedXid, _dtxRegistry));
+        _dtxRegistry.registerBranch(new DtxBranch(otherXid, _dtxRegistry));
+
+        when(_messageStore.newTransaction()).thenReturn(blockingTransaction)
+                                            .then(invocation -> mock(Transaction.class));
+        final Future<?> blockedCommit = _executor.submit(() ->
+                                                         {
+                                                             _dtxRegistry.commit(blockedXid, true);
+                                                             return null;
+                                                         });
+        assertTrue("Commit did not reach the store", commitStarted.await(10, TimeUnit.SECONDS));
+
+        try
+        {
+            _dtxRegistry.prepare(otherXid);
+            assertEquals(Collections.singletonList(otherXid), _dtxRegistry.recover());
+            _dtxRegistry.commit(otherXid, false);
+            assertNull(_dtxRegistry.getBranch(otherXid));
+            assertFalse(blockedCommit.isDone());
+        }
+        finally
+        {
+            commitReleased.countDown();
+        }
+
+        blockedCommit.get(10, TimeUnit.SECONDS);
+        assertNull(_dtxRegistry.getBranch(blockedXid));
+    }
+
+    private Xid createXid(final int branchId)
+    {
+        return new Xid(0, new byte[]{1}, new byte[]{(byte) branchId});
+    }
+}
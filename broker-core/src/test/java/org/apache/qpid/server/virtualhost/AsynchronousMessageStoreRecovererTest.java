@@ -20,6 +20,7 @@
  */
 package org.apache.qpid.server.virtualhost;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
@@ -29,6 +30,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -78,6 +80,7 @@ public class AsynchronousMessageStoreRecovererTest extends UnitTestBase
         when(_virtualHost.getEventLogger()).thenReturn(new EventLogger());
         when(_virtualHost.getMessageStore()).thenReturn(_store);
         when(_store.newMessageStoreReader()).thenReturn(_storeReader);
+        when(_virtualHost.getContextValue(Integer.class, QueueManagingVirtualHost.MESSAGE_RECOVERY_BATCH_SIZE)).thenReturn(2);
     }
 
     @Test
@@ -150,6 +153,50 @@ public class AsynchronousMessageStoreRecovererTest extends UnitTestBase
                               same(messageEnqueueRecord));
     }
 
+    @Test
+    public void testRecoveryReadsMessagesInBatches() throws Exception
+    {
+        Queue<?> queue = mock(Queue.class);
+        when(queue.getId()).thenReturn(UUID.randomUUID());
+        when(_virtualHost.getChildren(eq(Queue.class))).thenReturn(Collections.singleton(queue));
+        when(_store.getNextMessageId()).thenReturn(5L);
+        when(_store.newTransaction()).thenReturn(mock(Transaction.class));
+
+        final List<StoredMessage<?>> testMessages = new ArrayList<>();
+        final List<MessageEnqueueRecord> enqueueRecords = new ArrayList<>();
+        for (long messageNumber = 1; messageNumber <= 3; messageNumber++)
+        {
+            testMessages.add(createTestMessage(messageNumber));
+            final MessageEnqueueRecord messageEnqueueRecord = mock(MessageEnqueueRecord.class);
+            when(messageEnqueueRecord.getQueueId()).thenReturn(queue.getId());
+            when(messageEnqueueRecord.getMessageNumber()).thenReturn(messageNumber);
+            enqueueRecords.add(messageEnqueueRecord);
+        }
+        final MessageEnqueueRecord unknownMessageRecord = mock(MessageEnqueueRecord.class);
+        when(unknownMessageRecord.getQueueId()).thenReturn(queue.getId());
+        when(unknownMessageRecord.getMessageNumber()).thenReturn(4L);
+        enqueueRecords.add(unknownMessageRecord);
+
+        MockStoreReader storeReader = new MockStoreReader(enqueueRecords, testMessages);
+        when(_store.newMessageStoreReader()).thenReturn(storeReader);
+
+        AsynchronousMessageStoreRecoverer recoverer = new AsynchronousMessageStoreRecoverer();
+        ListenableFuture<Void> result = recoverer.recover(_virtualHost);
+        assertNull(result.get());
+
+        assertEquals("Unexpected number of batched reads", 2, storeReader.getBatches().size());
+        assertArrayEquals(new long[]{1L, 2L}, storeReader.getBatches().get(0));
+        assertArrayEquals(new long[]{3L, 4L}, storeReader.getBatches().get(1));
+        for (int i = 0; i < testMessages.size(); i++)
+        {
+            final long messageNumber = testMessages.get(i).getMessageNumber();
+            verify(queue).recover(argThat((ArgumentMatcher<ServerMessage>) serverMessage -> serverMessage.getMessageNumber()
+                                                                                            == messageNumber),
+                                  same(enqueueRecords.get(i)));
+        }
+        verify(queue, never()).recover(any(ServerMessage.class), same(unknownMessageRecord));
+    }
+
     private StoredMessage<?> createTestMessage(final long messageNumber)
     {
         final StorableMessageMetaData metaData = new TestMessageMetaData(messageNumber, 0);
@@ -163,6 +210,7 @@ public class AsynchronousMessageStoreRecovererTest extends UnitTestBase
     {
         private final List<MessageEnqueueRecord> _messageEnqueueRecords;
         private final List<StoredMessage<?>> _messages;
+        private final List<long[]> _batches = new ArrayList<>();
 
         private MockStoreReader(final List<MessageEnqueueRecord> messageEnqueueRecords, List<StoredMessage<?>> messages)
         {
@@ -179,6 +227,25 @@ public class AsynchronousMessageStoreRecovererTest extends UnitTestBase
             }
         }
 
+        @Override
+        public void visitMessages(final long[] messageIds, final MessageHandler handler) throws StoreException
+        {
+            _batches.add(messageIds);
+            for (long messageId : messageIds)
+            {
+                final StoredMessage<?> message = getMessage(messageId);
+                if (message != null)
+                {
+                    handler.handle(message);
+                }
+            }
+        }
+
+        List<long[]> getBatches()
+        {
+            return _batches;
+        }
+
         @Override
         public void visitMessageInstances(final MessageInstanceHandler handler) throws StoreException
         {
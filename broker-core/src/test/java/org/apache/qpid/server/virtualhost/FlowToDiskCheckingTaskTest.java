@@ -21,8 +21,10 @@
 
 package org.apache.qpid.server.virtualhost;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -36,6 +38,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.AbstractServerMessageImpl;
 import org.apache.qpid.server.message.MessageReference;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.message.internal.InternalMessage;
@@ -96,6 +99,30 @@ public class FlowToDiskCheckingTaskTest extends UnitTestBase
         verify(message.getStoredMessage()).flowToDisk();
     }
 
+    @Test
+    public void testConvertedMessagesOfFlowedMessageEvicted()
+    {
+        final AbstractServerMessageImpl<?, ?> message = mock(AbstractServerMessageImpl.class);
+        final StoredMessage storedMessage = mock(StoredMessage.class);
+        when(storedMessage.isInContentInMemory()).thenReturn(false);
+        when(message.getStoredMessage()).thenReturn(storedMessage);
+        doAnswer(invocation ->
+                 {
+                     _virtualHost.convertedMessageSizeChanged(message, -100L);
+                     return null;
+                 }).when(message).evictConvertedMessages();
+
+        final long inMemoryMessageSize = _virtualHost.getInMemoryMessageSize();
+        _virtualHost.convertedMessageSizeChanged(message, 100L);
+        assertEquals(inMemoryMessageSize + 100L, _virtualHost.getInMemoryMessageSize());
+
+        makeVirtualHostTargetSizeExceeded();
+
+        _task.execute();
+        verify(message).evictConvertedMessages();
+        assertEquals(inMemoryMessageSize, _virtualHost.getInMemoryMessageSize());
+    }
+
     private void makeVirtualHostTargetSizeExceeded()
     {
         if (_virtualHost.getInMemoryMessageSize() == 0)
@@ -43,6 +43,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -53,6 +54,7 @@ import org.junit.Test;
 import org.apache.qpid.server.configuration.IllegalConfigurationException;
 import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
 import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.configuration.updater.TaskExecutorImpl;
 import org.apache.qpid.server.model.Broker;
 import org.apache.qpid.server.model.BrokerModel;
 import org.apache.qpid.server.model.BrokerTestHelper;
@@ -137,6 +139,51 @@ public class AbstractStandardVirtualHostNodeTest extends UnitTestBase
         node.close();
     }
 
+    /**
+     *  Tests that the config store of a virtualhostnode is recovered on the node's own
+     *  configuration thread rather than on the broker's.
+     */
+    @Test
+    public void testActivateVHNRecoversOnNodeConfigurationThread() throws Exception
+    {
+        final TaskExecutor brokerTaskExecutor = new TaskExecutorImpl("Broker-Config", null);
+        brokerTaskExecutor.start();
+        when(_broker.getTaskExecutor()).thenReturn(brokerTaskExecutor);
+        when(_broker.getChildExecutor()).thenReturn(brokerTaskExecutor);
+        try
+        {
+            final AtomicReference<String> recoveryThreadName = new AtomicReference<>();
+            final DurableConfigurationStore configStore = new NullMessageStore()
+            {
+                @Override
+                public boolean openConfigurationStore(final ConfiguredObjectRecordHandler handler,
+                                                      final ConfiguredObjectRecord... initialRecords)
+                {
+                    recoveryThreadName.set(Thread.currentThread().getName());
+                    return false;
+                }
+            };
+
+            Map<String, Object> nodeAttributes = new HashMap<>();
+            nodeAttributes.put(VirtualHostNode.NAME, TEST_VIRTUAL_HOST_NODE_NAME);
+            nodeAttributes.put(VirtualHostNode.ID, _nodeId);
+
+            VirtualHostNode<?> node = new TestVirtualHostNode(_broker, nodeAttributes, configStore);
+            node.open();
+            node.start();
+
+            assertEquals("Unexpected virtual host node state", State.ACTIVE, node.getState());
+            assertEquals("Config store was not recovered on the node's configuration thread",
+                         "VirtualHostNode-" + TEST_VIRTUAL_HOST_NODE_NAME + "-Config",
+                         recoveryThreadName.get());
+            node.close();
+        }
+        finally
+        {
+            brokerTaskExecutor.stopImmediately();
+        }
+    }
+
     /**
      *  Tests activating a virtualhostnode with a config store which does not specify
      *  a virtualhost.  Checks no virtualhost is created.
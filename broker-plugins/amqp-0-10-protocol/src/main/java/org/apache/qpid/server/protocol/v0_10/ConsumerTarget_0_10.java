@@ -30,6 +30,7 @@ import org.apache.qpid.server.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.consumer.AbstractConsumerTarget;
 import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.logging.messages.ChannelMessages;
+import org.apache.qpid.server.message.AbstractServerMessageImpl;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.MessageInstance.ConsumerAcquiredState;
@@ -193,6 +194,7 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget<ConsumerTarget_0
 
         MessageTransferMessage msg;
         MessageConverter<? super ServerMessage, MessageTransferMessage> converter = null;
+        AbstractServerMessageImpl<?, ?> convertedFrom = null;
 
         if(serverMsg instanceof MessageTransferMessage)
         {
@@ -207,7 +209,17 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget<ConsumerTarget_0
                 throw new MessageConversionException(String.format("Cannot convert malformed message '%s'", serverMsg));
             }
             converter = (MessageConverter<? super ServerMessage, MessageTransferMessage>) MessageConverterRegistry.getConverter(serverMsg.getClass(), MessageTransferMessage.class);
-            msg = converter.convert(serverMsg, _session.getAddressSpace());
+            if (serverMsg instanceof AbstractServerMessageImpl)
+            {
+                // the conversion may be shared with other consumers and is released rather than disposed of
+                convertedFrom = (AbstractServerMessageImpl<?, ?>) serverMsg;
+                msg = convertedFrom.getConvertedMessage(converter, _session.getAddressSpace());
+                converter = null;
+            }
+            else
+            {
+                msg = converter.convert(serverMsg, _session.getAddressSpace());
+            }
         }
 
         DeliveryProperties origDeliveryProps = msg.getHeader() == null ? null : msg.getHeader().getDeliveryProperties();
@@ -260,6 +272,8 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget<ConsumerTarget_0
         if(msgCompressed && !compressionSupported && bodyBuffer != null)
         {
             QpidByteBuffer uncompressedBuffer = inflateIfPossible(bodyBuffer);
+            // the header may be shared with other consumers of the message or of its conversion
+            messageProps = new MessageProperties(messageProps);
             messageProps.setContentEncoding(null);
             bodyBuffer.dispose();
             bodyBuffer = uncompressedBuffer;
@@ -271,10 +285,7 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget<ConsumerTarget_0
                 && bodyBuffer.remaining() > _session.getConnection().getMessageCompressionThreshold())
         {
             QpidByteBuffer compressedBuffers = deflateIfPossible(bodyBuffer);
-            if(messageProps == null)
-            {
-                messageProps = new MessageProperties();
-            }
+            messageProps = messageProps == null ? new MessageProperties() : new MessageProperties(messageProps);
             messageProps.setContentEncoding(GZIPUtils.GZIP_CONTENT_ENCODING);
             bodyBuffer.dispose();
             bodyBuffer = compressedBuffers;
@@ -330,6 +341,10 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget<ConsumerTarget_0
         {
             converter.dispose(msg);
         }
+        else if (convertedFrom != null)
+        {
+            convertedFrom.releaseConvertedMessage(msg);
+        }
         _postIdSettingAction.setAction(null);
         _postIdSettingAction.setXfr(null);
 
@@ -23,6 +23,7 @@ package org.apache.qpid.server.protocol.v0_8;
 import org.apache.qpid.server.filter.AMQPFilterTypes;
 import org.apache.qpid.server.consumer.AbstractConsumerTarget;
 import org.apache.qpid.server.flow.FlowCreditManager;
+import org.apache.qpid.server.message.AbstractServerMessageImpl;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.MessageInstance.EntryState;
@@ -396,6 +397,7 @@ public abstract class ConsumerTarget_0_8 extends AbstractConsumerTarget<Consumer
     {
         ServerMessage serverMessage = entry.getMessage();
         MessageConverter<ServerMessage<?>, AMQMessage> messageConverter = null;
+        AbstractServerMessageImpl<?, ?> convertedFrom = null;
         final AMQMessage msg;
         if(serverMessage instanceof AMQMessage)
         {
@@ -407,8 +409,19 @@ public abstract class ConsumerTarget_0_8 extends AbstractConsumerTarget<Consumer
             {
                 throw new MessageConversionException(String.format("Cannot convert malformed message '%s'", serverMessage));
             }
-            messageConverter = MessageConverterRegistry.getConverter((Class<ServerMessage<?>>) serverMessage.getClass(), AMQMessage.class);
-            msg = messageConverter.convert(serverMessage, getConnection().getAddressSpace());
+            final MessageConverter<ServerMessage<?>, AMQMessage> converter =
+                    MessageConverterRegistry.getConverter((Class<ServerMessage<?>>) serverMessage.getClass(), AMQMessage.class);
+            if (serverMessage instanceof AbstractServerMessageImpl)
+            {
+                // the conversion may be shared with other consumers and is released rather than disposed of
+                convertedFrom = (AbstractServerMessageImpl<?, ?>) serverMessage;
+                msg = convertedFrom.getConvertedMessage(converter, getConnection().getAddressSpace());
+            }
+            else
+            {
+                messageConverter = converter;
+                msg = messageConverter.convert(serverMessage, getConnection().getAddressSpace());
+            }
         }
 
         try
@@ -421,6 +434,10 @@ public abstract class ConsumerTarget_0_8 extends AbstractConsumerTarget<Consumer
             {
                 messageConverter.dispose(msg);
             }
+            else if (convertedFrom != null)
+            {
+                convertedFrom.releaseConvertedMessage(msg);
+            }
         }
     }
 
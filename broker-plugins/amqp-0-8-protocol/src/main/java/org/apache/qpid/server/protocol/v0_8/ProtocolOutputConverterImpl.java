@@ -29,6 +29,7 @@ import org.apache.qpid.server.QpidException;
 import org.apache.qpid.server.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageContentSource;
+import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.protocol.v0_8.transport.AMQBody;
 import org.apache.qpid.server.protocol.v0_8.transport.AMQDataBlock;
 import org.apache.qpid.server.protocol.v0_8.transport.AMQFrame;
@@ -38,6 +39,7 @@ import org.apache.qpid.server.protocol.v0_8.transport.BasicCancelOkBody;
 import org.apache.qpid.server.protocol.v0_8.transport.BasicContentHeaderProperties;
 import org.apache.qpid.server.protocol.v0_8.transport.ContentHeaderBody;
 import org.apache.qpid.server.protocol.v0_8.transport.MessagePublishInfo;
+import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.transport.ByteBufferSender;
 import org.apache.qpid.server.util.GZIPUtils;
 
@@ -176,11 +178,16 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
         }
         else
         {
-            int maxFrameBodySize = (int) _connection.getMaxFrameSize() - AMQFrame.getFrameOverhead();
-            try (QpidByteBuffer contentByteBuffer = content.getContent())
+            // Frames are read from the store one at a time, so a store holding the content in chunks only loads
+            // those covering the frame. The message is flowed back to disk once, after the last frame.
+            final ServerMessage<?> serverMessage = content instanceof ServerMessage ? (ServerMessage<?>) content : null;
+            final StoredMessage<?> storedMessage = serverMessage == null ? null : serverMessage.getStoredMessage();
+            final boolean wasInMemory = storedMessage == null || storedMessage.isInContentInMemory();
+            try
             {
+                int maxFrameBodySize = (int) _connection.getMaxFrameSize() - AMQFrame.getFrameOverhead();
                 int contentChunkSize = bodySize > maxFrameBodySize ? maxFrameBodySize : bodySize;
-                try (QpidByteBuffer chunk = contentByteBuffer.view(0, contentChunkSize))
+                try (QpidByteBuffer chunk = getContent(content, storedMessage, 0, contentChunkSize))
                 {
                     writeFrame(new CompositeAMQBodyBlock(channelId,
                                                          deliverBody,
@@ -193,16 +200,31 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
                 {
                     contentChunkSize =
                             (bodySize - writtenSize) > maxFrameBodySize ? maxFrameBodySize : bodySize - writtenSize;
-                    try (QpidByteBuffer chunk = contentByteBuffer.view(writtenSize, contentChunkSize))
+                    try (QpidByteBuffer chunk = getContent(content, storedMessage, writtenSize, contentChunkSize))
                     {
                         writtenSize += contentChunkSize;
                         writeFrame(new AMQFrame(channelId, new MessageContentSourceBody(chunk)));
                     }
                 }
             }
+            finally
+            {
+                if (!wasInMemory && serverMessage.checkValid())
+                {
+                    storedMessage.flowToDisk();
+                }
+            }
         }
     }
 
+    private QpidByteBuffer getContent(final MessageContentSource content,
+                                      final StoredMessage<?> storedMessage,
+                                      final int offset,
+                                      final int length)
+    {
+        return storedMessage == null ? content.getContent(offset, length) : storedMessage.getContent(offset, length);
+    }
+
     private boolean isCompressed(final ContentHeaderBody contentHeaderBody)
     {
         return GZIP_ENCODING.equals(contentHeaderBody.getProperties().getEncoding());
@@ -32,6 +32,7 @@ import org.apache.qpid.server.consumer.AbstractConsumerTarget;
 import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.logging.LogSubject;
 import org.apache.qpid.server.logging.messages.ChannelMessages;
+import org.apache.qpid.server.message.AbstractServerMessageImpl;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.MessageInstanceConsumer;
@@ -129,7 +130,8 @@ class ConsumerTarget_1_0 extends AbstractConsumerTarget<ConsumerTarget_1_0>
     {
         ServerMessage serverMessage = entry.getMessage();
         Message_1_0 message;
-        final MessageConverter<? super ServerMessage, Message_1_0> converter;
+        MessageConverter<? super ServerMessage, Message_1_0> converter;
+        AbstractServerMessageImpl<?, ?> convertedFrom = null;
         if(serverMessage instanceof Message_1_0)
         {
             converter = null;
@@ -151,7 +153,17 @@ class ConsumerTarget_1_0 extends AbstractConsumerTarget<ConsumerTarget_1_0>
                         serverMessage.getClass(),
                         Message_1_0.class));
             }
-            message = converter.convert(serverMessage, _linkEndpoint.getAddressSpace());
+            if (serverMessage instanceof AbstractServerMessageImpl)
+            {
+                // the conversion may be shared with other consumers and is released rather than disposed of
+                convertedFrom = (AbstractServerMessageImpl<?, ?>) serverMessage;
+                message = convertedFrom.getConvertedMessage(converter, _linkEndpoint.getAddressSpace());
+                converter = null;
+            }
+            else
+            {
+                message = converter.convert(serverMessage, _linkEndpoint.getAddressSpace());
+            }
         }
 
         Transfer transfer = new Transfer();
@@ -326,6 +338,10 @@ class ConsumerTarget_1_0 extends AbstractConsumerTarget<ConsumerTarget_1_0>
             {
                 converter.dispose(message);
             }
+            else if (convertedFrom != null)
+            {
+                convertedFrom.releaseConvertedMessage(message);
+            }
         }
     }
 
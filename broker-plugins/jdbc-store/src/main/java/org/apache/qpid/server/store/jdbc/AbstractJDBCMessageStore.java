@@ -61,6 +61,7 @@ import org.apache.qpid.server.plugin.MessageMetaDataType;
 import org.apache.qpid.server.store.Event;
 import org.apache.qpid.server.store.EventListener;
 import org.apache.qpid.server.store.EventManager;
+import org.apache.qpid.server.store.InMemoryMessageTracker;
 import org.apache.qpid.server.store.MessageDurability;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
 import org.apache.qpid.server.store.MessageHandle;
@@ -77,6 +78,7 @@ import org.apache.qpid.server.store.handler.MessageInstanceHandler;
 import org.apache.qpid.server.txn.Xid;
 import org.apache.qpid.server.util.Action;
 import org.apache.qpid.server.util.CachingUUIDFactory;
+import org.apache.qpid.server.util.FutureHelper;
 
 public abstract class AbstractJDBCMessageStore implements MessageStore
 {
@@ -94,6 +96,10 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     private static final String EXECUTOR_THREADS = "qpid.jdbcstore.executorThreads";
     private static final String EXECUTOR_SHUTDOWN_TIMEOUT = "qpid.jdbcstore.executorShutdownTimeoutInSeconds";
     private static final int EXECUTOR_SHUTDOWN_TIMEOUT_DEFAULT = 5;
+    static final String GROUP_COMMIT = "qpid.jdbcstore.groupCommit";
+    private static final boolean GROUP_COMMIT_DEFAULT = false;
+    private static final String GROUP_COMMIT_MAXIMUM_SIZE = "qpid.jdbcstore.groupCommitMaximumSize";
+    private static final int GROUP_COMMIT_MAXIMUM_SIZE_DEFAULT = 256;
 
     private static final int DB_VERSION = 8;
 
@@ -109,6 +115,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     private String _tablePrefix = "";
     private final AtomicLong _inMemorySize = new AtomicLong();
     private final AtomicLong _bytesEvacuatedFromMemory = new AtomicLong();
+    private final InMemoryMessageTracker _inMemoryMessageTracker = new InMemoryMessageTracker();
     private final Set<StoredJDBCMessage<?>> _messages = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Set<MessageDeleteListener> _messageDeleteListeners = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Set<Action<Connection>> _deleteActions = Collections.newSetFromMap(new ConcurrentHashMap<>());
@@ -118,6 +125,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     protected abstract void checkMessageStoreOpen();
     private ScheduledThreadPoolExecutor _executor;
+    private volatile JDBCCoalescingCommitter<GroupCommitJob<?>> _committer;
     private volatile int _inClauseMaxSize;
     private volatile int _executorShutdownTimeOut;
 
@@ -250,6 +258,17 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         _executor.prestartAllCoreThreads();
 
         _inClauseMaxSize = getContextValue(Integer.class, IN_CLAUSE_MAX_SIZE, IN_CLAUSE_MAX_SIZE_DEFAULT);
+
+        if (getContextValue(Boolean.class, GROUP_COMMIT, GROUP_COMMIT_DEFAULT))
+        {
+            _committer = new JDBCCoalescingCommitter<>(parent.getName(),
+                                                       this::newConnection,
+                                                       this::writeGroup,
+                                                       getContextValue(Integer.class,
+                                                                       GROUP_COMMIT_MAXIMUM_SIZE,
+                                                                       GROUP_COMMIT_MAXIMUM_SIZE_DEFAULT));
+            _committer.start();
+        }
     }
 
     @Override
@@ -260,8 +279,14 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             message.clear(true);
         }
         _messages.clear();
+        _inMemoryMessageTracker.clear();
         _inMemorySize.set(0);
         _bytesEvacuatedFromMemory.set(0);
+        if (_committer != null)
+        {
+            _committer.stop();
+            _committer = null;
+        }
         if(_executor != null)
         {
             _executor.shutdown();
@@ -449,6 +474,10 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     {
         final StoredJDBCMessage<T> message = new StoredJDBCMessage<>(newMessageId, metaData, recovered);
         _messages.add(message);
+        if (recovered)
+        {
+            _inMemoryMessageTracker.touch(message);
+        }
         return message;
     }
 
@@ -742,6 +771,38 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     }
 
+    private void dequeueMessages(final Connection conn, final List<MessageEnqueueRecord> enqueueRecords)
+            throws SQLException
+    {
+        if (enqueueRecords.isEmpty())
+        {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + getQueueEntryTableName()
+                                                            + " WHERE queue_id = ? AND message_id =?"))
+        {
+            for (MessageEnqueueRecord record : enqueueRecords)
+            {
+                stmt.setString(1, record.getQueueId().toString());
+                stmt.setLong(2, record.getMessageNumber());
+                stmt.addBatch();
+            }
+
+            final int[] results = stmt.executeBatch();
+            for (int i = 0; i < results.length; i++)
+            {
+                if (results[i] != 1 && results[i] != Statement.SUCCESS_NO_INFO)
+                {
+                    final MessageEnqueueRecord record = enqueueRecords.get(i);
+                    throw new StoreException("Unable to find message with id " + record.getMessageNumber()
+                                             + " on queue with id " + record.getQueueId());
+                }
+            }
+            getLogger().debug("Dequeued {} message(s)", enqueueRecords.size());
+        }
+    }
+
     private void removeXid(ConnectionWrapper connWrapper, long format, byte[] globalId, byte[] branchId)
             throws StoreException
     {
@@ -973,6 +1034,22 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     }
 
+    private byte[] serialiseMetaData(final StorableMessageMetaData metaData)
+    {
+        final int bodySize = 1 + metaData.getStorableSize();
+        byte[] underlying = new byte[bodySize];
+        underlying[0] = (byte) metaData.getType().ordinal();
+        try (QpidByteBuffer buf = QpidByteBuffer.wrap(underlying))
+        {
+            buf.position(1);
+            try (QpidByteBuffer bufSlice = buf.slice())
+            {
+                metaData.writeToBuffer(buf);
+            }
+        }
+        return underlying;
+    }
+
     private void storeMetaData(Connection conn, long messageId, StorableMessageMetaData metaData)
             throws SQLException
     {
@@ -983,17 +1060,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             stmt.setLong(1, messageId);
 
-            final int bodySize = 1 + metaData.getStorableSize();
-            byte[] underlying = new byte[bodySize];
-            underlying[0] = (byte) metaData.getType().ordinal();
-            try (QpidByteBuffer buf = QpidByteBuffer.wrap(underlying))
-            {
-                buf.position(1);
-                try (QpidByteBuffer bufSlice = buf.slice())
-                {
-                    metaData.writeToBuffer(buf);
-                }
-            }
+            byte[] underlying = serialiseMetaData(metaData);
             try(ByteArrayInputStream bis = new ByteArrayInputStream(underlying))
             {
                 stmt.setBinaryStream(2, bis, underlying.length);
@@ -1156,6 +1223,41 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         }
     }
 
+    private void storeMessages(final Connection conn, final List<StoredJDBCMessage<?>> messages) throws SQLException
+    {
+        if (messages.isEmpty())
+        {
+            return;
+        }
+
+        final List<StoredJDBCMessage<?>> batchedMessages = new ArrayList<>(messages.size());
+        final List<QpidByteBuffer> contents = new ArrayList<>(messages.size());
+        try (PreparedStatement metaDataStmt = conn.prepareStatement("INSERT INTO " + getMetaDataTableName()
+                                                                    + "( message_id , meta_data ) values (?, ?)");
+             PreparedStatement contentStmt = conn.prepareStatement("INSERT INTO " + getMessageContentTableName()
+                                                                   + "( message_id, content ) values (?, ?)"))
+        {
+            for (StoredJDBCMessage<?> message : messages)
+            {
+                if (message.addToBatch(metaDataStmt, contentStmt, contents))
+                {
+                    batchedMessages.add(message);
+                }
+            }
+
+            if (!batchedMessages.isEmpty())
+            {
+                metaDataStmt.executeBatch();
+                contentStmt.executeBatch();
+                getLogger().debug("Stored {} message(s) to store", batchedMessages.size());
+            }
+        }
+        finally
+        {
+            contents.forEach(QpidByteBuffer::close);
+        }
+    }
+
     QpidByteBuffer getAllContent(long messageId) throws StoreException
     {
         getLogger().debug("Message Id: {} Getting content body", messageId);
@@ -1204,26 +1306,62 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         return _bytesEvacuatedFromMemory.get();
     }
 
+    @Override
+    public long flowToDisk(final long bytesToRelease)
+    {
+        return _inMemoryMessageTracker.flowToDisk(bytesToRelease);
+    }
+
     protected class JDBCTransaction implements Transaction
     {
-        private final ConnectionWrapper _connWrapper;
+        private ConnectionWrapper _connWrapper;
         private int _storeSizeIncrease;
         private final List<Runnable> _preCommitActions = new ArrayList<>();
         private final List<Runnable> _postCommitActions = new ArrayList<>();
         private final Map<Long, List<TransactionLogResource>> _messagesToEnqueue = new HashMap<>();
+        private final List<StoredJDBCMessage<?>> _messagesToStore = new ArrayList<>();
+        private final List<MessageEnqueueRecord> _messagesToDequeue = new ArrayList<>();
+        private final JDBCCoalescingCommitter<GroupCommitJob<?>> _groupCommitter = _committer;
 
         protected JDBCTransaction()
         {
-            try
+            if (_groupCommitter == null)
             {
-                _connWrapper = new ConnectionWrapper(newConnection());
+                getConnectionWrapper();
             }
-            catch (SQLException e)
+        }
+
+        /**
+         * Returns the connection of this transaction, opening it if necessary. Work deferred for a group commit is
+         * moved onto the connection, after which the transaction is committed on its own connection.
+         */
+        private ConnectionWrapper getConnectionWrapper()
+        {
+            if (_connWrapper == null)
             {
-                throw new StoreException(e);
-            }
+                try
+                {
+                    _connWrapper = new ConnectionWrapper(newConnection());
+                }
+                catch (SQLException e)
+                {
+                    throw new StoreException(e);
+                }
 
-            _preCommitActions.add(() -> AbstractJDBCMessageStore.this.enqueueMessages(_connWrapper, _messagesToEnqueue));
+                for (MessageEnqueueRecord enqueueRecord : _messagesToDequeue)
+                {
+                    AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper,
+                                                                 enqueueRecord.getQueueId(),
+                                                                 enqueueRecord.getMessageNumber());
+                }
+                _messagesToDequeue.clear();
+                for (StoredJDBCMessage<?> storedMessage : _messagesToStore)
+                {
+                    _preCommitActions.add(() -> storeMessage(storedMessage));
+                }
+                _messagesToStore.clear();
+            }
+            return _connWrapper;
         }
 
         @Override
@@ -1234,39 +1372,63 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             final StoredMessage storedMessage = message.getStoredMessage();
             if(storedMessage instanceof StoredJDBCMessage)
             {
-                _preCommitActions.add(() -> {
-                    try
-                    {
-                        ((StoredJDBCMessage) storedMessage).store(_connWrapper.getConnection());
-                        _storeSizeIncrease += storedMessage.getContentSize();
-                    }
-                    catch (SQLException e)
-                    {
-                        throw new StoreException("Exception on enqueuing message into message store" + _messageId, e);
-                    }
-                });
+                _storeSizeIncrease += storedMessage.getContentSize();
+                if (_connWrapper == null)
+                {
+                    _messagesToStore.add((StoredJDBCMessage<?>) storedMessage);
+                }
+                else
+                {
+                    _preCommitActions.add(() -> storeMessage((StoredJDBCMessage<?>) storedMessage));
+                }
             }
             List<TransactionLogResource> queues = _messagesToEnqueue.computeIfAbsent(message.getMessageNumber(), messageId -> new ArrayList<>());
             queues.add(queue);
             return new JDBCEnqueueRecord(queue.getId(), message.getMessageNumber());
         }
 
+        private void storeMessage(final StoredJDBCMessage<?> storedMessage)
+        {
+            try
+            {
+                storedMessage.store(_connWrapper.getConnection());
+            }
+            catch (SQLException e)
+            {
+                throw new StoreException("Exception on enqueuing message into message store" + _messageId, e);
+            }
+        }
+
         @Override
         public void dequeueMessage(final MessageEnqueueRecord enqueueRecord)
         {
             checkMessageStoreOpen();
 
-            AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper,
-                                                         enqueueRecord.getQueueId(),
-                                                         enqueueRecord.getMessageNumber());
+            if (_connWrapper == null)
+            {
+                _messagesToDequeue.add(enqueueRecord);
+            }
+            else
+            {
+                AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper,
+                                                             enqueueRecord.getQueueId(),
+                                                             enqueueRecord.getMessageNumber());
+            }
         }
 
         @Override
         public void commitTran()
         {
             checkMessageStoreOpen();
-            doPreCommitActions();
-            AbstractJDBCMessageStore.this.commitTran(_connWrapper);
+            if (_connWrapper == null)
+            {
+                FutureHelper.<Void, RuntimeException>await(commitGroup(null));
+            }
+            else
+            {
+                doPreCommitActions();
+                AbstractJDBCMessageStore.this.commitTran(_connWrapper);
+            }
             storedSizeChange(_storeSizeIncrease);
             doPostCommitActions();
         }
@@ -1275,15 +1437,42 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         public <X> ListenableFuture<X> commitTranAsync(final X val)
         {
             checkMessageStoreOpen();
-            doPreCommitActions();
-            ListenableFuture<X> futureResult = AbstractJDBCMessageStore.this.commitTranAsync(_connWrapper, val);
+            ListenableFuture<X> futureResult;
+            if (_connWrapper == null)
+            {
+                futureResult = commitGroup(val);
+            }
+            else
+            {
+                doPreCommitActions();
+                futureResult = AbstractJDBCMessageStore.this.commitTranAsync(_connWrapper, val);
+            }
             storedSizeChange(_storeSizeIncrease);
             doPostCommitActions();
             return futureResult;
         }
 
+        private <X> ListenableFuture<X> commitGroup(final X val)
+        {
+            if (_messagesToStore.isEmpty() && _messagesToEnqueue.isEmpty() && _messagesToDequeue.isEmpty())
+            {
+                return Futures.immediateFuture(val);
+            }
+
+            final GroupCommitJob<X> job = new GroupCommitJob<>(new ArrayList<>(_messagesToStore),
+                                                               new HashMap<>(_messagesToEnqueue),
+                                                               new ArrayList<>(_messagesToDequeue),
+                                                               val);
+            _messagesToStore.clear();
+            _messagesToEnqueue.clear();
+            _messagesToDequeue.clear();
+            _groupCommitter.commit(job);
+            return job.getFuture();
+        }
+
         private void doPreCommitActions()
         {
+            AbstractJDBCMessageStore.this.enqueueMessages(_connWrapper, _messagesToEnqueue);
             for(Runnable action : _preCommitActions)
             {
                 action.run();
@@ -1311,7 +1500,12 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             checkMessageStoreOpen();
             _preCommitActions.clear();
             _messagesToEnqueue.clear();
-            AbstractJDBCMessageStore.this.abortTran(_connWrapper);
+            _messagesToStore.clear();
+            _messagesToDequeue.clear();
+            if (_connWrapper != null)
+            {
+                AbstractJDBCMessageStore.this.abortTran(_connWrapper);
+            }
         }
 
         @Override
@@ -1319,7 +1513,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
-            AbstractJDBCMessageStore.this.removeXid(_connWrapper,
+            AbstractJDBCMessageStore.this.removeXid(getConnectionWrapper(),
                                                     record.getFormat(),
                                                     record.getGlobalId(),
                                                     record.getBranchId());
@@ -1334,13 +1528,84 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
-            _postCommitActions.addAll(AbstractJDBCMessageStore.this.recordXid(_connWrapper, format, globalId, branchId, enqueues, dequeues));
+            _postCommitActions.addAll(AbstractJDBCMessageStore.this.recordXid(getConnectionWrapper(), format, globalId, branchId, enqueues, dequeues));
             return new JDBCStoredXidRecord(format, globalId, branchId);
         }
 
 
     }
 
+    /**
+     * The work of an auto-commit transaction deferred to the {@link JDBCCoalescingCommitter}.
+     */
+    private final class GroupCommitJob<X> implements JDBCCoalescingCommitter.CommitJob
+    {
+        private final List<StoredJDBCMessage<?>> _messagesToStore;
+        private final Map<Long, List<TransactionLogResource>> _messagesToEnqueue;
+        private final List<MessageEnqueueRecord> _messagesToDequeue;
+        private final X _value;
+        private final SettableFuture<X> _future = SettableFuture.create();
+
+        private GroupCommitJob(final List<StoredJDBCMessage<?>> messagesToStore,
+                               final Map<Long, List<TransactionLogResource>> messagesToEnqueue,
+                               final List<MessageEnqueueRecord> messagesToDequeue,
+                               final X value)
+        {
+            _messagesToStore = messagesToStore;
+            _messagesToEnqueue = messagesToEnqueue;
+            _messagesToDequeue = messagesToDequeue;
+            _value = value;
+        }
+
+        ListenableFuture<X> getFuture()
+        {
+            return _future;
+        }
+
+        @Override
+        public void complete()
+        {
+            // only now that the group is committed may the messages be treated as stored: were they marked whilst
+            // the group was being written, the retry of a failed group would skip their meta-data and content
+            for (StoredJDBCMessage<?> message : _messagesToStore)
+            {
+                message.markStored();
+            }
+            _future.set(_value);
+        }
+
+        @Override
+        public void abort(final RuntimeException e)
+        {
+            _future.setException(e);
+        }
+    }
+
+    /**
+     * Writes the work of the given transactions on the given connection, using one batch of statements for each of
+     * the queue entry inserts, the message meta-data and content inserts and the queue entry deletes.
+     */
+    private void writeGroup(final Connection conn, final List<GroupCommitJob<?>> jobs) throws SQLException
+    {
+        final List<StoredJDBCMessage<?>> messagesToStore = new ArrayList<>();
+        final Map<Long, List<TransactionLogResource>> messagesToEnqueue = new HashMap<>();
+        final List<MessageEnqueueRecord> messagesToDequeue = new ArrayList<>();
+        for (GroupCommitJob<?> job : jobs)
+        {
+            messagesToStore.addAll(job._messagesToStore);
+            for (Map.Entry<Long, List<TransactionLogResource>> entry : job._messagesToEnqueue.entrySet())
+            {
+                messagesToEnqueue.computeIfAbsent(entry.getKey(), messageId -> new ArrayList<>())
+                                 .addAll(entry.getValue());
+            }
+            messagesToDequeue.addAll(job._messagesToDequeue);
+        }
+
+        enqueueMessages(new ConnectionWrapper(conn), messagesToEnqueue);
+        storeMessages(conn, messagesToStore);
+        dequeueMessages(conn, messagesToDequeue);
+    }
+
     private static class JDBCStoredXidRecord implements Transaction.StoredXidRecord
     {
         private final long _format;
@@ -1543,6 +1808,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
                         metaData = (T) AbstractJDBCMessageStore.this.getMetaData(_messageId);
                         _messageDataRef = new MessageDataRef<>(metaData, _messageDataRef.getData(), false);
                         _inMemorySize.addAndGet(getMetadataSize());
+                        _inMemoryMessageTracker.touch(this);
                     }
                     catch (SQLException e)
                     {
@@ -1579,6 +1845,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         public StoredMessage<T> allContentAdded()
         {
             _inMemorySize.addAndGet(getContentSize());
+            _inMemoryMessageTracker.touch(this);
             return this;
         }
 
@@ -1609,6 +1876,10 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         public synchronized QpidByteBuffer getContent(int offset, int length)
         {
             QpidByteBuffer contentAsByteBuffer = getContentAsByteBuffer();
+            if (_messageDataRef != null)
+            {
+                _inMemoryMessageTracker.touch(this);
+            }
             if (length == Integer.MAX_VALUE)
             {
                 length = contentAsByteBuffer.remaining();
@@ -1644,6 +1915,38 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             }
         }
 
+        synchronized boolean addToBatch(final PreparedStatement metaDataStmt,
+                                        final PreparedStatement contentStmt,
+                                        final List<QpidByteBuffer> contents) throws SQLException
+        {
+            if (_messageDataRef == null || stored())
+            {
+                return false;
+            }
+
+            final byte[] metaData = serialiseMetaData(_messageDataRef.getMetaData());
+            metaDataStmt.setLong(1, _messageId);
+            metaDataStmt.setBinaryStream(2, new ByteArrayInputStream(metaData), metaData.length);
+            metaDataStmt.addBatch();
+
+            final QpidByteBuffer content = (_messageDataRef.getData() == null
+                    ? QpidByteBuffer.emptyQpidByteBuffer()
+                    : _messageDataRef.getData()).duplicate();
+            contents.add(content);
+            contentStmt.setLong(1, _messageId);
+            contentStmt.setBinaryStream(2, content.asInputStream(), content.remaining());
+            contentStmt.addBatch();
+            return true;
+        }
+
+        synchronized void markStored()
+        {
+            if (_messageDataRef != null)
+            {
+                _messageDataRef.setSoft();
+            }
+        }
+
         synchronized ListenableFuture<Void> flushToStore()
         {
             if (_messageDataRef != null)
@@ -1697,6 +2000,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             }
             _messageDataRef = null;
             _inMemorySize.addAndGet(-bytesCleared);
+            _inMemoryMessageTracker.remove(this);
             if (!_messageDeleteListeners.isEmpty())
             {
                 for (final MessageDeleteListener messageDeleteListener : _messageDeleteListeners)
@@ -1752,6 +2056,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
                 final long bytesCleared = _messageDataRef.clear(false);
                 _inMemorySize.addAndGet(-bytesCleared);
                 _bytesEvacuatedFromMemory.addAndGet(bytesCleared);
+                _inMemoryMessageTracker.remove(this);
             }
             return true;
         }
@@ -1831,6 +2136,49 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             }
         }
 
+        @Override
+        public void visitMessages(final long[] messageIds, final MessageHandler handler) throws StoreException
+        {
+            checkMessageStoreOpen();
+
+            try(Connection conn = newAutoCommitConnection())
+            {
+                for (int offset = 0; offset < messageIds.length; offset += _inClauseMaxSize)
+                {
+                    String inpart = Arrays.stream(messageIds, offset, Math.min(offset + _inClauseMaxSize, messageIds.length))
+                                          .mapToObj(Long::toString)
+                                          .collect(Collectors.joining(", ", "(", ")"));
+
+                    try (Statement stmt = conn.createStatement())
+                    {
+                        try (ResultSet rs = stmt.executeQuery("SELECT message_id, meta_data FROM "
+                                                              + getMetaDataTableName()
+                                                              + " WHERE message_id IN " + inpart
+                                                              + " ORDER BY message_id"))
+                        {
+                            while (rs.next())
+                            {
+                                long messageId = rs.getLong(1);
+                                try (InputStream dataAsInputStream = getBlobAsInputStream(rs, 2))
+                                {
+                                    StorableMessageMetaData metaData = getStorableMessageMetaData(messageId, dataAsInputStream);
+                                    StoredJDBCMessage message = createStoredJDBCMessage(messageId, metaData, true);
+                                    if (!handler.handle(message))
+                                    {
+                                        return;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            catch (SQLException | IOException e)
+            {
+                throw new StoreException("Error encountered when visiting messages", e);
+            }
+        }
+
         @Override
         public void close()
         {
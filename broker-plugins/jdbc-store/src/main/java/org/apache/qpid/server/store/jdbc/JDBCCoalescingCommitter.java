@@ -0,0 +1,237 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.store.StoreException;
+
+/**
+ * Commits the work of many store transactions as a single JDBC transaction.
+ * <p>
+ * Jobs are queued by the threads committing store transactions and written by a single commit thread. Whilst a group
+ * is being written and committed, further jobs accumulate in the queue and are written as the next group, so the
+ * number of database round trips and log flushes grows with the commit latency of the database rather than with the
+ * number of transactions. If a group fails, its jobs are retried one by one, so that a failing job does not cause
+ * the others in its group to fail.
+ */
+final class JDBCCoalescingCommitter<J extends JDBCCoalescingCommitter.CommitJob>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(JDBCCoalescingCommitter.class);
+
+    interface CommitJob
+    {
+        void complete();
+
+        void abort(RuntimeException e);
+    }
+
+    interface ConnectionSource
+    {
+        Connection newConnection() throws SQLException;
+    }
+
+    interface GroupWriter<J>
+    {
+        void write(Connection connection, List<J> jobs) throws SQLException;
+    }
+
+    private final ConnectionSource _connectionSource;
+    private final GroupWriter<J> _groupWriter;
+    private final int _maximumGroupSize;
+    private final BlockingQueue<J> _jobQueue = new LinkedBlockingQueue<>();
+    private final Thread _commitThread;
+    private volatile boolean _stopped;
+
+    JDBCCoalescingCommitter(final String name,
+                            final ConnectionSource connectionSource,
+                            final GroupWriter<J> groupWriter,
+                            final int maximumGroupSize)
+    {
+        _connectionSource = connectionSource;
+        _groupWriter = groupWriter;
+        _maximumGroupSize = maximumGroupSize;
+        _commitThread = new Thread(this::run, "Commit-Thread-" + name);
+        _commitThread.setDaemon(true);
+    }
+
+    void start()
+    {
+        _commitThread.start();
+    }
+
+    void stop()
+    {
+        _stopped = true;
+        if (Thread.currentThread() != _commitThread)
+        {
+            try
+            {
+                _commitThread.join();
+            }
+            catch (InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Commit thread has not shutdown", ie);
+            }
+        }
+
+        final RuntimeException e = new StoreException("Commit thread has been closed, transaction aborted");
+        J job;
+        while ((job = _jobQueue.poll()) != null)
+        {
+            job.abort(e);
+        }
+    }
+
+    void commit(final J job)
+    {
+        if (_stopped)
+        {
+            throw new IllegalStateException("Commit thread is stopped");
+        }
+        _jobQueue.add(job);
+    }
+
+    private void run()
+    {
+        final List<J> jobs = new ArrayList<>(_maximumGroupSize);
+        while (!_stopped || !_jobQueue.isEmpty())
+        {
+            try
+            {
+                final J job = _jobQueue.poll(500, TimeUnit.MILLISECONDS);
+                if (job != null)
+                {
+                    jobs.add(job);
+                    _jobQueue.drainTo(jobs, _maximumGroupSize - 1);
+                    processJobs(jobs);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.error("Unexpected exception on commit thread", e);
+                for (J job : jobs)
+                {
+                    job.abort(e);
+                }
+            }
+            finally
+            {
+                jobs.clear();
+            }
+        }
+    }
+
+    private void processJobs(final List<J> jobs)
+    {
+        final Connection connection;
+        try
+        {
+            connection = _connectionSource.newConnection();
+        }
+        catch (SQLException e)
+        {
+            final StoreException storeException = new StoreException("Failed to obtain connection for commit", e);
+            for (J job : jobs)
+            {
+                job.abort(storeException);
+            }
+            return;
+        }
+
+        try
+        {
+            final RuntimeException failure = writeAndCommit(connection, jobs);
+            if (failure == null)
+            {
+                LOGGER.debug("Committed {} transaction(s) as a group", jobs.size());
+                for (J job : jobs)
+                {
+                    job.complete();
+                }
+            }
+            else if (jobs.size() == 1)
+            {
+                jobs.get(0).abort(failure);
+            }
+            else
+            {
+                LOGGER.debug("Group commit of {} transactions failed, committing individually", jobs.size(), failure);
+                for (J job : jobs)
+                {
+                    final RuntimeException jobFailure = writeAndCommit(connection, Collections.singletonList(job));
+                    if (jobFailure == null)
+                    {
+                        job.complete();
+                    }
+                    else
+                    {
+                        job.abort(jobFailure);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            JdbcUtils.closeConnection(connection, LOGGER);
+        }
+    }
+
+    private RuntimeException writeAndCommit(final Connection connection, final List<J> jobs)
+    {
+        try
+        {
+            _groupWriter.write(connection, jobs);
+            connection.commit();
+            return null;
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            try
+            {
+                connection.rollback();
+            }
+            catch (SQLException re)
+            {
+                LOGGER.debug("Failed to rollback group commit", re);
+            }
+            return e instanceof RuntimeException
+                    ? (RuntimeException) e
+                    : new StoreException("Error commit tx", e);
+        }
+    }
+}
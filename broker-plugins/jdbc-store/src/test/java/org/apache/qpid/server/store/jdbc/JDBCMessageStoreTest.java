@@ -20,12 +20,14 @@
  */
 package org.apache.qpid.server.store.jdbc;
 
+import static org.apache.qpid.server.store.jdbc.AbstractJDBCMessageStore.GROUP_COMMIT;
 import static org.apache.qpid.server.store.jdbc.AbstractJDBCMessageStore.IN_CLAUSE_MAX_SIZE;
 import static org.apache.qpid.server.store.jdbc.TestJdbcUtils.assertTablesExistence;
 import static org.apache.qpid.server.store.jdbc.TestJdbcUtils.getTableNames;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
@@ -35,11 +37,13 @@ import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
@@ -245,6 +249,146 @@ public class JDBCMessageStoreTest extends MessageStoreTestCase
         verify(store).removeMessagesFromDatabase(any(Connection.class), eq(Collections.singletonList(21L)));
     }
 
+    @Test
+    public void testGroupCommit() throws Exception
+    {
+        final String queueName = getTestName();
+        final TransactionLogResource resource = mockTransactionLogResource(UUID.randomUUID(), queueName);
+        final GenericJDBCMessageStore store = (GenericJDBCMessageStore) getStore();
+        reOpenStoreWithGroupCommit(store);
+
+        final List<MessageEnqueueRecord> records = new ArrayList<>();
+        final List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            final Transaction transaction = store.newTransaction();
+            records.add(transaction.enqueueMessage(resource, addTestMessage(store, queueName, "message" + i)));
+            futures.add(transaction.commitTranAsync(null));
+        }
+        for (ListenableFuture<Void> future : futures)
+        {
+            future.get(1000, TimeUnit.MILLISECONDS);
+        }
+        assertRecords(store, resource, records);
+
+        futures.clear();
+        for (MessageEnqueueRecord record : records.subList(0, 5))
+        {
+            final Transaction transaction = store.newTransaction();
+            transaction.dequeueMessage(record);
+            futures.add(transaction.commitTranAsync(null));
+        }
+        for (ListenableFuture<Void> future : futures)
+        {
+            future.get(1000, TimeUnit.MILLISECONDS);
+        }
+        assertRecords(store, resource, records.subList(5, 10));
+    }
+
+    @Test
+    public void testGroupCommitFailureIsolatedToFailingTransaction() throws Exception
+    {
+        final String queueName = getTestName();
+        final TransactionLogResource resource = mockTransactionLogResource(UUID.randomUUID(), queueName);
+        final GenericJDBCMessageStore store = (GenericJDBCMessageStore) getStore();
+        reOpenStoreWithGroupCommit(store);
+
+        final List<MessageEnqueueRecord> records = enqueueMessages(store, resource, 2);
+
+        final Transaction failingTransaction = store.newTransaction();
+        failingTransaction.dequeueMessage(records.get(0));
+        failingTransaction.dequeueMessage(records.get(0));
+        final ListenableFuture<Void> failingFuture = failingTransaction.commitTranAsync(null);
+
+        final Transaction transaction = store.newTransaction();
+        transaction.dequeueMessage(records.get(1));
+        final ListenableFuture<Void> future = transaction.commitTranAsync(null);
+
+        future.get(1000, TimeUnit.MILLISECONDS);
+        try
+        {
+            failingFuture.get(1000, TimeUnit.MILLISECONDS);
+            fail("Exception not thrown");
+        }
+        catch (ExecutionException e)
+        {
+            // pass
+        }
+        assertRecords(store, resource, Collections.singletonList(records.get(0)));
+    }
+
+    @Test
+    public void testMessagesOfFailedGroupAreStoredWhenRetried() throws Exception
+    {
+        final String queueName = getTestName();
+        final TransactionLogResource resource = mockTransactionLogResource(UUID.randomUUID(), queueName);
+        final GenericJDBCMessageStore store = (GenericJDBCMessageStore) getStore();
+        reOpenStoreWithGroupCommit(store);
+
+        final List<MessageEnqueueRecord> records = enqueueMessages(store, resource, 1);
+
+        final ListenableFuture<Void> blockedFuture;
+        final ListenableFuture<Void> failingFuture;
+        final ListenableFuture<Void> future;
+        final InternalMessage message;
+        try (Connection connection = openConnection())
+        {
+            // hold the commit thread on a table lock so that the following transactions are committed as one group
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement())
+            {
+                statement.execute("LOCK TABLE " + TEST_TABLE_PREFIX + "QPID_QUEUE_ENTRIES IN EXCLUSIVE MODE");
+            }
+
+            final Transaction blockedTransaction = store.newTransaction();
+            blockedTransaction.enqueueMessage(resource, addTestMessage(store, queueName, "blocked"));
+            blockedFuture = blockedTransaction.commitTranAsync(null);
+
+            final Transaction failingTransaction = store.newTransaction();
+            failingTransaction.dequeueMessage(records.get(0));
+            failingTransaction.dequeueMessage(records.get(0));
+            failingFuture = failingTransaction.commitTranAsync(null);
+
+            message = addTestMessage(store, queueName, "retried");
+            final Transaction transaction = store.newTransaction();
+            transaction.enqueueMessage(resource, message);
+            future = transaction.commitTranAsync(null);
+
+            connection.commit();
+        }
+
+        blockedFuture.get(10, TimeUnit.SECONDS);
+        future.get(10, TimeUnit.SECONDS);
+        try
+        {
+            failingFuture.get(10, TimeUnit.SECONDS);
+            fail("Exception not thrown");
+        }
+        catch (ExecutionException e)
+        {
+            // pass
+        }
+
+        final long messageNumber = message.getMessageNumber();
+        store.closeMessageStore();
+        store.openMessageStore(getVirtualHost());
+
+        final StoredMessage<?> storedMessage = store.newMessageStoreReader().getMessage(messageNumber);
+        assertNotNull("Message of retried transaction was not stored", storedMessage);
+        assertNotNull("Meta-data of retried transaction was not stored", storedMessage.getMetaData());
+        assertEquals(message.getStoredMessage().getContentSize(), storedMessage.getContentSize());
+    }
+
+    private void reOpenStoreWithGroupCommit(final GenericJDBCMessageStore store)
+    {
+        final ConfiguredObject<?> parent = getVirtualHost();
+        when(parent.getContextValue(Boolean.class, GROUP_COMMIT)).thenReturn(true);
+        when(parent.getContextKeys(false)).thenReturn(Collections.singleton(GROUP_COMMIT));
+
+        store.closeMessageStore();
+        store.openMessageStore(parent);
+    }
+
     private void reOpenStoreWithInClauseMaxSize(final GenericJDBCMessageStore store, final int inClauseMaxSize)
     {
         final ConfiguredObject<?> parent = getVirtualHost();
@@ -98,6 +98,7 @@ import org.apache.qpid.server.management.plugin.servlet.rest.MetaDataServlet;
 import org.apache.qpid.server.management.plugin.servlet.rest.QueueReportServlet;
 import org.apache.qpid.server.management.plugin.servlet.rest.RestServlet;
 import org.apache.qpid.server.management.plugin.servlet.rest.SaslServlet;
+import org.apache.qpid.server.management.plugin.servlet.rest.StatisticsServlet;
 import org.apache.qpid.server.management.plugin.servlet.rest.StructureServlet;
 import org.apache.qpid.server.management.plugin.servlet.rest.TimeZoneServlet;
 import org.apache.qpid.server.management.plugin.servlet.rest.VirtualHostQueryServlet;
@@ -383,6 +384,7 @@ public class HttpManagement extends AbstractPluginAdapter<HttpManagement> implem
 
         root.addServlet(new ServletHolder(new StructureServlet()), "/service/structure");
         root.addServlet(new ServletHolder(new QueueReportServlet()), "/service/queuereport/*");
+        root.addServlet(new ServletHolder(new StatisticsServlet()), "/service/statistics/*");
         root.addServlet(new ServletHolder(new MetaDataServlet()), "/service/metadata");
         root.addServlet(new ServletHolder(new TimeZoneServlet()), "/service/timezones");
     }
@@ -0,0 +1,522 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.management.plugin.servlet.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.qpid.server.management.plugin.HttpManagementUtil;
+import org.apache.qpid.server.management.plugin.csv.CSVFormat;
+import org.apache.qpid.server.model.AbstractConfiguredObject;
+import org.apache.qpid.server.model.Broker;
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.model.ConfiguredObjectJacksonModule;
+import org.apache.qpid.server.model.ConfiguredObjectStatistic;
+import org.apache.qpid.server.model.Model;
+import org.apache.qpid.server.model.StatisticType;
+
+/**
+ * Streams the statistics of all objects of a category, e.g. {@code /service/statistics/queue}, directly to the
+ * response. Column names are sent once, followed by one array (JSON) or record (CSV) of values per object, so no
+ * per-object maps are built.
+ * <p>
+ * The statistics to send are chosen with the repeatable {@code statistic} parameter and default to all statistics
+ * of the category. With {@code delta=true} the response carries a {@code baseline} token. Passing that token back
+ * as {@code since} reports cumulative statistics as the change since the request which issued it; such columns are
+ * named with the suffix {@value #DELTA_COLUMN_SUFFIX}. A token can be used once, and only the most recent
+ * {@value #MAXIMUM_BASELINES} tokens are kept, so an unknown token yields absolute values.
+ */
+public class StatisticsServlet extends AbstractServlet
+{
+    private static final long serialVersionUID = 1L;
+
+    static final String DELTA_COLUMN_SUFFIX = ".delta";
+    static final int MAXIMUM_BASELINES = 16;
+
+    private static final CSVFormat CSV_FORMAT = new CSVFormat();
+    private static final List<String> FIXED_COLUMNS = Arrays.asList("id", "name", "parent");
+
+    private final transient Map<String, Baseline> _baselines = new LinkedHashMap<String, Baseline>()
+    {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Baseline> eldest)
+        {
+            return size() > MAXIMUM_BASELINES;
+        }
+    };
+
+    @Override
+    protected void doGet(final HttpServletRequest request,
+                         final HttpServletResponse response,
+                         final ConfiguredObject<?> managedObject)
+            throws IOException, ServletException
+    {
+        final List<String> pathInfoElements =
+                HttpManagementUtil.getPathInfoElements(request.getServletPath(), request.getPathInfo());
+        if (!(managedObject instanceof Broker) || pathInfoElements.size() != 1)
+        {
+            sendJsonErrorResponse(request, response, HttpServletResponse.SC_NOT_FOUND, "Invalid path");
+            return;
+        }
+
+        final Model model = managedObject.getModel();
+        final Class<? extends ConfiguredObject> category = getCategory(pathInfoElements.get(0), model);
+        if (category == null)
+        {
+            sendJsonErrorResponse(request,
+                                  response,
+                                  HttpServletResponse.SC_NOT_FOUND,
+                                  "Unknown object type " + pathInfoElements.get(0));
+            return;
+        }
+
+        final List<ConfiguredObjectStatistic<?, ?>> statistics;
+        try
+        {
+            statistics = getRequestedStatistics(request, model, category);
+        }
+        catch (IllegalArgumentException e)
+        {
+            sendJsonErrorResponse(request, response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        final List<String> statisticNames = new ArrayList<>(statistics.size());
+        for (ConfiguredObjectStatistic<?, ?> statistic : statistics)
+        {
+            statisticNames.add(statistic.getName());
+        }
+
+        final long timestamp = System.currentTimeMillis();
+        final String since = request.getParameter("since");
+        final Baseline previous = since == null ? null : takeBaseline(since, category, statisticNames);
+        final Baseline next;
+        if (since != null || Boolean.parseBoolean(request.getParameter("delta")))
+        {
+            next = new Baseline(UUID.randomUUID().toString(), category, statisticNames, timestamp);
+        }
+        else
+        {
+            next = null;
+        }
+
+        final List<String> columns = new ArrayList<>(FIXED_COLUMNS);
+        for (ConfiguredObjectStatistic<?, ?> statistic : statistics)
+        {
+            final boolean delta = previous != null && statistic.getStatisticType() == StatisticType.CUMULATIVE;
+            columns.add(delta ? statistic.getName() + DELTA_COLUMN_SUFFIX : statistic.getName());
+        }
+
+        final String attachmentFilename = request.getParameter(CONTENT_DISPOSITION_ATTACHMENT_FILENAME_PARAM);
+        if (attachmentFilename != null)
+        {
+            setContentDispositionHeaderIfNecessary(response, attachmentFilename);
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        sendCachingHeadersOnResponse(response);
+
+        final RowWriter rowWriter;
+        if ("csv".equalsIgnoreCase(request.getParameter("format")))
+        {
+            response.setContentType("text/csv;charset=utf-8;");
+            rowWriter = new CsvRowWriter(getOutputStream(request, response));
+        }
+        else
+        {
+            response.setContentType("application/json");
+            rowWriter = new JsonRowWriter(getOutputStream(request, response));
+        }
+
+        try
+        {
+            rowWriter.writeHeader(category, timestamp, previous, next, columns);
+            final RowReader rowReader = new RowReader(statistics, previous, next);
+            final List<Class<? extends ConfiguredObject>> hierarchy = getHierarchy(model, category);
+            writeRows(managedObject, hierarchy, 0, rowReader, rowWriter);
+            rowWriter.writeFooter();
+        }
+        finally
+        {
+            rowWriter.close();
+        }
+
+        if (next != null)
+        {
+            synchronized (_baselines)
+            {
+                _baselines.put(next._token, next);
+            }
+        }
+    }
+
+    private Baseline takeBaseline(final String token,
+                                  final Class<? extends ConfiguredObject> category,
+                                  final List<String> statisticNames)
+    {
+        final Baseline baseline;
+        synchronized (_baselines)
+        {
+            baseline = _baselines.remove(token);
+        }
+        return baseline != null && baseline._category == category && baseline._statistics.equals(statisticNames)
+                ? baseline
+                : null;
+    }
+
+    private Class<? extends ConfiguredObject> getCategory(final String categoryName, final Model model)
+    {
+        for (Class<? extends ConfiguredObject> supportedCategory : model.getSupportedCategories())
+        {
+            if (categoryName.equalsIgnoreCase(supportedCategory.getSimpleName()))
+            {
+                return supportedCategory;
+            }
+        }
+        return null;
+    }
+
+    private List<ConfiguredObjectStatistic<?, ?>> getRequestedStatistics(final HttpServletRequest request,
+                                                                         final Model model,
+                                                                         final Class<? extends ConfiguredObject> category)
+    {
+        final Collection<ConfiguredObjectStatistic<?, ?>> available =
+                model.getTypeRegistry().getStatistics(category);
+        final String[] requested = request.getParameterValues("statistic");
+        if (requested == null || requested.length == 0)
+        {
+            return new ArrayList<>(available);
+        }
+
+        final Map<String, ConfiguredObjectStatistic<?, ?>> statisticsByName = new HashMap<>();
+        for (ConfiguredObjectStatistic<?, ?> statistic : available)
+        {
+            statisticsByName.put(statistic.getName(), statistic);
+        }
+        final List<ConfiguredObjectStatistic<?, ?>> statistics = new ArrayList<>(requested.length);
+        for (String name : requested)
+        {
+            final ConfiguredObjectStatistic<?, ?> statistic = statisticsByName.get(name);
+            if (statistic == null)
+            {
+                throw new IllegalArgumentException(String.format("Unknown statistic '%s' for object type %s",
+                                                                 name,
+                                                                 category.getSimpleName()));
+            }
+            statistics.add(statistic);
+        }
+        return statistics;
+    }
+
+    private List<Class<? extends ConfiguredObject>> getHierarchy(final Model model,
+                                                              final Class<? extends ConfiguredObject> category)
+    {
+        final List<Class<? extends ConfiguredObject>> hierarchy = new ArrayList<>();
+        Class<? extends ConfiguredObject> element = category;
+        while (element != null && element != Broker.class)
+        {
+            hierarchy.add(element);
+            element = model.getParentType(element);
+        }
+        Collections.reverse(hierarchy);
+        return hierarchy;
+    }
+
+    private void writeRows(final ConfiguredObject<?> parent,
+                           final List<Class<? extends ConfiguredObject>> hierarchy,
+                           final int depth,
+                           final RowReader rowReader,
+                           final RowWriter rowWriter) throws IOException
+    {
+        if (depth == hierarchy.size())
+        {
+            rowWriter.writeRow(rowReader.read(parent));
+        }
+        else
+        {
+            for (ConfiguredObject<?> child : parent.getChildren(hierarchy.get(depth)))
+            {
+                writeRows(child, hierarchy, depth + 1, rowReader, rowWriter);
+            }
+        }
+    }
+
+    /**
+     * Reads the row of an object into a reused array, replacing cumulative statistics by their change since the
+     * previous baseline, if any, and recording their values in the next baseline.
+     */
+    private static final class RowReader
+    {
+        private final List<ConfiguredObjectStatistic<?, ?>> _statistics;
+        private final Map<String, Integer> _positions;
+        private final boolean[] _cumulative;
+        private final Baseline _previous;
+        private final Baseline _next;
+        private final Object[] _row;
+
+        private RowReader(final List<ConfiguredObjectStatistic<?, ?>> statistics,
+                          final Baseline previous,
+                          final Baseline next)
+        {
+            _statistics = statistics;
+            _positions = new HashMap<>();
+            _cumulative = new boolean[statistics.size()];
+            for (int i = 0; i < statistics.size(); i++)
+            {
+                _positions.put(statistics.get(i).getName(), FIXED_COLUMNS.size() + i);
+                _cumulative[i] = statistics.get(i).getStatisticType() == StatisticType.CUMULATIVE;
+            }
+            _previous = previous;
+            _next = next;
+            _row = new Object[FIXED_COLUMNS.size() + statistics.size()];
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object[] read(final ConfiguredObject<?> object)
+        {
+            final ConfiguredObject<?> parent = object.getParent();
+            _row[0] = object.getId();
+            _row[1] = object.getName();
+            _row[2] = parent == null ? null : parent.getName();
+            Arrays.fill(_row, FIXED_COLUMNS.size(), _row.length, null);
+
+            if (object instanceof AbstractConfiguredObject)
+            {
+                ((AbstractConfiguredObject<?>) object).readStatistics(_positions, _row);
+            }
+            else
+            {
+                for (int i = 0; i < _statistics.size(); i++)
+                {
+                    final ConfiguredObjectStatistic statistic = _statistics.get(i);
+                    _row[FIXED_COLUMNS.size() + i] = statistic.getValue(object);
+                }
+            }
+
+            final Object[] previousValues = _previous == null ? null : _previous._values.get(object.getId());
+            final Object[] values = _next == null ? null : new Object[_statistics.size()];
+            for (int i = 0; i < _statistics.size(); i++)
+            {
+                if (_cumulative[i])
+                {
+                    final Object value = _row[FIXED_COLUMNS.size() + i];
+                    if (values != null)
+                    {
+                        values[i] = value;
+                    }
+                    if (_previous != null)
+                    {
+                        _row[FIXED_COLUMNS.size() + i] = previousValues == null ? value : subtract(value, previousValues[i]);
+                    }
+                }
+            }
+            if (values != null)
+            {
+                _next._values.put(object.getId(), values);
+            }
+            return _row;
+        }
+
+        private static Object subtract(final Object value, final Object previousValue)
+        {
+            if (value instanceof Number && previousValue instanceof Number)
+            {
+                if (value instanceof Double || value instanceof Float)
+                {
+                    return ((Number) value).doubleValue() - ((Number) previousValue).doubleValue();
+                }
+                return ((Number) value).longValue() - ((Number) previousValue).longValue();
+            }
+            return value;
+        }
+    }
+
+    private static final class Baseline
+    {
+        private final String _token;
+        private final Class<? extends ConfiguredObject> _category;
+        private final List<String> _statistics;
+        private final long _timestamp;
+        /** values of the cumulative statistics of each object */
+        private final Map<UUID, Object[]> _values = new HashMap<>();
+
+        private Baseline(final String token,
+                         final Class<? extends ConfiguredObject> category,
+                         final List<String> statistics,
+                         final long timestamp)
+        {
+            _token = token;
+            _category = category;
+            _statistics = statistics;
+            _timestamp = timestamp;
+        }
+    }
+
+    private interface RowWriter
+    {
+        void writeHeader(Class<? extends ConfiguredObject> category,
+                         long timestamp,
+                         Baseline previous,
+                         Baseline next,
+                         List<String> columns) throws IOException;
+
+        void writeRow(Object[] row) throws IOException;
+
+        void writeFooter() throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private static final class JsonRowWriter implements RowWriter
+    {
+        private final JsonGenerator _generator;
+
+        private JsonRowWriter(final OutputStream outputStream) throws IOException
+        {
+            final ObjectMapper mapper = ConfiguredObjectJacksonModule.newObjectMapper(false);
+            _generator = mapper.getFactory().createGenerator(outputStream);
+        }
+
+        @Override
+        public void writeHeader(final Class<? extends ConfiguredObject> category,
+                                final long timestamp,
+                                final Baseline previous,
+                                final Baseline next,
+                                final List<String> columns) throws IOException
+        {
+            _generator.writeStartObject();
+            _generator.writeStringField("category", category.getSimpleName());
+            _generator.writeNumberField("timestamp", timestamp);
+            _generator.writeBooleanField("delta", previous != null);
+            if (previous != null)
+            {
+                _generator.writeNumberField("since", previous._timestamp);
+            }
+            if (next != null)
+            {
+                _generator.writeStringField("baseline", next._token);
+            }
+            _generator.writeArrayFieldStart("columns");
+            for (String column : columns)
+            {
+                _generator.writeString(column);
+            }
+            _generator.writeEndArray();
+            _generator.writeArrayFieldStart("rows");
+        }
+
+        @Override
+        public void writeRow(final Object[] row) throws IOException
+        {
+            _generator.writeStartArray();
+            for (Object value : row)
+            {
+                _generator.writeObject(value);
+            }
+            _generator.writeEndArray();
+        }
+
+        @Override
+        public void writeFooter() throws IOException
+        {
+            _generator.writeEndArray();
+            _generator.writeEndObject();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            _generator.close();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter
+    {
+        private final Writer _writer;
+
+        private CsvRowWriter(final OutputStream outputStream)
+        {
+            _writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void writeHeader(final Class<? extends ConfiguredObject> category,
+                                final long timestamp,
+                                final Baseline previous,
+                                final Baseline next,
+                                final List<String> columns) throws IOException
+        {
+            final List<String> comments = new ArrayList<>(4);
+            comments.add("timestamp=" + timestamp);
+            comments.add("delta=" + (previous != null));
+            if (previous != null)
+            {
+                comments.add("since=" + previous._timestamp);
+            }
+            if (next != null)
+            {
+                comments.add("baseline=" + next._token);
+            }
+            CSV_FORMAT.printComments(_writer, comments.toArray(new String[comments.size()]));
+            CSV_FORMAT.printRecord(_writer, columns);
+        }
+
+        @Override
+        public void writeRow(final Object[] row) throws IOException
+        {
+            for (int i = 0; i < row.length; i++)
+            {
+                CSV_FORMAT.print(_writer, row[i], i == 0);
+            }
+            CSV_FORMAT.println(_writer);
+        }
+
+        @Override
+        public void writeFooter()
+        {
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            _writer.close();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.qpid.server.management.plugin.servlet.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.qpid.server.model.Broker;
+import org.apache.qpid.server.model.ConfiguredObjectStatistic;
+import org.apache.qpid.server.model.ConfiguredObjectTypeRegistry;
+import org.apache.qpid.server.model.Model;
+import org.apache.qpid.server.model.StatisticType;
+import org.apache.qpid.server.model.VirtualHostNode;
+import org.apache.qpid.test.utils.UnitTestBase;
+
+public class StatisticsServletTest extends UnitTestBase
+{
+    private final AtomicLong _bytesIn = new AtomicLong(100);
+    private final AtomicLong _depth = new AtomicLong(5);
+    private ByteArrayOutputStream _output;
+    private StatisticsServlet _servlet;
+    private Broker<?> _broker;
+    private VirtualHostNode<?> _node;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _servlet = new StatisticsServlet()
+        {
+            @Override
+            protected OutputStream getOutputStream(final HttpServletRequest request,
+                                                   final HttpServletResponse response)
+            {
+                return _output;
+            }
+        };
+
+        _node = mock(VirtualHostNode.class);
+        when(_node.getId()).thenReturn(UUID.randomUUID());
+        when(_node.getName()).thenReturn("node");
+
+        final ConfiguredObjectStatistic<?, ?> bytesIn = createStatistic("bytesIn", StatisticType.CUMULATIVE, _bytesIn);
+        final ConfiguredObjectStatistic<?, ?> depth = createStatistic("depth", StatisticType.POINT_IN_TIME, _depth);
+        final ConfiguredObjectTypeRegistry typeRegistry = mock(ConfiguredObjectTypeRegistry.class);
+        doReturn(Arrays.asList(bytesIn, depth)).when(typeRegistry).getStatistics(VirtualHostNode.class);
+
+        final Model model = mock(Model.class);
+        doReturn(Arrays.asList(Broker.class, VirtualHostNode.class)).when(model).getSupportedCategories();
+        doReturn(Broker.class).when(model).getParentType(VirtualHostNode.class);
+        when(model.getTypeRegistry()).thenReturn(typeRegistry);
+
+        _broker = mock(Broker.class);
+        when(_broker.getModel()).thenReturn(model);
+        doReturn(Collections.singletonList(_node)).when(_broker).getChildren(VirtualHostNode.class);
+        doReturn(_broker).when(_node).getParent();
+        when(_broker.getName()).thenReturn("broker");
+    }
+
+    @Test
+    public void testAbsoluteValuesWithoutBaseline() throws Exception
+    {
+        final Map<String, Object> result = getJson(Collections.emptyMap());
+
+        assertEquals(Boolean.FALSE, result.get("delta"));
+        assertFalse(result.containsKey("baseline"));
+        assertEquals(Arrays.asList("id", "name", "parent", "bytesIn", "depth"), result.get("columns"));
+        assertEquals(Collections.singletonList(Arrays.asList(_node.getId().toString(), "node", "broker", 100, 5)),
+                     result.get("rows"));
+    }
+
+    @Test
+    public void testDeltaSinceBaselineToken() throws Exception
+    {
+        final Map<String, Object> first = getJson(Collections.singletonMap("delta", "true"));
+        assertEquals(Boolean.FALSE, first.get("delta"));
+        final String token = (String) first.get("baseline");
+        assertNotNull("Baseline token not issued", token);
+
+        _bytesIn.set(130);
+        _depth.set(7);
+        final Map<String, Object> second = getJson(Collections.singletonMap("since", token));
+        assertEquals(Boolean.TRUE, second.get("delta"));
+        assertEquals(first.get("timestamp"), second.get("since"));
+        assertEquals(Arrays.asList("id", "name", "parent", "bytesIn" + StatisticsServlet.DELTA_COLUMN_SUFFIX, "depth"),
+                     second.get("columns"));
+        assertEquals(Collections.singletonList(Arrays.asList(_node.getId().toString(), "node", "broker", 30, 7)),
+                     second.get("rows"));
+        assertNotEquals("Expected a new baseline token", token, second.get("baseline"));
+
+        final Map<String, Object> reused = getJson(Collections.singletonMap("since", token));
+        assertEquals("Baseline token should only be usable once", Boolean.FALSE, reused.get("delta"));
+        assertEquals(Collections.singletonList(Arrays.asList(_node.getId().toString(), "node", "broker", 130, 7)),
+                     reused.get("rows"));
+    }
+
+    @Test
+    public void testNumberOfBaselinesIsLimited() throws Exception
+    {
+        final String token = (String) getJson(Collections.singletonMap("delta", "true")).get("baseline");
+        for (int i = 0; i < StatisticsServlet.MAXIMUM_BASELINES; i++)
+        {
+            getJson(Collections.singletonMap("delta", "true"));
+        }
+
+        final Map<String, Object> result = getJson(Collections.singletonMap("since", token));
+        assertEquals("Eldest baseline should have been discarded", Boolean.FALSE, result.get("delta"));
+    }
+
+    @Test
+    public void testCsvMarksDeltaColumns() throws Exception
+    {
+        final Map<String, String> parameters = new HashMap<>();
+        parameters.put("format", "csv");
+        parameters.put("delta", "true");
+        final String first = get(parameters);
+        assertTrue("Unexpected output: " + first, first.contains("delta=false"));
+        final String token = first.substring(first.indexOf("baseline=") + "baseline=".length()).split("\\R")[0];
+
+        _bytesIn.set(150);
+        parameters.remove("delta");
+        parameters.put("since", token);
+        final String second = get(parameters);
+        assertTrue("Unexpected output: " + second, second.contains("delta=true"));
+        assertTrue("Unexpected output: " + second,
+                   second.contains("id,name,parent,bytesIn" + StatisticsServlet.DELTA_COLUMN_SUFFIX + ",depth"));
+        assertTrue("Unexpected output: " + second, second.contains("node,broker,50,5"));
+    }
+
+    private ConfiguredObjectStatistic<?, ?> createStatistic(final String name,
+                                                           final StatisticType type,
+                                                           final AtomicLong value)
+    {
+        final ConfiguredObjectStatistic<?, ?> statistic = mock(ConfiguredObjectStatistic.class);
+        when(statistic.getName()).thenReturn(name);
+        when(statistic.getStatisticType()).thenReturn(type);
+        when(((ConfiguredObjectStatistic) statistic).getValue(_node)).thenAnswer(invocation -> value.get());
+        return statistic;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getJson(final Map<String, String> parameters) throws Exception
+    {
+        return new ObjectMapper().readValue(get(parameters), Map.class);
+    }
+
+    private String get(final Map<String, String> parameters) throws Exception
+    {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getServletPath()).thenReturn("/service/statistics");
+        when(request.getPathInfo()).thenReturn("/virtualhostnode");
+        parameters.forEach((name, value) -> when(request.getParameter(name)).thenReturn(value));
+
+        _output = new ByteArrayOutputStream();
+        _servlet.doGet(request, mock(HttpServletResponse.class), _broker);
+        return new String(_output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}